@@ -0,0 +1,117 @@
+package edu.usfca.cs272;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.TreeSet;
+
+/**
+ * Measures how many bytes a search of a {@link FrequencyIndex} allocates
+ * besides the results it returns, and fails if it is more than a budget. The
+ * bytes allocated by the current thread are read before and after the searches
+ * with {@link com.sun.management.ThreadMXBean#getCurrentThreadAllocatedBytes()}.
+ * The size of the results is measured the same way, by building a copy of
+ * every list of results returned, and subtracted.
+ *
+ * The searches run after a warmup long enough for them to be compiled, so the
+ * measurement is of a steady state search. Exits with status 1 if either exact
+ * or partial search allocates more than the budget per query, so it can guard
+ * against regressions in a build.
+ *
+ * Usage: {@code AllocationBudget [-vocabulary 10000] [-files 100] [-size 3]
+ * [-queries 10000] [-budget 64]}
+ *
+ * @author Matthew Kahane
+ */
+public class AllocationBudget {
+
+	/** Number of distinct queries cycled through */
+	private static final int QUERIES = 256;
+
+	/** Measures the bytes allocated by the current thread */
+	private static final com.sun.management.ThreadMXBean THREADS =
+			(com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+	/** Keeps the results alive so the searches cannot be optimized away */
+	private static long sink;
+
+	/**
+	 * Returns the bytes a number of searches allocate besides their results
+	 *
+	 * @param index the index to search
+	 * @param queries the queries to cycle through
+	 * @param exact whether to search for whole words
+	 * @param count the number of searches to run
+	 * @return the bytes allocated by the searches besides their results
+	 */
+	private static long measure(FrequencyIndex index, ArrayList<TreeSet<String>> queries, boolean exact, int count) {
+		ArrayList<ArrayList<SearchResult>> returned = new ArrayList<>(count);
+		long before = THREADS.getCurrentThreadAllocatedBytes();
+		for (int i = 0; i < count; i++) {
+			returned.add(WordSearcher.search(queries.get(i % QUERIES), index, exact));
+		}
+		long searched = THREADS.getCurrentThreadAllocatedBytes() - before;
+
+		// the list of lists is sized up front, so the copies allocate only what the results do
+		ArrayList<ArrayList<SearchResult>> copies = new ArrayList<>(count);
+		before = THREADS.getCurrentThreadAllocatedBytes();
+		for (ArrayList<SearchResult> results : returned) {
+			ArrayList<SearchResult> copy = new ArrayList<>(results.size());
+			for (SearchResult result : results) {
+				copy.add(new SearchResult(result.count, result.score, result.location));
+			}
+			copies.add(copy);
+		}
+		long results = THREADS.getCurrentThreadAllocatedBytes() - before;
+
+		sink += returned.size() + copies.size();
+		return searched - results;
+	}
+
+	/**
+	 * Builds an index, measures the bytes allocated per exact and partial
+	 * search, and exits with status 1 if either is over the budget.
+	 *
+	 * @param args the command-line arguments
+	 */
+	public static void main(String[] args) {
+		ArgumentParser flags = new ArgumentParser(args);
+		int vocabulary = flags.getInteger("-vocabulary", 10000);
+		int files = flags.getInteger("-files", 100);
+		int size = flags.getInteger("-size", 3);
+		int count = flags.getInteger("-queries", 10000);
+		int budget = flags.getInteger("-budget", 64);
+
+		BenchmarkData data = new BenchmarkData(vocabulary);
+		WordIndex positional = data.nextIndex(files, vocabulary * 10 / files);
+		FrequencyIndex index = new FrequencyIndex();
+		positional.getWordCounts().forEach(index::addWordCount);
+		for (String word : positional.view()) {
+			for (String location : positional.view(word)) {
+				index.add(word, location, positional.size(word, location));
+			}
+		}
+
+		ArrayList<TreeSet<String>> exactQueries = data.nextQueries(QUERIES, size, false);
+		ArrayList<TreeSet<String>> partialQueries = data.nextQueries(QUERIES, size, true);
+
+		// both kinds of search are warmed up first, since each changes how the other is compiled
+		for (int i = 0; i < 5; i++) {
+			measure(index, exactQueries, true, count);
+			measure(index, partialQueries, false, count);
+		}
+
+		boolean passed = true;
+		for (boolean exact : new boolean[] { true, false }) {
+			double perQuery = (double) measure(index, exact ? exactQueries : partialQueries, exact, count) / count;
+
+			boolean over = perQuery > budget;
+			passed &= !over;
+			System.out.printf("%s: %.1f bytes per query besides the results, budget %d: %s%n",
+					exact ? "exact" : "partial", perQuery, budget, over ? "FAILED" : "passed");
+		}
+
+		if (sink == 0 || !passed) {
+			System.exit(1);
+		}
+	}
+}
@@ -0,0 +1,180 @@
+package edu.usfca.cs272;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.TreeSet;
+
+/**
+ * Generates deterministic words, text, and indexes for the benchmarks. Word
+ * frequencies follow a Zipf-like distribution so a few words are very common
+ * and most are rare, as in natural text.
+ *
+ * @author Matthew Kahane
+ */
+public class BenchmarkData {
+
+	/** Letters used to build words, weighted roughly like English */
+	private static final String LETTERS = "eeeeettttaaaooiinnsshhrrdlcumwfgypbvk";
+
+	/** Seed used by every generator so runs are comparable */
+	public static final long SEED = 272;
+
+	/** The distinct words, most frequent first */
+	private final String[] vocabulary;
+
+	/** Cumulative Zipf weights of the vocabulary */
+	private final double[] cumulative;
+
+	/** The random generator used to draw words */
+	private final Random random;
+
+	/**
+	 * Initializes a generator with the given number of distinct words.
+	 *
+	 * @param size the number of distinct words
+	 */
+	public BenchmarkData(int size) {
+		random = new Random(SEED);
+
+		TreeSet<String> unique = new TreeSet<>();
+		vocabulary = new String[size];
+		for (int i = 0; i < size; i++) {
+			String word;
+			do {
+				word = randomWord(3 + random.nextInt(8));
+			} while (!unique.add(word));
+			vocabulary[i] = word;
+		}
+
+		cumulative = new double[size];
+		double total = 0;
+		for (int i = 0; i < size; i++) {
+			total += 1.0 / (i + 1);
+			cumulative[i] = total;
+		}
+		for (int i = 0; i < size; i++) {
+			cumulative[i] /= total;
+		}
+	}
+
+	/**
+	 * Returns a random lowercase word of the given length.
+	 *
+	 * @param length the number of letters
+	 * @return a random word
+	 */
+	private String randomWord(int length) {
+		char[] letters = new char[length];
+		for (int i = 0; i < length; i++) {
+			letters[i] = LETTERS.charAt(random.nextInt(LETTERS.length()));
+		}
+		return new String(letters);
+	}
+
+	/**
+	 * Returns the distinct words, most frequent first.
+	 *
+	 * @return the distinct words
+	 */
+	public String[] vocabulary() {
+		return vocabulary;
+	}
+
+	/**
+	 * Draws a word according to the Zipf distribution.
+	 *
+	 * @return a word from the vocabulary
+	 */
+	public String nextWord() {
+		double target = random.nextDouble();
+		int low = 0;
+		int high = cumulative.length - 1;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (cumulative[middle] < target) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return vocabulary[low];
+	}
+
+	/**
+	 * Draws the given number of words.
+	 *
+	 * @param count the number of words
+	 * @return the words in drawn order
+	 */
+	public String[] nextWords(int count) {
+		String[] words = new String[count];
+		for (int i = 0; i < count; i++) {
+			words[i] = nextWord();
+		}
+		return words;
+	}
+
+	/**
+	 * Returns a line of raw text with mixed case, punctuation, and digits, like
+	 * the text found in input files.
+	 *
+	 * @param count the number of words in the line
+	 * @return a line of raw text
+	 */
+	public String nextLine(int count) {
+		StringBuilder line = new StringBuilder();
+		for (int i = 0; i < count; i++) {
+			String word = nextWord();
+			switch (random.nextInt(10)) {
+				case 0 -> line.append(Character.toUpperCase(word.charAt(0))).append(word, 1, word.length());
+				case 1 -> line.append(word).append(',');
+				case 2 -> line.append(word).append("'s");
+				case 3 -> line.append(word).append(random.nextInt(100));
+				default -> line.append(word);
+			}
+			line.append(i % 7 == 6 ? "\t" : " ");
+		}
+		return line.toString();
+	}
+
+	/**
+	 * Builds an index with the given number of files and words per file.
+	 *
+	 * @param files the number of files
+	 * @param words the number of words in each file
+	 * @return the populated index
+	 */
+	public WordIndex nextIndex(int files, int words) {
+		WordIndex index = new WordIndex();
+		for (int file = 0; file < files; file++) {
+			String location = Path.of("input", "text", "file-" + file + ".txt").toString();
+			for (int position = 1; position <= words; position++) {
+				index.add(nextWord(), location, position);
+			}
+			index.addWordCount(location.toString(), words);
+		}
+		return index;
+	}
+
+	/**
+	 * Draws queries of the given number of distinct words.
+	 *
+	 * @param count the number of queries
+	 * @param size the number of words per query
+	 * @param prefix whether to cut each word down to a prefix for partial search
+	 * @return the queries
+	 */
+	public ArrayList<TreeSet<String>> nextQueries(int count, int size, boolean prefix) {
+		ArrayList<TreeSet<String>> queries = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			TreeSet<String> query = new TreeSet<>();
+			while (query.size() < size) {
+				String word = vocabulary[random.nextInt(vocabulary.length)];
+				query.add(prefix ? word.substring(0, Math.min(word.length(), 2 + random.nextInt(2))) : word);
+			}
+			queries.add(query);
+		}
+		return queries;
+	}
+}
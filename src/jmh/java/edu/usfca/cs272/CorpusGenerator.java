@@ -0,0 +1,349 @@
+package edu.usfca.cs272;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Objects;
+import java.util.Random;
+
+/**
+ * Writes a synthetic corpus of text files and a matching query file. The same
+ * seed and settings always produce byte-identical output, so performance
+ * problems found on private corpora can be reproduced elsewhere.
+ *
+ * Word frequencies follow a Zipf distribution, file sizes follow a log-normal
+ * distribution, files are spread across a directory tree of limited depth, and
+ * a fraction of words use accented Latin, Greek, or Cyrillic letters. A few
+ * files are given non-text extensions so they are skipped by {@link FileFinder}.
+ *
+ * Usage: {@code CorpusGenerator -out dir [-seed 272] [-files 100]
+ * [-words 500] [-sigma 1] [-vocabulary 20000] [-zipf 1] [-depth 3]
+ * [-fanout 4] [-unicode 5] [-queries 100]}, where {@code -unicode} is a
+ * percentage of words.
+ *
+ * @author Matthew Kahane
+ */
+public class CorpusGenerator {
+
+	/** Syllables used to build Latin words */
+	private static final String[] SYLLABLES = {
+			"a", "an", "ar", "be", "ca", "co", "de", "di", "en", "er", "es", "ex",
+			"in", "ing", "ion", "is", "la", "le", "li", "lo", "ma", "me", "mi", "na",
+			"ne", "no", "on", "or", "pa", "pe", "pro", "ra", "re", "ri", "ro", "sa",
+			"se", "si", "st", "ta", "te", "ti", "tion", "to", "tr", "un", "ur", "ve"
+	};
+
+	/** Letters used for non-ASCII words: accented Latin, Greek, and Cyrillic */
+	private static final String[] ALPHABETS = {
+			"áàâäãåçéèêëíìîïñóòôöõúùûüýÿ",
+			"αβγδεζηθικλμνξοπρστυφχψω",
+			"абвгдежзийклмнопрстуфхцчшщыэюя"
+	};
+
+	/** Punctuation that may follow a word */
+	private static final String[] PUNCTUATION = { ",", ".", ";", ":", "!", "?", "'s", "\"", ")" };
+
+	/** Extensions of files that should be indexed */
+	private static final String[] TEXT_EXTENSIONS = { ".txt", ".txt", ".txt", ".text", ".TXT" };
+
+	/** Extensions of files that should be skipped */
+	private static final String[] OTHER_EXTENSIONS = { ".md", ".html", ".csv" };
+
+	/** The settings used to generate the corpus */
+	private final Settings settings;
+
+	/** The random generator; every value is drawn from it in a fixed order */
+	private final Random random;
+
+	/** The distinct words, most frequent first */
+	private final String[] vocabulary;
+
+	/** Cumulative Zipf weights of the vocabulary */
+	private final double[] cumulative;
+
+	/**
+	 * Initializes a generator and builds its vocabulary.
+	 *
+	 * @param settings the settings to generate with
+	 */
+	public CorpusGenerator(Settings settings) {
+		this.settings = settings;
+		this.random = new Random(settings.seed);
+
+		HashSet<String> unique = new HashSet<>();
+		vocabulary = new String[settings.vocabulary];
+		for (int i = 0; i < vocabulary.length; i++) {
+			String word;
+			do {
+				word = random.nextInt(100) < settings.unicode ? unicodeWord() : latinWord();
+			} while (!unique.add(word));
+			vocabulary[i] = word;
+		}
+
+		cumulative = new double[vocabulary.length];
+		double total = 0;
+		for (int i = 0; i < vocabulary.length; i++) {
+			total += 1 / Math.pow(i + 1, settings.zipf);
+			cumulative[i] = total;
+		}
+		for (int i = 0; i < vocabulary.length; i++) {
+			cumulative[i] /= total;
+		}
+	}
+
+	/**
+	 * Returns a word built from common English syllables.
+	 *
+	 * @return a random word
+	 */
+	private String latinWord() {
+		StringBuilder word = new StringBuilder();
+		int syllables = 1 + random.nextInt(4);
+		for (int i = 0; i < syllables; i++) {
+			word.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+		}
+		return word.toString();
+	}
+
+	/**
+	 * Returns a word built from one of the non-ASCII alphabets.
+	 *
+	 * @return a random word
+	 */
+	private String unicodeWord() {
+		String alphabet = ALPHABETS[random.nextInt(ALPHABETS.length)];
+		StringBuilder word = new StringBuilder();
+		int length = 2 + random.nextInt(8);
+		for (int i = 0; i < length; i++) {
+			word.append(alphabet.charAt(random.nextInt(alphabet.length())));
+		}
+		return word.toString();
+	}
+
+	/**
+	 * Draws a word according to the Zipf distribution.
+	 *
+	 * @return a word from the vocabulary
+	 */
+	private String nextWord() {
+		double target = random.nextDouble();
+		int low = 0;
+		int high = cumulative.length - 1;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (cumulative[middle] < target) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return vocabulary[low];
+	}
+
+	/**
+	 * Draws the number of words in a file from a log-normal distribution with
+	 * the configured mean.
+	 *
+	 * @return the number of words in the next file
+	 */
+	private int nextFileSize() {
+		double sigma = settings.sigma;
+		double mu = Math.log(settings.words) - sigma * sigma / 2;
+		return (int) Math.max(1, Math.round(Math.exp(mu + sigma * random.nextGaussian())));
+	}
+
+	/**
+	 * Writes the corpus to the "text" directory and the queries to
+	 * "queries.txt" inside the output directory.
+	 *
+	 * @param output the directory to write to
+	 * @return the number of bytes written to text files
+	 * @throws IOException if an IO error occurs
+	 */
+	public long write(Path output) throws IOException {
+		Path text = output.resolve("text");
+		Files.createDirectories(text);
+
+		long bytes = 0;
+		for (int file = 0; file < settings.files; file++) {
+			Path directory = text;
+			int depth = random.nextInt(settings.depth + 1);
+			for (int level = 0; level < depth; level++) {
+				directory = directory.resolve("d" + random.nextInt(settings.fanout));
+			}
+			Files.createDirectories(directory);
+
+			boolean other = random.nextInt(50) == 0;
+			String[] extensions = other ? OTHER_EXTENSIONS : TEXT_EXTENSIONS;
+			String extension = extensions[random.nextInt(extensions.length)];
+
+			Path path = directory.resolve(String.format("file-%06d%s", file, extension));
+			writeFile(path, nextFileSize());
+			bytes += Files.size(path);
+		}
+
+		writeQueries(output.resolve("queries.txt"));
+		return bytes;
+	}
+
+	/**
+	 * Writes a single text file with mixed case, punctuation, and numbers.
+	 *
+	 * @param path the file to write
+	 * @param words the number of words to write
+	 * @throws IOException if an IO error occurs
+	 */
+	private void writeFile(Path path, int words) throws IOException {
+		try (BufferedWriter writer = Files.newBufferedWriter(path, UTF_8)) {
+			int line = 0;
+			int lineLength = 4 + random.nextInt(12);
+			for (int i = 0; i < words; i++) {
+				String word = nextWord();
+				int style = random.nextInt(20);
+				if (style == 0 || line == 0) {
+					writer.write(Character.toUpperCase(word.charAt(0)));
+					writer.write(word, 1, word.length() - 1);
+				} else {
+					writer.write(word);
+				}
+				if (style == 1) {
+					writer.write(Integer.toString(random.nextInt(2023)));
+				} else if (style < 5) {
+					writer.write(PUNCTUATION[random.nextInt(PUNCTUATION.length)]);
+				}
+
+				if (++line >= lineLength) {
+					writer.write('\n');
+					line = 0;
+					lineLength = 4 + random.nextInt(12);
+				} else {
+					writer.write(random.nextInt(30) == 0 ? "\t" : " ");
+				}
+			}
+			writer.write('\n');
+		}
+	}
+
+	/**
+	 * Writes the query file. Queries mix common and rare words, word prefixes
+	 * for partial search, a few words not in the vocabulary, and blank lines.
+	 *
+	 * @param path the file to write
+	 * @throws IOException if an IO error occurs
+	 */
+	private void writeQueries(Path path) throws IOException {
+		try (BufferedWriter writer = Files.newBufferedWriter(path, UTF_8)) {
+			for (int query = 0; query < settings.queries; query++) {
+				int size = random.nextInt(10) == 0 ? 0 : 1 + random.nextInt(4);
+				for (int i = 0; i < size; i++) {
+					String word;
+					switch (random.nextInt(10)) {
+						case 0 -> word = latinWord() + "qx";
+						case 1, 2 -> word = vocabulary[random.nextInt(vocabulary.length)];
+						case 3, 4 -> {
+							String full = nextWord();
+							word = full.substring(0, Math.max(1, full.length() / 2));
+						}
+						default -> word = nextWord();
+					}
+					if (i > 0) {
+						writer.write(' ');
+					}
+					writer.write(random.nextBoolean() ? word : word.toUpperCase());
+				}
+				writer.write('\n');
+			}
+		}
+	}
+
+	/**
+	 * The settings of a generated corpus.
+	 */
+	public static class Settings {
+		/** Seed of the random generator */
+		public long seed = 272;
+
+		/** Number of files to write */
+		public int files = 100;
+
+		/** Mean number of words per file */
+		public int words = 500;
+
+		/** Standard deviation of the log of the file size */
+		public double sigma = 1;
+
+		/** Number of distinct words */
+		public int vocabulary = 20000;
+
+		/** Exponent of the Zipf distribution of word frequencies */
+		public double zipf = 1;
+
+		/** Maximum directory nesting depth */
+		public int depth = 3;
+
+		/** Number of subdirectories per directory */
+		public int fanout = 4;
+
+		/** Percentage of words using non-ASCII letters */
+		public int unicode = 5;
+
+		/** Number of queries to write */
+		public int queries = 100;
+
+		/**
+		 * Returns a short name that differs whenever any setting differs, for
+		 * naming the directory a corpus is generated into.
+		 *
+		 * @return a name identifying these settings
+		 */
+		public String key() {
+			int hash = Objects.hash(seed, words, sigma, vocabulary, zipf, depth, fanout, unicode, queries);
+			return String.format("%d-%08x", files, hash);
+		}
+
+		/**
+		 * Reads the settings from command-line flags, keeping the defaults for
+		 * any flag that is missing or invalid.
+		 *
+		 * @param flags the parsed command-line flags
+		 * @return these settings
+		 */
+		public Settings parse(ArgumentParser flags) {
+			seed = flags.getInteger("-seed", (int) seed);
+			files = flags.getInteger("-files", files);
+			words = Math.max(1, flags.getInteger("-words", words));
+			sigma = Double.parseDouble(flags.getString("-sigma", Double.toString(sigma)));
+			vocabulary = Math.max(1, flags.getInteger("-vocabulary", vocabulary));
+			zipf = Double.parseDouble(flags.getString("-zipf", Double.toString(zipf)));
+			depth = Math.max(0, flags.getInteger("-depth", depth));
+			fanout = Math.max(1, flags.getInteger("-fanout", fanout));
+			unicode = flags.getInteger("-unicode", unicode);
+			queries = flags.getInteger("-queries", queries);
+			return this;
+		}
+	}
+
+	/**
+	 * Generates a corpus based on the provided command-line arguments.
+	 *
+	 * @param args flag/value pairs, see the class description
+	 * @throws IOException if an IO error occurs
+	 */
+	public static void main(String[] args) throws IOException {
+		ArgumentParser flags = new ArgumentParser(args);
+		Path output = flags.getPath("-out");
+		if (output == null) {
+			System.out.println("Please specify an output directory with -out [Path]");
+			return;
+		}
+
+		Settings settings = new Settings().parse(flags);
+		long bytes = new CorpusGenerator(settings).write(output);
+		System.out.printf("Wrote %d files (%d bytes of text) and %d queries to %s%n",
+				settings.files, bytes, settings.queries, output);
+	}
+}
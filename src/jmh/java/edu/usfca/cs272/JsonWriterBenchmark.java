@@ -0,0 +1,165 @@
+package edu.usfca.cs272;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures serializing the index, counts, and search results. Output that can
+ * be written to a {@link Writer} or channel is discarded, so these benchmarks
+ * measure rendering rather than disk speed; {@link #prettyIndexFile()} writes
+ * to a temporary file since {@link PrettyJsonWriter#writeIndex} requires one.
+ *
+ * @author Matthew Kahane
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class JsonWriterBenchmark {
+
+	/** Number of distinct words */
+	@Param({"1000", "100000"})
+	public int vocabulary;
+
+	/** The index to write */
+	private WordIndex index;
+
+	/** The search results to write */
+	private TreeMap<String, ArrayList<SearchResult>> results;
+
+	/** Channel that discards everything written to it */
+	private WritableByteChannel channel;
+
+	/** Writer that discards everything written to it */
+	private Writer writer;
+
+	/** Temporary file for writers that require a path */
+	private Path file;
+
+	/**
+	 * Builds the index and search results
+	 *
+	 * @throws IOException if unable to create the temporary file
+	 */
+	@Setup
+	public void setup() throws IOException {
+		BenchmarkData data = new BenchmarkData(vocabulary);
+		index = data.nextIndex(100, vocabulary * 10 / 100);
+
+		results = new TreeMap<>();
+		for (TreeSet<String> query : data.nextQueries(100, 2, true)) {
+			results.put(String.join(" ", query), WordSearcher.search(query, index, false));
+		}
+
+		channel = Channels.newChannel(OutputStream.nullOutputStream());
+		writer = Writer.nullWriter();
+		file = Files.createTempFile("index", ".json");
+	}
+
+	/**
+	 * Deletes the temporary file
+	 *
+	 * @throws IOException if unable to delete the file
+	 */
+	@TearDown
+	public void tearDown() throws IOException {
+		Files.deleteIfExists(file);
+	}
+
+	/**
+	 * Writes the index with {@link PrettyJsonWriter#writeIndex}.
+	 *
+	 * @throws IOException if an IO error occurs
+	 */
+	@Benchmark
+	public void prettyIndexFile() throws IOException {
+		PrettyJsonWriter.writeIndex(index, file, 0);
+	}
+
+	/**
+	 * Writes the index with {@link ParallelIndexWriter} in pretty format.
+	 *
+	 * @param writers the number of threads to write with
+	 * @throws IOException if an IO error occurs
+	 */
+	@Benchmark
+	public void prettyIndex(Threads writers) throws IOException {
+		new ParallelIndexWriter(writers.threads).write(index, channel, OutputFormat.PRETTY, 0);
+	}
+
+	/**
+	 * Writes the index with {@link ParallelIndexWriter} in compact format.
+	 *
+	 * @param writers the number of threads to write with
+	 * @throws IOException if an IO error occurs
+	 */
+	@Benchmark
+	public void compactIndex(Threads writers) throws IOException {
+		new ParallelIndexWriter(writers.threads).write(index, channel, OutputFormat.COMPACT, 0);
+	}
+
+	/**
+	 * Writes the word counts in pretty format.
+	 *
+	 * @throws IOException if an IO error occurs
+	 */
+	@Benchmark
+	public void prettyCounts() throws IOException {
+		OutputFormat.PRETTY.writeCounts(index.getWordCounts(), writer);
+	}
+
+	/**
+	 * Writes the search results in pretty format.
+	 *
+	 * @throws IOException if an IO error occurs
+	 */
+	@Benchmark
+	public void prettyResults() throws IOException {
+		OutputFormat.PRETTY.writeResults(results, writer);
+	}
+
+	/**
+	 * Writes the search results in compact format.
+	 *
+	 * @throws IOException if an IO error occurs
+	 */
+	@Benchmark
+	public void compactResults() throws IOException {
+		OutputFormat.COMPACT.writeResults(results, writer);
+	}
+
+	/**
+	 * The number of threads used by {@link ParallelIndexWriter}, kept separate
+	 * so only the index benchmarks are repeated for each value.
+	 */
+	@State(Scope.Benchmark)
+	public static class Threads {
+		/** Number of threads used by {@link ParallelIndexWriter} */
+		@Param({"1", "4"})
+		public int threads;
+	}
+}
@@ -0,0 +1,167 @@
+package edu.usfca.cs272;
+
+/**
+ * Records latencies in log-linear buckets, in the style of HdrHistogram. Every
+ * power of two is split into the same number of linear sub-buckets, so any
+ * recorded value is reported within a fixed relative error (about 0.1%)
+ * regardless of its magnitude, while memory use stays constant.
+ *
+ * Warning: This class is not thread-safe. Give each thread its own histogram
+ * and {@link #add(LatencyHistogram)} them together afterwards.
+ *
+ * @author Matthew Kahane
+ */
+public class LatencyHistogram {
+
+	/** Number of bits of each value kept exactly */
+	private static final int PRECISION = 11;
+
+	/** Number of sub-buckets per power of two (for the smallest values) */
+	private static final int SUB_BUCKETS = 1 << PRECISION;
+
+	/** Number of sub-buckets per power of two for larger values */
+	private static final int HALF = SUB_BUCKETS / 2;
+
+	/** Counts of recorded values per bucket */
+	private final long[] counts;
+
+	/** Number of recorded values */
+	private long total;
+
+	/** Sum of recorded values */
+	private double sum;
+
+	/** Smallest recorded value */
+	private long min;
+
+	/** Largest recorded value */
+	private long max;
+
+	/**
+	 * Initializes an empty histogram
+	 */
+	public LatencyHistogram() {
+		counts = new long[SUB_BUCKETS + (64 - PRECISION) * HALF];
+		min = Long.MAX_VALUE;
+		max = 0;
+	}
+
+	/**
+	 * Returns the bucket a value is counted in.
+	 *
+	 * @param value the non-negative value
+	 * @return the bucket index
+	 */
+	private static int bucket(long value) {
+		if (value < SUB_BUCKETS) {
+			return (int) value;
+		}
+		int shift = (63 - Long.numberOfLeadingZeros(value)) - (PRECISION - 1);
+		long top = value >>> shift;
+		return SUB_BUCKETS + (shift - 1) * HALF + (int) (top - HALF);
+	}
+
+	/**
+	 * Returns the largest value counted in a bucket.
+	 *
+	 * @param bucket the bucket index
+	 * @return the largest value counted in that bucket
+	 */
+	private static long highest(int bucket) {
+		if (bucket < SUB_BUCKETS) {
+			return bucket;
+		}
+		int offset = bucket - SUB_BUCKETS;
+		int shift = offset / HALF + 1;
+		long top = offset % HALF + HALF;
+		return (top << shift) + (1L << shift) - 1;
+	}
+
+	/**
+	 * Records a value. Negative values are recorded as zero.
+	 *
+	 * @param value the value to record
+	 */
+	public void record(long value) {
+		value = Math.max(0, value);
+		counts[bucket(value)]++;
+		total++;
+		sum += value;
+		min = Math.min(min, value);
+		max = Math.max(max, value);
+	}
+
+	/**
+	 * Adds every value recorded by another histogram to this one.
+	 *
+	 * @param other the histogram to add
+	 */
+	public void add(LatencyHistogram other) {
+		for (int i = 0; i < counts.length; i++) {
+			counts[i] += other.counts[i];
+		}
+		total += other.total;
+		sum += other.sum;
+		min = Math.min(min, other.min);
+		max = Math.max(max, other.max);
+	}
+
+	/**
+	 * Returns the number of recorded values.
+	 *
+	 * @return the number of recorded values
+	 */
+	public long count() {
+		return total;
+	}
+
+	/**
+	 * Returns the mean of the recorded values.
+	 *
+	 * @return the mean, or 0 if nothing was recorded
+	 */
+	public double mean() {
+		return total == 0 ? 0 : sum / total;
+	}
+
+	/**
+	 * Returns the smallest recorded value.
+	 *
+	 * @return the smallest value, or 0 if nothing was recorded
+	 */
+	public long min() {
+		return total == 0 ? 0 : min;
+	}
+
+	/**
+	 * Returns the largest recorded value.
+	 *
+	 * @return the largest value, or 0 if nothing was recorded
+	 */
+	public long max() {
+		return max;
+	}
+
+	/**
+	 * Returns the value at or below which the given percentage of recorded
+	 * values fall, within the precision of the histogram.
+	 *
+	 * @param percentile the percentile, from 0 to 100
+	 * @return the value at that percentile, or 0 if nothing was recorded
+	 */
+	public long percentile(double percentile) {
+		if (total == 0) {
+			return 0;
+		}
+
+		long target = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+		long seen = 0;
+		for (int i = 0; i < counts.length; i++) {
+			seen += counts[i];
+			if (seen >= target) {
+				return Math.min(highest(i), max);
+			}
+		}
+		return max;
+	}
+}
@@ -0,0 +1,293 @@
+package edu.usfca.cs272;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static opennlp.tools.stemmer.snowball.SnowballStemmer.ALGORITHM.ENGLISH;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+import opennlp.tools.stemmer.Stemmer;
+import opennlp.tools.stemmer.snowball.SnowballStemmer;
+
+/**
+ * Replays a query log against an in-process {@link WordSearcher} and reports
+ * the latency distribution of each query (stemming and searching) separately
+ * for exact and partial search.
+ *
+ * With {@code -rate}, queries are issued on a fixed schedule (open loop) and
+ * each latency is measured from when the query was scheduled to start, so a
+ * backlog caused by slow queries shows up in the results instead of being
+ * hidden. Without it, each thread issues its next query as soon as the last
+ * one finishes (closed loop, fixed concurrency).
+ *
+ * With {@code -live}, a background thread repeatedly rebuilds a
+ * {@link VersionedIndex} from scratch, publishing one file at a time, while the
+ * queries are replayed. Each query searches the snapshot that was current when
+ * it started, which shows the cost of searching while the index is written.
+ *
+ * Usage: {@code LoadTester -text path -query log [-mode both|exact|partial]
+ * [-threads 1] [-rate queriesPerSecond] [-duration 10] [-warmup 2] [-live]
+ * [-report load.json]}
+ *
+ * @author Matthew Kahane
+ */
+public class LoadTester {
+
+	/** Supplies the index each query searches */
+	private final Supplier<? extends SearchableIndex> index;
+
+	/** The lines of the query log, replayed in order and repeated as needed */
+	private final List<String> queries;
+
+	/** The number of threads issuing queries */
+	private final int threads;
+
+	/** The target rate in queries per second, or 0 for a closed loop */
+	private final double rate;
+
+	/**
+	 * Initializes a load tester.
+	 *
+	 * @param index supplies the index to search, called once per query
+	 * @param queries the lines of the query log
+	 * @param threads the number of threads issuing queries
+	 * @param rate the target rate in queries per second, or 0 for a closed loop
+	 */
+	public LoadTester(Supplier<? extends SearchableIndex> index, List<String> queries, int threads, double rate) {
+		if (queries.isEmpty()) {
+			throw new IllegalArgumentException("The query log has no queries");
+		}
+		this.index = index;
+		this.queries = queries;
+		this.threads = Math.max(1, threads);
+		this.rate = Math.max(0, rate);
+	}
+
+	/**
+	 * Replays queries for the given amount of time and returns their latencies.
+	 *
+	 * @param exact whether to run exact or partial searches
+	 * @param nanos how long to replay queries for, in nanoseconds
+	 * @return the latencies of every query started, in nanoseconds
+	 * @throws InterruptedException if interrupted while waiting for the threads
+	 */
+	public LatencyHistogram run(boolean exact, long nanos) throws InterruptedException {
+		AtomicLong tickets = new AtomicLong();
+		long start = System.nanoTime();
+		long end = start + nanos;
+		long period = rate > 0 ? (long) (1e9 / rate) : 0;
+
+		ArrayList<Thread> workers = new ArrayList<>();
+		ArrayList<LatencyHistogram> histograms = new ArrayList<>();
+
+		for (int i = 0; i < threads; i++) {
+			LatencyHistogram histogram = new LatencyHistogram();
+			histograms.add(histogram);
+
+			Thread worker = new Thread(() -> {
+				Stemmer stemmer = new SnowballStemmer(ENGLISH);
+				while (true) {
+					long ticket = tickets.getAndIncrement();
+					long scheduled;
+
+					if (period > 0) {
+						scheduled = start + ticket * period;
+						if (scheduled >= end) {
+							break;
+						}
+						long wait;
+						while ((wait = scheduled - System.nanoTime()) > 0) {
+							LockSupport.parkNanos(wait);
+						}
+					} else {
+						scheduled = System.nanoTime();
+						if (scheduled >= end) {
+							break;
+						}
+					}
+
+					String line = queries.get((int) (ticket % queries.size()));
+					var stems = WordCleaner.uniqueStems(line, stemmer);
+					if (!stems.isEmpty()) {
+						WordSearcher.search(stems, index.get(), exact);
+					}
+					histogram.record(System.nanoTime() - scheduled);
+				}
+			}, "load-" + i);
+
+			workers.add(worker);
+			worker.start();
+		}
+
+		for (Thread worker : workers) {
+			worker.join();
+		}
+
+		LatencyHistogram merged = new LatencyHistogram();
+		histograms.forEach(merged::add);
+		return merged;
+	}
+
+	/**
+	 * Summarizes a histogram in microseconds.
+	 *
+	 * @param histogram the latencies in nanoseconds
+	 * @param seconds how long the queries were replayed for
+	 * @return the number of queries, throughput, and latency percentiles
+	 */
+	public static LinkedHashMap<String, Number> summarize(LatencyHistogram histogram, double seconds) {
+		LinkedHashMap<String, Number> summary = new LinkedHashMap<>();
+		summary.put("queries", histogram.count());
+		summary.put("queriesPerSecond", histogram.count() / seconds);
+		summary.put("meanMicros", histogram.mean() / 1e3);
+		summary.put("p50Micros", histogram.percentile(50) / 1e3);
+		summary.put("p90Micros", histogram.percentile(90) / 1e3);
+		summary.put("p99Micros", histogram.percentile(99) / 1e3);
+		summary.put("p999Micros", histogram.percentile(99.9) / 1e3);
+		summary.put("maxMicros", histogram.max() / 1e3);
+		return summary;
+	}
+
+	/**
+	 * Builds the index and replays the query log based on the provided
+	 * command-line arguments.
+	 *
+	 * @param args flag/value pairs, see the class description
+	 * @throws IOException if an IO error occurs
+	 * @throws InterruptedException if interrupted while replaying queries
+	 */
+	public static void main(String[] args) throws IOException, InterruptedException {
+		ArgumentParser flags = new ArgumentParser(args);
+		Path textPath = flags.getPath("-text");
+		Path queryPath = flags.getPath("-query");
+		if (textPath == null || queryPath == null) {
+			System.out.println("Please specify the text with -text [Path] and the query log with -query [Path]");
+			return;
+		}
+
+		String mode = flags.getString("-mode", "both");
+		int threads = flags.getInteger("-threads", 1);
+		double rate = Double.parseDouble(flags.getString("-rate", "0"));
+		long duration = TimeUnit.SECONDS.toNanos(flags.getInteger("-duration", 10));
+		long warmup = TimeUnit.SECONDS.toNanos(flags.getInteger("-warmup", 2));
+		Path reportPath = flags.getPath("-report", Path.of("load.json"));
+
+		List<String> queries = Files.readAllLines(queryPath, UTF_8);
+		LoadTester tester;
+		Rebuilder rebuilder = null;
+
+		if (flags.hasFlag("-live")) {
+			ArrayList<Path> files = new ArrayList<>();
+			FileFinder.findAndInput(textPath, files::add, Files.isDirectory(textPath));
+			rebuilder = new Rebuilder(files);
+			rebuilder.start();
+			tester = new LoadTester(rebuilder::snapshot, queries, threads, rate);
+		} else {
+			WordIndex index = new WordIndex();
+			FileFinder.findAndInput(textPath, index, Files.isDirectory(textPath));
+			tester = new LoadTester(() -> index, queries, threads, rate);
+		}
+
+		LinkedHashMap<String, LinkedHashMap<String, Number>> report = new LinkedHashMap<>();
+		for (String current : List.of("exact", "partial")) {
+			if (!mode.equals("both") && !mode.equals(current)) {
+				continue;
+			}
+
+			boolean exact = current.equals("exact");
+			tester.run(exact, warmup);
+			LatencyHistogram histogram = tester.run(exact, duration);
+
+			LinkedHashMap<String, Number> summary = summarize(histogram, duration / 1e9);
+			report.put(current, summary);
+			System.out.printf("%s: %d queries, %.1f per second, p50 %.1f us, p99 %.1f us, p99.9 %.1f us, max %.1f us%n",
+					current, histogram.count(), summary.get("queriesPerSecond").doubleValue(),
+					summary.get("p50Micros").doubleValue(), summary.get("p99Micros").doubleValue(),
+					summary.get("p999Micros").doubleValue(), summary.get("maxMicros").doubleValue());
+		}
+
+		if (rebuilder != null) {
+			rebuilder.interrupt();
+			rebuilder.join();
+			System.out.printf("%d snapshots published while searching%n", rebuilder.published.get());
+		}
+
+		try (BufferedWriter writer = Files.newBufferedWriter(reportPath, UTF_8)) {
+			writer.write("{\n");
+			var iterator = report.entrySet().iterator();
+			while (iterator.hasNext()) {
+				var entry = iterator.next();
+				PrettyJsonWriter.writeQuote(entry.getKey(), writer, 1);
+				writer.write(": ");
+				PrettyJsonWriter.writeObject(entry.getValue(), writer, 1);
+				writer.write(iterator.hasNext() ? ",\n" : "\n");
+			}
+			writer.write("}\n");
+		}
+	}
+
+	/**
+	 * Rebuilds a versioned index from scratch over and over, publishing one
+	 * file at a time, until interrupted.
+	 */
+	private static class Rebuilder extends Thread {
+		/** The files to index */
+		private final List<Path> files;
+
+		/** The index currently being rebuilt */
+		private volatile VersionedIndex current;
+
+		/** The number of snapshots published so far */
+		private final AtomicLong published;
+
+		/**
+		 * Initializes a rebuilder
+		 *
+		 * @param files the files to index
+		 */
+		public Rebuilder(List<Path> files) {
+			super("rebuild");
+			this.files = files;
+			this.current = new VersionedIndex();
+			this.published = new AtomicLong();
+			setDaemon(true);
+		}
+
+		/**
+		 * Returns the current snapshot of the index being rebuilt
+		 *
+		 * @return the current snapshot
+		 */
+		public VersionedIndex.Snapshot snapshot() {
+			return current.snapshot();
+		}
+
+		@Override
+		public void run() {
+			try {
+				while (!isInterrupted()) {
+					VersionedIndex next = new VersionedIndex();
+					current = next;
+					for (Path file : files) {
+						if (isInterrupted()) {
+							return;
+						}
+						next.inputFile(file);
+						published.incrementAndGet();
+					}
+				}
+			} catch (IOException e) {
+				System.out.println("Unable to rebuild the index: " + e.getMessage());
+			}
+		}
+	}
+}
@@ -0,0 +1,164 @@
+package edu.usfca.cs272;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * Runs {@link Driver} end to end over generated corpora of increasing size and
+ * records the wall time, peak heap use, and output sizes of each run. Every
+ * run happens in a fresh JVM so that runs do not share heap or JIT state.
+ *
+ * Usage: {@code MacroBenchmark -work dir [-scales 100,1000,10000]
+ * [-results macro.json] [-xmx 4g] [-exact]} plus any {@link CorpusGenerator}
+ * flag except {@code -files} and {@code -out}. Corpora are generated into the
+ * work directory on first use and reused by later runs with the same settings.
+ *
+ * @author Matthew Kahane
+ */
+public class MacroBenchmark {
+
+	/** Prefix of the line a child JVM prints to report its peak heap use */
+	private static final String PEAK = "peak heap: ";
+
+	/**
+	 * Runs the benchmark based on the provided command-line arguments.
+	 *
+	 * @param args flag/value pairs, see the class description
+	 * @throws IOException if an IO error occurs
+	 * @throws InterruptedException if interrupted while waiting for a run
+	 */
+	public static void main(String[] args) throws IOException, InterruptedException {
+		if (args.length > 0 && args[0].equals("-run")) {
+			run(List.of(args).subList(1, args.length).toArray(String[]::new));
+			return;
+		}
+
+		ArgumentParser flags = new ArgumentParser(args);
+		Path work = flags.getPath("-work");
+		if (work == null) {
+			System.out.println("Please specify a work directory with -work [Path]");
+			return;
+		}
+
+		Path resultsPath = flags.getPath("-results", work.resolve("macro.json"));
+		String heap = flags.getString("-xmx", "4g");
+		ArrayList<LinkedHashMap<String, Number>> rows = new ArrayList<>();
+
+		for (String scale : flags.getString("-scales", "100,1000,10000").split(",")) {
+			CorpusGenerator.Settings settings = new CorpusGenerator.Settings().parse(flags);
+			settings.files = Integer.parseInt(scale.strip());
+
+			Path corpus = work.resolve("corpus-" + settings.key());
+			if (!Files.isDirectory(corpus)) {
+				new CorpusGenerator(settings).write(corpus);
+			}
+
+			Path output = work.resolve("output-" + settings.files);
+			Files.createDirectories(output);
+
+			List<String> command = new ArrayList<>(List.of(
+					Path.of(System.getProperty("java.home"), "bin", "java").toString(),
+					"-Xmx" + heap,
+					"-cp", System.getProperty("java.class.path"),
+					MacroBenchmark.class.getName(), "-run",
+					"-text", corpus.resolve("text").toString(),
+					"-index", output.resolve("index.json").toString(),
+					"-counts", output.resolve("counts.json").toString(),
+					"-query", corpus.resolve("queries.txt").toString(),
+					"-results", output.resolve("results.json").toString(),
+					"-stats", output.resolve("stats.json").toString()));
+			if (flags.hasFlag("-exact")) {
+				command.add("-exact");
+			}
+
+			long start = System.nanoTime();
+			Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+
+			long peak = -1;
+			try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+				String line;
+				while ((line = reader.readLine()) != null) {
+					if (line.startsWith(PEAK)) {
+						peak = Long.parseLong(line.substring(PEAK.length()));
+					} else {
+						System.out.println(line);
+					}
+				}
+			}
+
+			int exit = process.waitFor();
+			double seconds = (System.nanoTime() - start) / 1e9;
+
+			LinkedHashMap<String, Number> row = new LinkedHashMap<>();
+			row.put("files", settings.files);
+			row.put("textBytes", size(corpus.resolve("text")));
+			row.put("exitCode", exit);
+			row.put("wallSeconds", seconds);
+			row.put("peakHeapBytes", peak);
+			row.put("indexBytes", size(output.resolve("index.json")));
+			row.put("countsBytes", size(output.resolve("counts.json")));
+			row.put("resultsBytes", size(output.resolve("results.json")));
+			rows.add(row);
+
+			System.out.printf("%d files: %.3f seconds, %d bytes peak heap%n", settings.files, seconds, peak);
+		}
+
+		PrettyJsonWriter.writeNestedObjects(rows, resultsPath);
+		System.out.println("Results written to " + resultsPath);
+	}
+
+	/**
+	 * Runs {@link Driver} in this JVM and prints the peak heap use afterwards.
+	 * The peak is the sum of the peak use of each heap memory pool, which may
+	 * slightly overstate the true peak since pools can peak at different times.
+	 *
+	 * @param args the arguments to pass to {@link Driver}
+	 */
+	private static void run(String[] args) {
+		List<MemoryPoolMXBean> pools = ManagementFactory.getMemoryPoolMXBeans();
+		pools.forEach(MemoryPoolMXBean::resetPeakUsage);
+
+		Driver.main(args);
+
+		long peak = 0;
+		for (MemoryPoolMXBean pool : pools) {
+			if (pool.getType() == MemoryType.HEAP) {
+				peak += pool.getPeakUsage().getUsed();
+			}
+		}
+		System.out.println(PEAK + peak);
+	}
+
+	/**
+	 * Returns the total size of a file or of the regular files in a directory.
+	 *
+	 * @param path the file or directory
+	 * @return the size in bytes, or -1 if it does not exist
+	 * @throws IOException if an IO error occurs
+	 */
+	private static long size(Path path) throws IOException {
+		if (!Files.exists(path)) {
+			return -1;
+		}
+		if (!Files.isDirectory(path)) {
+			return Files.size(path);
+		}
+
+		long total = 0;
+		try (var files = Files.walk(path)) {
+			for (Path file : (Iterable<Path>) files.filter(Files::isRegularFile)::iterator) {
+				total += Files.size(file);
+			}
+		}
+		return total;
+	}
+}
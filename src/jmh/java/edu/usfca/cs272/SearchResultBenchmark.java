@@ -0,0 +1,92 @@
+package edu.usfca.cs272;
+
+import java.io.CharArrayWriter;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the cost of serializing a single {@link SearchResult}, comparing
+ * the formatted map path against the direct writer path.
+ *
+ * @author Matthew Kahane
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SearchResultBenchmark {
+
+	/** Number of distinct results cycled through */
+	private static final int RESULTS = 1024;
+
+	/** Results to serialize */
+	private SearchResult[] results;
+
+	/** Writer reset before every result */
+	private CharArrayWriter writer;
+
+	/** Formatter reused by the direct path */
+	private FixedPointFormatter formatter;
+
+	/** Index of the next result to serialize */
+	private int next;
+
+	/**
+	 * Creates results with realistic counts, scores, and locations
+	 */
+	@Setup
+	public void setup() {
+		Random random = new Random(272);
+		results = new SearchResult[RESULTS];
+		for (int i = 0; i < RESULTS; i++) {
+			int words = 1 + random.nextInt(50000);
+			int count = 1 + random.nextInt(words);
+			results[i] = new SearchResult(count, (double) count / words,
+					"input/text/simple/directory-" + i + "/file-" + random.nextInt(1000) + ".txt");
+		}
+		writer = new CharArrayWriter(256);
+		formatter = new FixedPointFormatter(8);
+	}
+
+	/**
+	 * Serializes through {@link SearchResult#format()} and
+	 * {@link PrettyJsonWriter#writeStringObject}.
+	 *
+	 * @return the number of chars written
+	 * @throws IOException if an IO error occurs
+	 */
+	@Benchmark
+	public int formatted() throws IOException {
+		writer.reset();
+		PrettyJsonWriter.writeStringObject(results[next++ & (RESULTS - 1)].format(), writer, 2);
+		return writer.size();
+	}
+
+	/**
+	 * Serializes through
+	 * {@link PrettyJsonWriter#writeSearchResult(SearchResult, java.io.Writer, int, FixedPointFormatter)}.
+	 *
+	 * @return the number of chars written
+	 * @throws IOException if an IO error occurs
+	 */
+	@Benchmark
+	public int direct() throws IOException {
+		writer.reset();
+		PrettyJsonWriter.writeSearchResult(results[next++ & (RESULTS - 1)], writer, 2, formatter);
+		return writer.size();
+	}
+}
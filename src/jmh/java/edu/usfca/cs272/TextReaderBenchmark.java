@@ -0,0 +1,156 @@
+package edu.usfca.cs272;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static opennlp.tools.stemmer.snowball.SnowballStemmer.ALGORITHM.ENGLISH;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.CharBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import opennlp.tools.stemmer.Stemmer;
+import opennlp.tools.stemmer.snowball.SnowballStemmer;
+
+/**
+ * Compares reading a text file with {@link Files#readAllLines(Path)}, which
+ * creates a string per line, against {@link MappedTextReader}, which decodes
+ * blocks of lines into a reused buffer. Each is measured reading only, and
+ * reading and stemming every word. The file is in the page cache, so this
+ * measures decoding and copying rather than the disk.
+ *
+ * @author Matthew Kahane
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class TextReaderBenchmark {
+
+	/** Size of the file in kilobytes */
+	@Param({"64", "1024", "16384"})
+	public int kilobytes;
+
+	/** The generated file */
+	private Path file;
+
+	/**
+	 * Writes a file of roughly the given size with lines of 4 to 20 words
+	 *
+	 * @throws IOException if unable to write the file
+	 */
+	@Setup(Level.Trial)
+	public void setup() throws IOException {
+		BenchmarkData data = new BenchmarkData(10000);
+		file = Files.createTempFile("reader-benchmark", ".txt");
+
+		long bytes = kilobytes * 1024L;
+		try (BufferedWriter writer = Files.newBufferedWriter(file, UTF_8)) {
+			long written = 0;
+			int length = 0;
+			while (written < bytes) {
+				String line = data.nextLine(4 + length++ % 17);
+				writer.write(line);
+				writer.write('\n');
+				written += line.length() + 1;
+			}
+		}
+	}
+
+	/**
+	 * Deletes the generated file
+	 *
+	 * @throws IOException if unable to delete the file
+	 */
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		Files.deleteIfExists(file);
+	}
+
+	/**
+	 * Reads every line into a string.
+	 *
+	 * @return the number of characters read
+	 * @throws IOException if unable to read the file
+	 */
+	@Benchmark
+	public long readAllLines() throws IOException {
+		long total = 0;
+		for (String line : Files.readAllLines(file, UTF_8)) {
+			total += line.length();
+		}
+		return total;
+	}
+
+	/**
+	 * Reads every block of lines into the reused buffer.
+	 *
+	 * @return the number of characters read
+	 * @throws IOException if unable to read the file
+	 */
+	@Benchmark
+	public long readMapped() throws IOException {
+		long total = 0;
+		try (MappedTextReader reader = new MappedTextReader(file)) {
+			CharBuffer lines;
+			while ((lines = reader.nextLines()) != null) {
+				total += lines.remaining();
+			}
+		}
+		return total;
+	}
+
+	/**
+	 * Reads every line into a string, then cleans and stems it.
+	 *
+	 * @return the stems of the file
+	 * @throws IOException if unable to read the file
+	 */
+	@Benchmark
+	public ArrayList<String> stemAllLines() throws IOException {
+		Stemmer stemmer = new SnowballStemmer(ENGLISH);
+		ArrayList<String> stems = new ArrayList<>();
+		for (String line : Files.readAllLines(file, UTF_8)) {
+			WordCleaner.addStems(line, stemmer, stems);
+		}
+		return stems;
+	}
+
+	/**
+	 * Reads every block of lines into the reused buffer, then cleans and stems
+	 * it, as {@link WordCleaner#listStems(Path)} does.
+	 *
+	 * @return the stems of the file
+	 * @throws IOException if unable to read the file
+	 */
+	@Benchmark
+	public ArrayList<String> stemMapped() throws IOException {
+		Stemmer stemmer = new SnowballStemmer(ENGLISH);
+		ArrayList<String> stems = new ArrayList<>();
+		try (MappedTextReader reader = new MappedTextReader(file)) {
+			CharBuffer lines;
+			while ((lines = reader.nextLines()) != null) {
+				WordCleaner.addStems(lines, stemmer, stems);
+			}
+		}
+		return stems;
+	}
+}
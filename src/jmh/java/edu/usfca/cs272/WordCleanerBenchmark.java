@@ -0,0 +1,112 @@
+package edu.usfca.cs272;
+
+import static opennlp.tools.stemmer.snowball.SnowballStemmer.ALGORITHM.ENGLISH;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import opennlp.tools.stemmer.Stemmer;
+import opennlp.tools.stemmer.snowball.SnowballStemmer;
+
+/**
+ * Measures the throughput of cleaning, splitting, and stemming lines of text.
+ *
+ * @author Matthew Kahane
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WordCleanerBenchmark {
+
+	/** Number of distinct lines cycled through */
+	private static final int LINES = 256;
+
+	/** Number of words in each line */
+	@Param({"10", "100", "1000"})
+	public int words;
+
+	/** Raw lines of text */
+	private String[] lines;
+
+	/** Lines that have already been cleaned and split */
+	private String[][] split;
+
+	/** Stemmer reused across invocations */
+	private Stemmer stemmer;
+
+	/** Index of the next line to process */
+	private int next;
+
+	/**
+	 * Generates the lines
+	 */
+	@Setup
+	public void setup() {
+		BenchmarkData data = new BenchmarkData(10000);
+		lines = new String[LINES];
+		split = new String[LINES][];
+		for (int i = 0; i < LINES; i++) {
+			lines[i] = data.nextLine(words);
+			split[i] = WordCleaner.parse(lines[i]);
+		}
+		stemmer = new SnowballStemmer(ENGLISH);
+	}
+
+	/**
+	 * Cleans a line.
+	 *
+	 * @return the cleaned line
+	 */
+	@Benchmark
+	public String clean() {
+		return WordCleaner.clean(lines[next++ & (LINES - 1)]);
+	}
+
+	/**
+	 * Cleans and splits a line.
+	 *
+	 * @return the words in the line
+	 */
+	@Benchmark
+	public String[] parse() {
+		return WordCleaner.parse(lines[next++ & (LINES - 1)]);
+	}
+
+	/**
+	 * Stems the words of an already split line.
+	 *
+	 * @param blackhole consumes the stems
+	 */
+	@Benchmark
+	public void stem(Blackhole blackhole) {
+		for (String word : split[next++ & (LINES - 1)]) {
+			blackhole.consume(stemmer.stem(word));
+		}
+	}
+
+	/**
+	 * Cleans, splits, and stems a line.
+	 *
+	 * @return the stems in the line
+	 */
+	@Benchmark
+	public ArrayList<String> listStems() {
+		return WordCleaner.listStems(lines[next++ & (LINES - 1)], stemmer);
+	}
+}
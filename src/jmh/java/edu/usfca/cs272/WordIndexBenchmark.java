@@ -0,0 +1,158 @@
+package edu.usfca.cs272;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the cost of adding words to a {@link WordIndex}, one position at a
+ * time and in bulk per word and location, and to a {@link HashWordIndex} with
+ * and without the sort it defers until the index is first written. Each
+ * invocation builds a new index from {@link #TOKENS} words, and results are
+ * reported per word added.
+ *
+ * @author Matthew Kahane
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class WordIndexBenchmark {
+
+	/** Number of words added per invocation */
+	public static final int TOKENS = 100000;
+
+	/** Number of files the words are spread across */
+	private static final int FILES = 10;
+
+	/** Number of distinct words */
+	@Param({"1000", "10000", "100000"})
+	public int vocabulary;
+
+	/** Words in the order they are added */
+	private String[] words;
+
+	/** Locations of the files */
+	private String[] locations;
+
+	/** The positions of each word in each file, for bulk adds */
+	private ArrayList<Map<String, ArrayList<Integer>>> grouped;
+
+	/**
+	 * Generates the words and groups them for bulk adds
+	 */
+	@Setup
+	public void setup() {
+		BenchmarkData data = new BenchmarkData(vocabulary);
+		words = data.nextWords(TOKENS);
+
+		locations = new String[FILES];
+		grouped = new ArrayList<>();
+		for (int file = 0; file < FILES; file++) {
+			locations[file] = Path.of("input", "text", "file-" + file + ".txt").toString();
+			grouped.add(new LinkedHashMap<>());
+		}
+
+		for (int i = 0; i < TOKENS; i++) {
+			grouped.get(file(i)).computeIfAbsent(words[i], word -> new ArrayList<>()).add(position(i));
+		}
+	}
+
+	/**
+	 * Returns the file the i-th word belongs to.
+	 *
+	 * @param i the index of the word
+	 * @return the file number
+	 */
+	private static int file(int i) {
+		return i / (TOKENS / FILES);
+	}
+
+	/**
+	 * Returns the position of the i-th word within its file.
+	 *
+	 * @param i the index of the word
+	 * @return the position, starting at 1
+	 */
+	private static int position(int i) {
+		return i % (TOKENS / FILES) + 1;
+	}
+
+	/**
+	 * Adds every word one position at a time.
+	 *
+	 * @return the populated index
+	 */
+	@Benchmark
+	@OperationsPerInvocation(TOKENS)
+	public WordIndex addSingle() {
+		WordIndex index = new WordIndex();
+		for (int i = 0; i < TOKENS; i++) {
+			index.add(words[i], locations[file(i)], position(i));
+		}
+		return index;
+	}
+
+	/**
+	 * Adds every word with all of its positions in a file at once.
+	 *
+	 * @return the populated index
+	 */
+	@Benchmark
+	@OperationsPerInvocation(TOKENS)
+	public WordIndex addBulk() {
+		WordIndex index = new WordIndex();
+		for (int file = 0; file < FILES; file++) {
+			for (var entry : grouped.get(file).entrySet()) {
+				index.add(entry.getKey(), locations[file], entry.getValue());
+			}
+		}
+		return index;
+	}
+
+	/**
+	 * Adds every word one position at a time to a hash-based index.
+	 *
+	 * @return the populated index
+	 */
+	@Benchmark
+	@OperationsPerInvocation(TOKENS)
+	public HashWordIndex addHash() {
+		HashWordIndex index = new HashWordIndex();
+		for (int i = 0; i < TOKENS; i++) {
+			index.add(words[i], locations[file(i)], position(i));
+		}
+		return index;
+	}
+
+	/**
+	 * Adds every word one position at a time to a hash-based index, then sorts
+	 * it as writing or partial search would.
+	 *
+	 * @return the populated index
+	 */
+	@Benchmark
+	@OperationsPerInvocation(TOKENS)
+	public HashWordIndex addHashSorted() {
+		HashWordIndex index = addHash();
+		index.view();
+		return index;
+	}
+}
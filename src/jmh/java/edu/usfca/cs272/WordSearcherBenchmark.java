@@ -0,0 +1,107 @@
+package edu.usfca.cs272;
+
+import java.util.ArrayList;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the latency of exact and partial searches for a single query at
+ * several vocabulary sizes, against a positional {@link WordIndex} and against
+ * a {@link FrequencyIndex} with the same words.
+ *
+ * @author Matthew Kahane
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class WordSearcherBenchmark {
+
+	/** Number of distinct queries cycled through */
+	private static final int QUERIES = 256;
+
+	/** Number of distinct words */
+	@Param({"1000", "10000", "100000"})
+	public int vocabulary;
+
+	/** Number of words per query */
+	@Param({"1", "3"})
+	public int size;
+
+	/** Number of files in the index */
+	@Param({"100"})
+	public int files;
+
+	/** The kind of index searched, either {@code positional} or {@code frequency} */
+	@Param({"positional", "frequency"})
+	public String kind;
+
+	/** The index to search */
+	private SearchableIndex index;
+
+	/** Queries of whole words */
+	private ArrayList<TreeSet<String>> exactQueries;
+
+	/** Queries of word prefixes */
+	private ArrayList<TreeSet<String>> partialQueries;
+
+	/** Index of the next query to search */
+	private int next;
+
+	/**
+	 * Builds the index and queries
+	 */
+	@Setup
+	public void setup() {
+		BenchmarkData data = new BenchmarkData(vocabulary);
+		WordIndex positional = data.nextIndex(files, vocabulary * 10 / files);
+		index = positional;
+
+		if (kind.equals("frequency")) {
+			FrequencyIndex frequencies = new FrequencyIndex();
+			positional.getWordCounts().forEach(frequencies::addWordCount);
+			for (String word : positional.view()) {
+				for (String location : positional.view(word)) {
+					frequencies.add(word, location, positional.size(word, location));
+				}
+			}
+			index = frequencies;
+		}
+		exactQueries = data.nextQueries(QUERIES, size, false);
+		partialQueries = data.nextQueries(QUERIES, size, true);
+	}
+
+	/**
+	 * Searches for whole words.
+	 *
+	 * @return the search results
+	 */
+	@Benchmark
+	public ArrayList<SearchResult> exact() {
+		return WordSearcher.search(exactQueries.get(next++ & (QUERIES - 1)), index, true);
+	}
+
+	/**
+	 * Searches for words starting with the query prefixes.
+	 *
+	 * @return the search results
+	 */
+	@Benchmark
+	public ArrayList<SearchResult> partial() {
+		return WordSearcher.search(partialQueries.get(next++ & (QUERIES - 1)), index, false);
+	}
+}
@@ -0,0 +1,227 @@
+package edu.usfca.cs272;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Outputs the counts, index, and search results as compact JSON with no
+ * whitespace between elements, or as newline-delimited JSON where every
+ * top-level member is written as its own single-member object on its own line.
+ * Unlike {@link PrettyJsonWriter}, keys and Strings are escaped so every line
+ * can be read by a standard streaming JSON parser.
+ *
+ * Warning: This class is not thread-safe. If multiple threads access this class
+ * concurrently, access must be synchronized externally.
+ *
+ * @author Matthew Kahane
+ */
+public class CompactJsonWriter {
+
+	/** Hexadecimal digits used to escape control characters */
+	private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+	/**
+	 * Writes the text surrounded by {@code " "} quotation marks, escaping any
+	 * quotation marks, backslashes, and control characters.
+	 *
+	 * @param element the text to write
+	 * @param writer the writer to use
+	 * @throws IOException if an IO error occurs
+	 */
+	public static void writeQuote(String element, Writer writer) throws IOException {
+		writer.write('"');
+
+		int start = 0;
+		for (int i = 0; i < element.length(); i++) {
+			char c = element.charAt(i);
+			if (c == '"' || c == '\\' || c < 0x20) {
+				writer.write(element, start, i - start);
+				start = i + 1;
+
+				writer.write('\\');
+				switch (c) {
+					case '"', '\\' -> writer.write(c);
+					case '\n' -> writer.write('n');
+					case '\r' -> writer.write('r');
+					case '\t' -> writer.write('t');
+					default -> {
+						writer.write("u00");
+						writer.write(HEX[c >> 4]);
+						writer.write(HEX[c & 0xF]);
+					}
+				}
+			}
+		}
+
+		writer.write(element, start, element.length() - start);
+		writer.write('"');
+	}
+
+	/**
+	 * Starts the next top-level member; in compact JSON this is a comma between
+	 * members, and in newline-delimited JSON it opens the member's own object.
+	 *
+	 * @param first whether this is the first top-level member
+	 * @param lines whether newline-delimited JSON is being written
+	 * @param writer the writer to use
+	 * @throws IOException if an IO error occurs
+	 */
+	static void startMember(boolean first, boolean lines, Writer writer) throws IOException {
+		if (lines) {
+			writer.write('{');
+		} else if (!first) {
+			writer.write(',');
+		}
+	}
+
+	/**
+	 * Ends a top-level member; in newline-delimited JSON this closes the
+	 * member's object and ends the line.
+	 *
+	 * @param lines whether newline-delimited JSON is being written
+	 * @param writer the writer to use
+	 * @throws IOException if an IO error occurs
+	 */
+	static void endMember(boolean lines, Writer writer) throws IOException {
+		if (lines) {
+			writer.write("}\n");
+		}
+	}
+
+	/**
+	 * Writes the elements as a compact JSON object, or as one single-member
+	 * object per line.
+	 *
+	 * @param elements the elements to write
+	 * @param writer the writer to use
+	 * @param lines whether to write newline-delimited JSON
+	 * @throws IOException if an IO error occurs
+	 */
+	public static void writeObject(Map<String, ? extends Number> elements, Writer writer, boolean lines) throws IOException {
+		if (!lines) {
+			writer.write('{');
+		}
+
+		boolean first = true;
+		for (var entry : elements.entrySet()) {
+			startMember(first, lines, writer);
+			writeQuote(entry.getKey(), writer);
+			writer.write(':');
+			writer.write(entry.getValue().toString());
+			endMember(lines, writer);
+			first = false;
+		}
+
+		if (!lines) {
+			writer.write("}\n");
+		}
+	}
+
+	/**
+	 * Returns the elements as a compact JSON object.
+	 *
+	 * @param elements the elements to use
+	 * @return a {@link String} containing the elements in compact JSON format
+	 *
+	 * @see #writeObject(Map, Writer, boolean)
+	 */
+	public static String writeObject(Map<String, ? extends Number> elements) {
+		try {
+			StringWriter writer = new StringWriter();
+			writeObject(elements, writer, false);
+			return writer.toString();
+		}
+		catch (IOException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Writes the locations and positions of a word as a compact JSON object.
+	 *
+	 * @param location the location being written
+	 * @param positions the positions in that location
+	 * @param first whether this is the first location of the word
+	 * @param writer the writer to use
+	 * @param formatter the formatter used for positions
+	 * @throws IOException if an IO error occurs
+	 */
+	static void writeLocation(String location, List<Integer> positions, boolean first,
+			Writer writer, FixedPointFormatter formatter) throws IOException {
+		if (!first) {
+			writer.write(',');
+		}
+		writeQuote(location, writer);
+		writer.write(":[");
+		for (int i = 0; i < positions.size(); i++) {
+			if (i > 0) {
+				writer.write(',');
+			}
+			formatter.write(positions.get(i).intValue(), writer);
+		}
+		writer.write(']');
+	}
+
+	/**
+	 * Writes a single search result as a compact JSON object.
+	 *
+	 * @param result the search result to write
+	 * @param writer the writer to use
+	 * @param formatter the formatter used for numbers
+	 * @throws IOException if an IO error occurs
+	 */
+	public static void writeSearchResult(SearchResult result, Writer writer, FixedPointFormatter formatter) throws IOException {
+		writer.write("{\"count\":");
+		formatter.write(result.count, writer);
+		writer.write(",\"score\":");
+		formatter.write(result.score, writer);
+		writer.write(",\"where\":");
+		writeQuote(result.location, writer);
+		writer.write('}');
+	}
+
+	/**
+	 * Writes the search results as a compact JSON object of queries to arrays of
+	 * results, or as one single-member object per query per line.
+	 *
+	 * @param searchResults the search results to write
+	 * @param writer the writer to use
+	 * @param lines whether to write newline-delimited JSON
+	 * @throws IOException if an IO error occurs
+	 */
+	public static void writeSearchResults(Map<String, ? extends Collection<SearchResult>> searchResults,
+			Writer writer, boolean lines) throws IOException {
+		FixedPointFormatter formatter = new FixedPointFormatter(8);
+
+		if (!lines) {
+			writer.write('{');
+		}
+
+		boolean first = true;
+		for (var entry : searchResults.entrySet()) {
+			startMember(first, lines, writer);
+			writeQuote(entry.getKey(), writer);
+			writer.write(":[");
+
+			var iterator = entry.getValue().iterator();
+			while (iterator.hasNext()) {
+				writeSearchResult(iterator.next(), writer, formatter);
+				if (iterator.hasNext()) {
+					writer.write(',');
+				}
+			}
+
+			writer.write(']');
+			endMember(lines, writer);
+			first = false;
+		}
+
+		if (!lines) {
+			writer.write("}\n");
+		}
+	}
+}
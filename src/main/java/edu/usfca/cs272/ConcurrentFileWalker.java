@@ -0,0 +1,320 @@
+package edu.usfca.cs272;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.zip.ZipFile;
+
+/**
+ * Walks a directory and indexes the text files in it at the same time. The
+ * calling thread walks the directory with {@link Files#walkFileTree}, skipping
+ * files that are not text files as it goes, and puts each text file it finds
+ * on a queue. Worker threads take files from the queue as soon as they are
+ * found, so indexing starts before the walk is finished.
+ *
+ * Compressed text files and zip archives are read without extracting them.
+ * Each text entry of a zip archive is put on the queue by itself, so the
+ * entries of an archive are indexed in parallel.
+ *
+ * If the index is a {@link FileFinder.StemInput} or a
+ * {@link FileFinder.CountInput}, the workers stem or count files in parallel
+ * and add them one file at a time. Otherwise the whole file is input one at a
+ * time, which only works for uncompressed files. Either way each file is added
+ * in one piece, and every index orders its locations by path, so the result
+ * does not depend on the order files are found or finished in. The files are
+ * returned in sorted order once all of them are indexed.
+ *
+ * Given a {@link ContentCache}, files with the same bytes as a file already
+ * stemmed or counted reuse its stems or count instead.
+ *
+ * @author Matthew Kahane
+ *
+ * @see TextSource
+ * @see ContentCache
+ */
+public class ConcurrentFileWalker {
+
+	/** Measures the time spent walking directories */
+	private static final Stats.Timer WALK = Stats.timer(Stats.WALK);
+
+	/** Measures the time spent indexing files stemmed or counted by workers */
+	private static final Stats.Timer INDEX = Stats.timer(Stats.INDEX);
+
+	/** Counts the bytes read from disk for files stemmed or counted by workers */
+	private static final Stats.Counter BYTES = Stats.counter(Stats.BYTES);
+
+	/** Put on the queue once per worker to tell it that the walk is done */
+	private static final TextSource END = TextSource.of(Path.of(""));
+
+	/** The number of worker threads to index files with */
+	private final int threads;
+
+	/** Finds files identical to one already stemmed, or {@code null} to stem every file */
+	private final ContentCache duplicates;
+
+	/**
+	 * Initializes a walker that uses one worker per available processor
+	 */
+	public ConcurrentFileWalker() {
+		this(Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Initializes a walker with the given number of workers
+	 *
+	 * @param threads the number of worker threads to use
+	 */
+	public ConcurrentFileWalker(int threads) {
+		this(threads, null);
+	}
+
+	/**
+	 * Initializes a walker that stems or counts files with the same bytes only
+	 * once
+	 *
+	 * @param threads the number of worker threads to use
+	 * @param duplicates finds files identical to one already stemmed, or
+	 *   {@code null} to stem every file
+	 */
+	public ConcurrentFileWalker(int threads, ContentCache duplicates) {
+		if (threads < 1) {
+			throw new IllegalArgumentException("Number of threads must be at least 1");
+		}
+		this.threads = threads;
+		this.duplicates = duplicates;
+	}
+
+	/**
+	 * Walks a directory and inputs every readable text file in it into the
+	 * index. The directory may also be a single archive, in which case the text
+	 * in it is input whatever its name.
+	 *
+	 * @param directory the directory or archive to walk
+	 * @param index what to input the files into
+	 * @return the locations input, in sorted order
+	 * @throws IOException if unable to walk the directory or input a file
+	 *
+	 * @see TextSource#isTextSource(Path)
+	 */
+	public List<String> findAndInput(Path directory, FileFinder.FileInput index) throws IOException {
+		BlockingQueue<TextSource> queue = new LinkedBlockingQueue<>();
+		List<String> found = Collections.synchronizedList(new ArrayList<>());
+		List<ZipFile> archives = new ArrayList<>();
+		ExecutorService workers = Executors.newFixedThreadPool(threads);
+		ArrayList<Future<Void>> results = new ArrayList<>();
+
+		try {
+			for (int i = 0; i < threads; i++) {
+				results.add(workers.submit(() -> {
+					work(queue, index, found);
+					return null;
+				}));
+			}
+
+			long start = WALK.start();
+			try {
+				Files.walkFileTree(directory, new Walker(directory, queue, results, archives));
+			} finally {
+				WALK.stop(start);
+				for (int i = 0; i < threads; i++) {
+					queue.add(END);
+				}
+			}
+
+			for (Future<Void> result : results) {
+				result.get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while indexing " + directory);
+		} catch (ExecutionException e) {
+			// errors such as running out of memory, and bugs, are not failures to read
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			} else if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			} else if (e.getCause() instanceof Error) {
+				throw (Error) e.getCause();
+			}
+			throw new IOException("Unable to index " + directory, e.getCause());
+		} finally {
+			workers.shutdownNow();
+			for (ZipFile archive : archives) {
+				archive.close();
+			}
+		}
+
+		ArrayList<String> sorted = new ArrayList<>(found);
+		Collections.sort(sorted);
+		return sorted;
+	}
+
+	/**
+	 * Takes files from the queue and inputs them until the walk is done
+	 *
+	 * @param queue the files found so far
+	 * @param index what to input the files into
+	 * @param found the locations input so far
+	 * @throws IOException if unable to input a file
+	 * @throws InterruptedException if interrupted while waiting for a file
+	 */
+	private void work(BlockingQueue<TextSource> queue, FileFinder.FileInput index, List<String> found)
+			throws IOException, InterruptedException {
+		TextSource source;
+		while ((source = queue.take()) != END) {
+			input(source, index, duplicates);
+			found.add(source.location());
+		}
+	}
+
+	/**
+	 * Inputs a single text into an index, stemming or counting it first if the
+	 * index takes stems or counts. Stemming and counting do not touch the index,
+	 * so only adding to it is synchronized on the index, and texts may be input
+	 * from many threads at once. An {@link IndexFileEvent} is recorded for the
+	 * text.
+	 *
+	 * @param source the text to input
+	 * @param index what to input the text into
+	 * @param duplicates finds texts identical to one already stemmed, or
+	 *   {@code null} to stem every text
+	 * @throws IOException if unable to input the text
+	 */
+	static void input(TextSource source, FileFinder.FileInput index, ContentCache duplicates) throws IOException {
+		String location = source.location();
+		IndexFileEvent event = new IndexFileEvent();
+		event.begin();
+
+		long start = INDEX.start();
+		int tokens;
+		if (index instanceof FileFinder.OffsetInput offsets && offsets.recordsOffsets() && source.isFile()) {
+			SnippetReader.Words words = SnippetReader.words(source.file());
+			synchronized (index) {
+				offsets.inputStems(location, words.stems(), words.offsets());
+			}
+			tokens = words.stems().size();
+		} else if (index instanceof FileFinder.StemInput) {
+			FileFinder.StemInput stems = (FileFinder.StemInput) index;
+			List<String> cleanedWords = duplicates != null ? duplicates.listStems(source) : source.listStems();
+			synchronized (index) {
+				stems.inputStems(location, cleanedWords);
+			}
+			tokens = cleanedWords.size();
+		} else if (index instanceof FileFinder.CountInput) {
+			FileFinder.CountInput counts = (FileFinder.CountInput) index;
+			tokens = duplicates != null ? duplicates.countWords(source) : source.countWords();
+			synchronized (index) {
+				counts.inputCount(location, tokens);
+			}
+		} else if (source.isFile()) {
+			// the index reads the file itself, so it measures its own time and bytes
+			synchronized (index) {
+				index.inputFile(source.file());
+			}
+			commit(event, source, 0);
+			return;
+		} else {
+			throw new IOException("Unable to input compressed text from " + location);
+		}
+		INDEX.stop(start);
+		commit(event, source, tokens);
+
+		if (Stats.isEnabled()) {
+			BYTES.add(source.bytes());
+		}
+	}
+
+	/**
+	 * Ends an event for a text that was input, and records it if it is enabled
+	 *
+	 * @param event the event begun before the text was input
+	 * @param source the text that was input
+	 * @param tokens the number of stemmed or counted words input, or 0 if the
+	 *   index read the file itself
+	 * @throws IOException if unable to read the size of the text
+	 */
+	private static void commit(IndexFileEvent event, TextSource source, int tokens) throws IOException {
+		event.end();
+		if (event.shouldCommit()) {
+			event.path = source.location();
+			event.bytes = source.bytes();
+			event.tokens = tokens;
+			event.commit();
+		}
+	}
+
+	/**
+	 * Puts the readable text files found on the queue, opening zip archives and
+	 * putting each of their text entries on the queue, and stops the walk early
+	 * if a worker has failed.
+	 */
+	private static class Walker extends SimpleFileVisitor<Path> {
+		/** The directory or archive being walked */
+		private final Path root;
+
+		/** The queue to put files on */
+		private final BlockingQueue<TextSource> queue;
+
+		/** The workers taking files from the queue */
+		private final List<Future<Void>> workers;
+
+		/** The archives opened so far, which are closed once the workers are done */
+		private final List<ZipFile> archives;
+
+		/**
+		 * Initializes a walker
+		 *
+		 * @param root the directory or archive being walked
+		 * @param queue the queue to put files on
+		 * @param workers the workers taking files from the queue
+		 * @param archives the list to add opened archives to
+		 */
+		public Walker(Path root, BlockingQueue<TextSource> queue, List<Future<Void>> workers, List<ZipFile> archives) {
+			this.root = root;
+			this.queue = queue;
+			this.workers = workers;
+			this.archives = archives;
+		}
+
+		@Override
+		public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+			for (Future<Void> worker : workers) {
+				if (worker.isDone()) {
+					return FileVisitResult.TERMINATE;
+				}
+			}
+
+			// links are not followed, but links to text files are indexed like Files.walk does
+			if (!file.equals(root) && !TextSource.isTextSource(file) || !(attrs.isRegularFile()
+					|| attrs.isSymbolicLink() && Files.isRegularFile(file))) {
+				return FileVisitResult.CONTINUE;
+			}
+
+			if (!Files.isReadable(file)) {
+				System.out.println("invalid path");
+			} else if (TextSource.isZip(file)) {
+				ZipFile archive = new ZipFile(file.toFile(), UTF_8);
+				archives.add(archive);
+				queue.addAll(TextSource.entries(file, archive));
+			} else {
+				queue.add(TextSource.of(file));
+			}
+			return FileVisitResult.CONTINUE;
+		}
+	}
+}
@@ -0,0 +1,294 @@
+package edu.usfca.cs272;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Finds text files with the same content so they are only stemmed once. The
+ * bytes of each file are hashed before it is read as text, and if another file
+ * with the same hash has already been stemmed, its stems are reused for the new
+ * location. The index ends up exactly the same as if every file were stemmed.
+ *
+ * The stems of each distinct file are kept as the distinct words of the file
+ * and an array of which word is at each position, until the given number of
+ * stems are held. Files after that are still recognized, but only their number
+ * of words can be reused. Duplicates found while the first copy is still being
+ * stemmed on another thread wait for it rather than stemming it again.
+ *
+ * @author Matthew Kahane
+ *
+ * @see ConcurrentFileWalker
+ */
+public class ContentCache {
+
+	/** The default number of stems held for reuse */
+	public static final long MAX_TOKENS = 1 << 24;
+
+	/** The number of bytes hashed at once */
+	private static final int BUFFER_BYTES = 1 << 16;
+
+	/** Measures the time spent hashing files */
+	private static final Stats.Timer HASH = Stats.timer(Stats.HASH);
+
+	/** Counts the files whose stems were reused */
+	private static final Stats.Counter DUPLICATES = Stats.counter(Stats.DUPLICATES);
+
+	/** Counts the bytes of the files whose stems were reused */
+	private static final Stats.Counter DUPLICATE_BYTES = Stats.counter(Stats.DUPLICATE_BYTES);
+
+	/** Counts the stems reused */
+	private static final Stats.Counter REUSED_TOKENS = Stats.counter(Stats.REUSED_TOKENS);
+
+	/** The content of each file seen so far by hash, which completes once it is stemmed */
+	private final ConcurrentHashMap<String, CompletableFuture<Content>> contents;
+
+	/** The number of stems held so far */
+	private final AtomicLong tokens;
+
+	/** The largest number of stems to hold */
+	private final long maxTokens;
+
+	/**
+	 * Initializes a cache that holds the default number of stems
+	 */
+	public ContentCache() {
+		this(MAX_TOKENS);
+	}
+
+	/**
+	 * Initializes a cache
+	 *
+	 * @param maxTokens the largest number of stems to hold for reuse
+	 */
+	public ContentCache(long maxTokens) {
+		this.contents = new ConcurrentHashMap<>();
+		this.tokens = new AtomicLong();
+		this.maxTokens = maxTokens;
+	}
+
+	/**
+	 * Parses the text into cleaned and stemmed words, reusing the stems of an
+	 * earlier text with the same bytes if they are held
+	 *
+	 * @param source the text to parse
+	 * @return a list of stems from the text in parsed order, which must not be
+	 *   modified
+	 * @throws IOException if unable to read or parse the text
+	 *
+	 * @see TextSource#listStems()
+	 */
+	public List<String> listStems(TextSource source) throws IOException {
+		String hash = hash(source);
+		CompletableFuture<Content> computing = new CompletableFuture<>();
+		CompletableFuture<Content> first = contents.putIfAbsent(hash, computing);
+		if (first != null) {
+			Content content = first.join();
+			if (content != null && content.stems != null) {
+				reused(source, content);
+				return content.stems;
+			}
+			return source.listStems();
+		}
+
+		Content content = null;
+		try {
+			ArrayList<String> stems = source.listStems();
+			content = new Content(reserve(stems.size()) ? compact(stems) : null, stems.size());
+			return stems;
+		} finally {
+			finish(hash, computing, content);
+		}
+	}
+
+	/**
+	 * Counts the cleaned words in the text, reusing the count of an earlier text
+	 * with the same bytes
+	 *
+	 * @param source the text to count
+	 * @return the number of cleaned words in the text
+	 * @throws IOException if unable to read or parse the text
+	 *
+	 * @see TextSource#countWords()
+	 */
+	public int countWords(TextSource source) throws IOException {
+		String hash = hash(source);
+		CompletableFuture<Content> computing = new CompletableFuture<>();
+		CompletableFuture<Content> first = contents.putIfAbsent(hash, computing);
+		if (first != null) {
+			Content content = first.join();
+			if (content != null) {
+				reused(source, content);
+				return content.words;
+			}
+			return source.countWords();
+		}
+
+		Content content = null;
+		try {
+			int words = source.countWords();
+			content = new Content(null, words);
+			return words;
+		} finally {
+			finish(hash, computing, content);
+		}
+	}
+
+	/**
+	 * Hands the content of a file to the duplicates waiting for it. If the file
+	 * could not be read, it is forgotten so a later copy may try again.
+	 *
+	 * @param hash the hash of the file
+	 * @param computing the future the duplicates are waiting on
+	 * @param content the content of the file, or {@code null} if it could not be
+	 *   read
+	 */
+	private void finish(String hash, CompletableFuture<Content> computing, Content content) {
+		if (content == null) {
+			contents.remove(hash, computing);
+		}
+		computing.complete(content);
+	}
+
+	/**
+	 * Reserves room to hold stems, if there is enough left
+	 *
+	 * @param size the number of stems to hold
+	 * @return {@code true} if the stems may be held
+	 */
+	private boolean reserve(int size) {
+		if (tokens.addAndGet(size) <= maxTokens) {
+			return true;
+		}
+		tokens.addAndGet(-size);
+		return false;
+	}
+
+	/**
+	 * Counts the work saved by reusing the content of an earlier file
+	 *
+	 * @param source the file that was not stemmed
+	 * @param content the content reused for it
+	 * @throws IOException if unable to read the size of the file
+	 */
+	private static void reused(TextSource source, Content content) throws IOException {
+		if (Stats.isEnabled()) {
+			DUPLICATES.add(1);
+			DUPLICATE_BYTES.add(source.bytes());
+			REUSED_TOKENS.add(content.words);
+		}
+	}
+
+	/**
+	 * Hashes the uncompressed bytes of a text
+	 *
+	 * @param source the text to hash
+	 * @return the SHA-256 hash of the text in hexadecimal
+	 * @throws IOException if unable to read the text
+	 */
+	private static String hash(TextSource source) throws IOException {
+		long start = HASH.start();
+		try (InputStream input = source.openStream()) {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			byte[] buffer = new byte[BUFFER_BYTES];
+			int read;
+			while ((read = input.read(buffer)) != -1) {
+				digest.update(buffer, 0, read);
+			}
+			return HexFormat.of().formatHex(digest.digest());
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-256 is not supported", e);
+		} finally {
+			HASH.stop(start);
+		}
+	}
+
+	/**
+	 * Stores stems as the distinct words and which of them is at each position
+	 *
+	 * @param stems the stems to store
+	 * @return the stored stems
+	 */
+	private static List<String> compact(List<String> stems) {
+		HashMap<String, Integer> ids = new HashMap<>();
+		ArrayList<String> words = new ArrayList<>();
+		int[] positions = new int[stems.size()];
+
+		for (int i = 0; i < positions.length; i++) {
+			String stem = stems.get(i);
+			Integer id = ids.get(stem);
+			if (id == null) {
+				id = words.size();
+				ids.put(stem, id);
+				words.add(stem);
+			}
+			positions[i] = id;
+		}
+		return new CompactStems(words.toArray(String[]::new), positions);
+	}
+
+	/**
+	 * What is kept of a file to reuse for its duplicates
+	 */
+	private static class Content {
+		/** The stems of the file, or {@code null} if they are not held */
+		private final List<String> stems;
+
+		/** The number of cleaned words in the file */
+		private final int words;
+
+		/**
+		 * Initializes the content of a file
+		 *
+		 * @param stems the stems of the file, or {@code null} if not held
+		 * @param words the number of cleaned words in the file
+		 */
+		public Content(List<String> stems, int words) {
+			this.stems = stems;
+			this.words = words;
+		}
+	}
+
+	/**
+	 * A read-only list of stems stored as distinct words and the index of the
+	 * word at each position
+	 */
+	private static class CompactStems extends AbstractList<String> implements RandomAccess {
+		/** The distinct words */
+		private final String[] words;
+
+		/** The index of the word at each position */
+		private final int[] positions;
+
+		/**
+		 * Initializes the list
+		 *
+		 * @param words the distinct words
+		 * @param positions the index of the word at each position
+		 */
+		public CompactStems(String[] words, int[] positions) {
+			this.words = words;
+			this.positions = positions;
+		}
+
+		@Override
+		public String get(int index) {
+			return words[positions[index]];
+		}
+
+		@Override
+		public int size() {
+			return positions.length;
+		}
+	}
+}
@@ -1,13 +1,22 @@
 package edu.usfca.cs272;
 
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.StringWriter;
+import java.net.URI;
+import java.nio.channels.WritableByteChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.Function;
 
 /**
  * Class responsible for running this project based on the provided command-line
@@ -28,6 +37,15 @@ public class Driver {
 	/** Default path to output the results file */
 	private static Path DEFAULT_RESULTS_PATH = Path.of("results.json");
 
+	/** Default path to output the snippets file */
+	private static Path DEFAULT_SNIPPETS_PATH = Path.of("snippets.json");
+
+	/** Default path to output the suggestions file */
+	private static Path DEFAULT_SUGGEST_PATH = Path.of("suggestions.json");
+
+	/** The number of words around a match included in its snippet */
+	private static final int SNIPPET_CONTEXT = 8;
+
 	/**
 	 * Initializes the classes necessary based on the provided command-line
 	 * arguments. This includes (but is not limited to) how to build or search an
@@ -48,23 +66,101 @@ public class Driver {
 			return;
 		}
 
-		WordIndex index = new WordIndex();
+		Path statsPath = null;
+		if (flags.hasFlag("-stats") && (statsPath = flags.getPath("-stats")) != null) {
+			Stats.enable();
+		}
+
+		// with -snippets, the byte offset of every position is recorded so the
+		// text around the matches of each result can be read back
+		boolean snippets = flags.hasFlag("-snippets");
+		WordIndex index = new WordIndex(snippets);
+		FrequencyIndex frequencies = new FrequencyIndex();
+		OrderedIndex positional = index;
+
+		// with -suggest, the words of the index that complete each query are output
+		boolean suggest = flags.hasFlag("-suggest");
+
+		// only build the positions if the index is output, snippets are read, or
+		// completions are suggested, and only the word frequencies if the index is
+		// searched but not output
+		boolean positions = flags.hasFlag("-index") || snippets || suggest;
+		boolean searching = flags.hasFlag("-query");
+
+		OutputFormat format = OutputFormat.PRETTY;
+		try {
+			format = OutputFormat.of(flags.getString("-format"));
+		} catch (IllegalArgumentException e) {
+			System.out.println("Unknown -format, use pretty, compact, or ndjson. Using pretty.");
+		}
+		boolean gzip = flags.hasFlag("-gzip");
+
+		// with a budget (in megabytes), postings are spilled to disk as they are built
+		SpillingIndexBuilder builder = null;
+		int budget = flags.getInteger("-budget", 0);
+
+		FileFinder.StemInput stems = index;
+		if (snippets || suggest) {
+			// snippets are read with the offsets, and completions suggested from the
+			// prefix tree, that only the positional index keeps
+		} else if (positions && budget > 0) {
+			try {
+				builder = new SpillingIndexBuilder(budget * 1024L * 1024L);
+				stems = builder;
+			} catch (IOException e) {
+				System.out.println("Could not create a directory to spill the index to, building it in memory");
+			}
+		} else if (positions && flags.hasFlag("-hash")) {
+			HashWordIndex hashed = new HashWordIndex();
+			stems = hashed;
+			positional = hashed;
+		} else if (!positions) {
+			stems = frequencies;
+		}
 
 		Path textPath = null;
 		if (flags.hasFlag("-text") && (textPath = flags.getPath("-text")) != null) {
 			try {
-				FileFinder.findAndInput(textPath, index, Files.isDirectory(textPath));
+				FileFinder.FileInput input = positions || searching ? stems : frequencies.counter();
+
+				// directories are walked while the files found so far are indexed, and
+				// archives are read without extracting them. with -dedup, files with the
+				// same bytes are only stemmed once
+				if (Files.isDirectory(textPath) || TextSource.isArchive(textPath)) {
+					ContentCache duplicates = flags.hasFlag("-dedup") ? new ContentCache() : null;
+					new ConcurrentFileWalker(Runtime.getRuntime().availableProcessors(), duplicates)
+							.findAndInput(textPath, input);
+				} else {
+					FileFinder.findAndInput(textPath, input, false);
+				}
 			} catch (IOException e) {
 				System.out.println("Could not walk file path!");
 			}
 		}
 
+		// web pages are added to the same index as text files, keyed by their URL
+		String seed = null;
+		if (flags.hasFlag("-html") && (seed = flags.getString("-html")) != null) {
+			int max = Math.max(flags.getInteger("-max", 1), 1);
+			try {
+				new WebCrawler().crawl(URI.create(seed), max, stems);
+			} catch (IllegalArgumentException e) {
+				System.out.println("Invalid seed URL: " + seed);
+			} catch (IOException e) {
+				System.out.println("Could not crawl from: " + seed);
+			}
+		}
+
 		Path indexPath = DEFAULT_INDEX_PATH;
 		if (flags.hasFlag("-index")) {
 			indexPath = flags.getPath("-index", indexPath);
 
-			try {
-				PrettyJsonWriter.writeIndex(index, indexPath, 0);
+			try (WritableByteChannel channel = OutputFormat.newChannel(indexPath, gzip)) {
+				if (builder != null) {
+					builder.write(channel, format, 0);
+				} else {
+					new ParallelIndexWriter().write(positional, channel, format, 0);
+				}
 			} catch (IOException e) {
 				System.out.println("Could not write index to path: " + indexPath.toString());
 			}
@@ -73,8 +169,10 @@ public class Driver {
 		Path countsPath = DEFAULT_COUNTS_PATH;
 		if (flags.hasFlag("-counts")) {
 			countsPath = flags.getPath("-counts", countsPath);
-			try {
-				PrettyJsonWriter.writeObject(index.getWordCounts(), countsPath);
+			try (BufferedWriter writer = OutputFormat.newWriter(countsPath, gzip)) {
+				Map<String, Integer> counts = builder != null ? builder.getWordCounts()
+						: positions ? positional.getWordCounts() : frequencies.getWordCounts();
+				format.writeCounts(counts, writer);
 			} catch (IOException e) {
 				System.out.println("Could not write counts to path: " + countsPath.toString());
 			}
@@ -82,27 +180,152 @@ public class Driver {
 
 		Path queryPath = null;
 		Path resultsPath = DEFAULT_RESULTS_PATH;
-		TreeMap<String, ArrayList<LinkedHashMap<String, String>>> searchResults = new TreeMap<>();
+		Function<String, Collection<String>> matched = null;
+		TreeMap<String, ArrayList<SearchResult>> searchResults = new TreeMap<>();
 		if (flags.hasFlag("-query") && (queryPath = flags.getPath("-query")) != null) {
 			boolean exact = flags.hasFlag("-exact") ? true : false;
-			WordSearcher.search(queryPath, index, searchResults, exact);
+			// spilled runs are merged into word frequencies, so searching stays within the budget
+			SearchableIndex searched = positions && builder == null ? positional : frequencies;
+			if (builder != null) {
+				try {
+					builder.mergeInto(frequencies);
+				} catch (IOException e) {
+					System.out.println("Could not merge the index for searching");
+				}
+			}
+			// with -wildcard, query words such as *tion are matched against the words of the index
+			// and with -typos, words within 1 or 2 edits of the query stems are searched for
+			if (flags.hasFlag("-wildcard")) {
+				searchResults = WordSearcher.searchWildcard(queryPath, searched);
+				matched = word -> word.indexOf(TrigramIndex.WILDCARD) >= 0 ? searched.viewMatching(word) : List.of(word);
+			} else if (flags.hasFlag("-typos")) {
+				int distance = Math.min(Math.max(flags.getInteger("-typos", 1), 1), 2);
+				searchResults = WordSearcher.searchTypos(queryPath, searched, distance);
+				matched = word -> searched.viewSimilar(word, distance);
+			} else {
+				searchResults = WordSearcher.search(queryPath, searched, exact);
+				matched = word -> exact ? List.of(word) : searched.viewMatching(word + TrigramIndex.WILDCARD);
+			}
 		} else if (queryPath == null) {
 			System.out.println("please specify a path to go along with the -query flag");
 		}
 
 		if (flags.hasFlag("-results")) {
 			resultsPath = flags.getPath("-results", resultsPath);
-			try {
-				PrettyJsonWriter.writeNestedMap(searchResults, resultsPath, 0);
+			try (BufferedWriter writer = OutputFormat.newWriter(resultsPath, gzip)) {
+				format.writeResults(searchResults, writer);
 			} catch (IOException e) {
 				System.out.println("Error writing results to path: " + resultsPath);
 			}
 		}
 
+		Path suggestPath = DEFAULT_SUGGEST_PATH;
+		if (suggest && queryPath != null) {
+			suggestPath = flags.getPath("-suggest", suggestPath);
+			TreeMap<String, List<String>> completions = WordSearcher.suggest(queryPath, index.suggestions(),
+					SuggestionIndex.TOP);
+			try {
+				PrettyJsonWriter.writeNestedMap(suggestions(completions, index.suggestions()), suggestPath, 0);
+			} catch (IOException e) {
+				System.out.println("Error writing suggestions to path: " + suggestPath);
+			}
+		}
+
+		Path snippetsPath = DEFAULT_SNIPPETS_PATH;
+		if (snippets && matched != null) {
+			snippetsPath = flags.getPath("-snippets", snippetsPath);
+			try {
+				PrettyJsonWriter.writeNestedMap(snippets(searchResults, matched, index), snippetsPath, 0);
+			} catch (IOException e) {
+				System.out.println("Error writing snippets to path: " + snippetsPath);
+			}
+		}
+
+		if (builder != null) {
+			try {
+				builder.close();
+			} catch (IOException e) {
+				System.out.println("Could not delete the temporary index files");
+			}
+		}
+
+		if (statsPath != null) {
+			try {
+				Stats.writeReport(statsPath);
+			} catch (IOException e) {
+				System.out.println("Could not write stats to path: " + statsPath);
+			}
+		}
+
 		// calculate time elapsed and output
 		long elapsed = Duration.between(start, Instant.now()).toMillis();
 		double seconds = (double) elapsed / Duration.ofSeconds(1).toMillis();
 		System.out.printf("Elapsed: %f seconds%n", seconds);
 	}
 
+	/**
+	 * Formats the completions of every query with the number of locations each
+	 * is found in
+	 *
+	 * @param completions the best completions of each query
+	 * @param suggestions the suggestions the completions were found in
+	 * @return the word and number of locations of every completion, by query,
+	 *   formatted as JSON values
+	 */
+	private static TreeMap<String, ArrayList<Map<String, String>>> suggestions(
+			Map<String, List<String>> completions, SuggestionIndex suggestions) {
+		TreeMap<String, ArrayList<Map<String, String>>> output = new TreeMap<>();
+		for (var entry : completions.entrySet()) {
+			ArrayList<Map<String, String>> words = new ArrayList<>();
+			for (String word : entry.getValue()) {
+				LinkedHashMap<String, String> formatted = new LinkedHashMap<>();
+				formatted.put("word", '"' + word + '"');
+				formatted.put("locations", String.format("%d", suggestions.documents(word)));
+				words.add(formatted);
+			}
+			output.put(entry.getKey(), words);
+		}
+		return output;
+	}
+
+	/**
+	 * Reads the snippet of every search result around the first word it matched
+	 *
+	 * @param searchResults the results of each query
+	 * @param matched the words of the index each word of a query matched
+	 * @param index the index that was searched, which recorded offsets
+	 * @return the location and snippet of every result, by query, formatted as
+	 *   JSON strings. Results read from archives or web pages have no snippet.
+	 * @throws IOException if unable to read a location
+	 */
+	private static TreeMap<String, ArrayList<Map<String, String>>> snippets(
+			Map<String, ? extends Collection<SearchResult>> searchResults,
+			Function<String, Collection<String>> matched, WordIndex index) throws IOException {
+		TreeMap<String, ArrayList<Map<String, String>>> output = new TreeMap<>();
+		for (var entry : searchResults.entrySet()) {
+			TreeSet<String> words = new TreeSet<>();
+			for (String word : WordCleaner.split(entry.getKey())) {
+				words.addAll(matched.apply(word));
+			}
+
+			ArrayList<Map<String, String>> results = new ArrayList<>();
+			for (SearchResult result : entry.getValue()) {
+				String text = index.hasOffsets(result.location)
+						? SnippetReader.snippet(index, result.location, words, SNIPPET_CONTEXT)
+						: null;
+				if (text != null) {
+					StringWriter snippet = new StringWriter();
+					CompactJsonWriter.writeQuote(text, snippet);
+
+					LinkedHashMap<String, String> formatted = new LinkedHashMap<>();
+					formatted.put("where", result.format().get("where"));
+					formatted.put("snippet", snippet.toString());
+					results.add(formatted);
+				}
+			}
+			output.put(entry.getKey(), results);
+		}
+		return output;
+	}
+
 }
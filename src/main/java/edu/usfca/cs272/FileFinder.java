@@ -15,6 +15,9 @@ import java.util.stream.Stream;
  */
 public class FileFinder {
 
+	/** Measures the time spent walking directories */
+	private static final Stats.Timer WALK = Stats.timer(Stats.WALK);
+
 	/**
 	 * Gets the file extension for the file at a given path
 	 *
@@ -22,8 +25,17 @@ public class FileFinder {
 	 * @return a string containing the file extension
 	 */
 	public static boolean isTextFile(Path textPath) {
-		String path = textPath.toString();
+		return isTextFile(textPath.toString());
+	}
 
+	/**
+	 * Determines whether a file name has a text file extension. Used for names
+	 * that are not paths on disk, such as the entries of an archive.
+	 *
+	 * @param path the name of the file
+	 * @return {@code true} if the name ends with a text file extension
+	 */
+	public static boolean isTextFile(String path) {
 		int i = path.lastIndexOf('.');
 		String extension =  i > 0 ? path.substring(i+1) : "";
 		extension = extension.toLowerCase();
@@ -32,6 +44,87 @@ public class FileFinder {
 
 	}
 
+	/**
+	 * Something that text files found by {@link FileFinder} can be added to
+	 */
+	@FunctionalInterface
+	public interface FileInput {
+		/**
+		 * Adds the words in a text file
+		 *
+		 * @param path the path of the file
+		 * @throws IOException when an IO error occurs
+		 */
+		void inputFile(Path path) throws IOException;
+	}
+
+	/**
+	 * Something that text files can be added to once they are stemmed. Stemming
+	 * a file does not touch the index, so files may be stemmed on many threads
+	 * and then added one at a time.
+	 *
+	 * @see ConcurrentFileWalker
+	 */
+	public interface StemInput extends FileInput {
+		/**
+		 * Adds the stems of a text file, in the order they are found in the file
+		 *
+		 * @param location the location of the text, such as the path of a file
+		 * @param stems the cleaned and stemmed words of the file
+		 * @throws IOException when an IO error occurs
+		 *
+		 * @see WordCleaner#listStems(Path)
+		 */
+		void inputStems(String location, List<String> stems) throws IOException;
+	}
+
+	/**
+	 * Something that stemmed text files can be added to along with the byte
+	 * offset of each word, so the text around a word can be read back later.
+	 * The offsets are found while the file is stemmed, before it is added.
+	 *
+	 * @see SnippetReader#words(Path)
+	 */
+	public interface OffsetInput extends StemInput {
+		/**
+		 * Determines whether offsets should be found for the files added
+		 *
+		 * @return {@code true} if offsets are recorded
+		 */
+		boolean recordsOffsets();
+
+		/**
+		 * Adds the stems of a text file with the byte offset of each
+		 *
+		 * @param location the location of the text, such as the path of a file
+		 * @param stems the cleaned and stemmed words of the file
+		 * @param offsets the offset of the first byte of each word
+		 * @throws IOException when an IO error occurs
+		 * @throws IllegalArgumentException if there is not exactly one offset for
+		 *   every stem
+		 */
+		void inputStems(String location, List<String> stems, int[] offsets) throws IOException;
+	}
+
+	/**
+	 * Something that only the number of words in text files are added to. The
+	 * words may be counted on many threads and then added one at a time.
+	 *
+	 * @see ConcurrentFileWalker
+	 */
+	public interface CountInput extends FileInput {
+		/**
+		 * Adds the number of words in a text file
+		 *
+		 * @param location the location of the text, such as the path of a file
+		 * @param words the number of cleaned words in the file
+		 * @throws IOException when an IO error occurs
+		 *
+		 * @see WordCleaner#countWords(Path)
+		 */
+		void inputCount(String location, int words) throws IOException;
+	}
+
 	/**
 	 * Finds the file specified by the path, or walks through all of the files in the
 	 * directory if the path points to one
@@ -42,20 +135,38 @@ public class FileFinder {
 	 * @throws IOException when an IO error occurs
 	 */
 	public static void findAndInput(Path textPath, WordIndex index, boolean strictTextTest) throws IOException {
+		findAndInput(textPath, (FileInput) index, strictTextTest);
+	}
+
+	/**
+	 * Finds the file specified by the path, or walks through all of the files in the
+	 * directory if the path points to one
+	 *
+	 * @param textPath the path to find the files
+	 * @param index what to input the files into
+	 * @param strictTextTest indicates whether the textPath points to a directory or not
+	 * @throws IOException when an IO error occurs
+	 */
+	public static void findAndInput(Path textPath, FileInput index, boolean strictTextTest) throws IOException {
 		if (Files.isDirectory(textPath)) {
+			List<Path> paths;
+			long start = WALK.start();
 			try (Stream<Path> files = Files.walk(textPath)) {
-				List<Path> paths = files.filter(Files::isRegularFile).collect(Collectors.toList());
+				paths = files.filter(Files::isRegularFile).collect(Collectors.toList());
 				Collections.sort(paths);
-				for (int i = 0; i < paths.size(); i++) {
-					findAndInput(paths.get(i), index, strictTextTest);
-				}
+			} finally {
+				WALK.stop(start);
+			}
+
+			for (int i = 0; i < paths.size(); i++) {
+				findAndInput(paths.get(i), index, strictTextTest);
 			}
 		} else if (Files.isReadable(textPath)) {
 			if (strictTextTest && isTextFile(textPath)) {
-				index.inputFile(textPath);
+				ConcurrentFileWalker.input(TextSource.of(textPath), index, null);
 			}
 			if (!strictTextTest) {
-				index.inputFile(textPath);
+				ConcurrentFileWalker.input(TextSource.of(textPath), index, null);
 			}
 		} else {
 			System.out.println("invalid path");
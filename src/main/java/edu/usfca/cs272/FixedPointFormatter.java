@@ -0,0 +1,233 @@
+package edu.usfca.cs272;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.text.DecimalFormatSymbols;
+import java.util.Locale;
+
+/**
+ * Writes numbers to a {@link Writer} without creating intermediate
+ * {@link String} objects. Doubles are written with a fixed number of decimal
+ * places and produce exactly the same text as {@code String.format("%.Nf")}.
+ *
+ * Each formatter owns a reusable char buffer, so it is not thread-safe. Create
+ * one formatter per thread (or per output file) and reuse it for every number.
+ *
+ * @author Matthew Kahane
+ */
+public class FixedPointFormatter {
+
+	/** Largest supported precision; keeps 10^precision within 57 bits */
+	public static final int MAX_PRECISION = 17;
+
+	/** The number of digits written after the decimal point */
+	private final int precision;
+
+	/** 10 to the power of the precision */
+	private final long scale;
+
+	/** Values at or above this limit are formatted with String.format */
+	private final double limit;
+
+	/** The format String used when a value cannot be formatted directly */
+	private final String fallback;
+
+	/** Reusable buffer the digits are assembled in before being written */
+	private final char[] buffer;
+
+	/** The last locale confirmed to use ASCII digits and a '.' separator */
+	private static volatile Locale asciiLocale = null;
+
+	/**
+	 * Initializes a formatter that writes the given number of decimal places
+	 *
+	 * @param precision the number of digits after the decimal point
+	 */
+	public FixedPointFormatter(int precision) {
+		if (precision < 0 || precision > MAX_PRECISION) {
+			throw new IllegalArgumentException("Precision must be between 0 and " + MAX_PRECISION);
+		}
+
+		long scale = 1;
+		for (int i = 0; i < precision; i++) {
+			scale *= 10;
+		}
+
+		this.precision = precision;
+		this.scale = scale;
+		this.limit = 0x1p62 / scale;
+		this.fallback = "%." + precision + "f";
+		this.buffer = new char[precision + 24];
+	}
+
+	/**
+	 * Writes the int value in decimal notation
+	 *
+	 * @param value the value to write
+	 * @param writer the writer to use
+	 * @throws IOException if an IO error occurs
+	 */
+	public void write(int value, Writer writer) throws IOException {
+		write((long) value, writer);
+	}
+
+	/**
+	 * Writes the long value in decimal notation
+	 *
+	 * @param value the value to write
+	 * @param writer the writer to use
+	 * @throws IOException if an IO error occurs
+	 */
+	public void write(long value, Writer writer) throws IOException {
+		if (value == Long.MIN_VALUE) {
+			writer.write(Long.toString(value));
+			return;
+		}
+
+		int end = buffer.length;
+		int start = fillDigits(Math.abs(value), end);
+		if (value < 0) {
+			buffer[--start] = '-';
+		}
+		writer.write(buffer, start, end - start);
+	}
+
+	/**
+	 * Writes the double value with a fixed number of decimal places, rounding
+	 * exactly the same way as {@code String.format("%.Nf", value)}.
+	 *
+	 * @param value the value to write
+	 * @param writer the writer to use
+	 * @throws IOException if an IO error occurs
+	 */
+	public void write(double value, Writer writer) throws IOException {
+		long scaled = scale(value);
+
+		if (scaled < 0) {
+			writer.write(String.format(fallback, value));
+			return;
+		}
+
+		int end = buffer.length;
+		int start = end;
+
+		if (precision > 0) {
+			long fraction = scaled % scale;
+			for (int i = 0; i < precision; i++) {
+				buffer[--start] = (char) ('0' + fraction % 10);
+				fraction /= 10;
+			}
+			buffer[--start] = '.';
+		}
+
+		start = fillDigits(scaled / scale, start);
+		writer.write(buffer, start, end - start);
+	}
+
+	/**
+	 * Writes the digits of a non-negative value into the buffer, ending just
+	 * before the given position.
+	 *
+	 * @param value the non-negative value to write
+	 * @param end the position after the last digit
+	 * @return the position of the first digit
+	 */
+	private int fillDigits(long value, int end) {
+		int start = end;
+		do {
+			buffer[--start] = (char) ('0' + value % 10);
+			value /= 10;
+		} while (value != 0);
+		return start;
+	}
+
+	/**
+	 * Rounds the value multiplied by 10^precision to the nearest integer.
+	 *
+	 * {@link java.util.Formatter} rounds half-up from the shortest decimal
+	 * representation of a double rather than from its exact binary value. The
+	 * two only disagree when the exact value lies within one ulp of a rounding
+	 * midpoint, so those values (along with negative, huge, and non-finite
+	 * values) are reported as unsupported and left to the formatter.
+	 *
+	 * @param value the value to scale
+	 * @return the rounded scaled value, or -1 if it must be formatted by
+	 *   {@link String#format(String, Object...)} instead
+	 */
+	private long scale(double value) {
+		if (!(value >= 0 && value < limit) || Double.doubleToRawLongBits(value) < 0 || !isAsciiLocale()) {
+			return -1;
+		}
+
+		long bits = Double.doubleToRawLongBits(value);
+		int biased = (int) (bits >>> 52);
+		long mantissa = bits & 0xFFFFFFFFFFFFFL;
+
+		if (biased == 0) {
+			biased = 1;
+		} else {
+			mantissa |= 1L << 52;
+		}
+
+		// value = mantissa * 2^-shift, and value * scale = product * 2^-shift
+		int shift = 1075 - biased;
+		if (shift <= 0) {
+			return -1;
+		}
+		if (shift >= 128) {
+			// the product is below 2^110, so the scaled value rounds to zero
+			return 0;
+		}
+
+		long high = Math.multiplyHigh(mantissa, scale);
+		long low = mantissa * scale;
+
+		long whole;
+		if (shift >= 64) {
+			whole = high >>> (shift - 64);
+		} else {
+			whole = (low >>> shift) | (high << (64 - shift));
+		}
+
+		// the bit worth one half decides the rounding direction
+		int half = shift - 1;
+		boolean roundUp = (half >= 64 ? (high >>> (half - 64)) : (low >>> half)) % 2 != 0;
+
+		// the remaining bits below the half measure the distance to the midpoint
+		long maskHigh = half > 64 ? -1L >>> (128 - half) : 0;
+		long maskLow = half >= 64 ? -1L : (1L << half) - 1;
+		long restHigh = high & maskHigh;
+		long restLow = low & maskLow;
+
+		if (!roundUp) {
+			restHigh = ~restHigh & maskHigh;
+			restLow = ~restLow & maskLow;
+		}
+
+		if (restHigh == 0 && Long.compareUnsigned(restLow, scale) <= 0) {
+			return -1;
+		}
+
+		return roundUp ? whole + 1 : whole;
+	}
+
+	/**
+	 * Determines whether the default formatting locale writes numbers with
+	 * ASCII digits and a '.' decimal separator, as this formatter does.
+	 *
+	 * @return {@code true} if the default formatting locale matches this output
+	 */
+	private static boolean isAsciiLocale() {
+		Locale locale = Locale.getDefault(Locale.Category.FORMAT);
+		if (locale == asciiLocale) {
+			return true;
+		}
+
+		DecimalFormatSymbols symbols = DecimalFormatSymbols.getInstance(locale);
+		if (symbols.getZeroDigit() == '0' && symbols.getDecimalSeparator() == '.') {
+			asciiLocale = locale;
+			return true;
+		}
+		return false;
+	}
+}
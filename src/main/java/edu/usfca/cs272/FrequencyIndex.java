@@ -0,0 +1,489 @@
+package edu.usfca.cs272;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * An index that stores how many times each word is found in each location, but
+ * not the positions it is found at. This is all searching needs, and takes far
+ * less memory than a {@link WordIndex} built from the same files.
+ *
+ * Each location is numbered in the order it is added, and each word keeps its
+ * {@link Postings} by number, so a common word found in most locations is
+ * stored as a compressed bitmap rather than an entry per location.
+ *
+ * @author Matthew Kahane
+ */
+public class FrequencyIndex implements SearchableIndex, FileFinder.StemInput {
+
+	/**
+	 * Maps each word to the numbers of the locations it is found in, and how
+	 * many times it is found there.
+	 */
+	private final TreeMap<String, Postings> index;
+
+	/** The location with each number */
+	private final ArrayList<String> locations;
+
+	/** The number of each location */
+	private final HashMap<String, Integer> numbers;
+
+	/** The number of words in the location with each number */
+	private int[] lengths;
+
+	/** The words in sorted order for prefix searches, or {@code null} until they are needed */
+	private volatile Vocabulary vocabulary;
+
+	/** The number of words in each location */
+	private final TreeMap<String, Integer> counts;
+
+	/** Measures the time spent indexing files */
+	private static final Stats.Timer INDEX = Stats.timer(Stats.INDEX);
+
+	/** Measures the time spent adding words to the index */
+	private static final Stats.Timer INSERT = Stats.timer(Stats.INSERT);
+
+	/** Counts the files indexed */
+	private static final Stats.Counter FILES = Stats.counter(Stats.FILES);
+
+	/** Counts the bytes of the files indexed */
+	private static final Stats.Counter BYTES = Stats.counter(Stats.BYTES);
+
+	/** Counts the stemmed words produced */
+	private static final Stats.Counter TOKENS = Stats.counter(Stats.TOKENS);
+
+	/** Counts the word and location pairs added */
+	private static final Stats.Counter POSTINGS = Stats.counter(Stats.POSTINGS);
+
+	/**
+	 * Initializes an empty index
+	 */
+	public FrequencyIndex() {
+		this.index = new TreeMap<>();
+		this.locations = new ArrayList<>();
+		this.numbers = new HashMap<>();
+		this.lengths = new int[16];
+		this.vocabulary = null;
+		this.counts = new TreeMap<>();
+	}
+
+	/**
+	 * Adds to the number of times a word is found in a location
+	 *
+	 * @param word the word found
+	 * @param location the location it is found in
+	 * @param frequency the number of additional times it is found there
+	 */
+	public void add(String word, String location, int frequency) {
+		Postings postings = index.get(word);
+		if (postings == null) {
+			postings = new Postings();
+			index.put(word, postings);
+			vocabulary = null;
+		}
+		postings.add(number(location), frequency);
+	}
+
+	/**
+	 * Returns the number of a location, numbering it if it is new
+	 *
+	 * @param location the location to number
+	 * @return the number of the location
+	 */
+	private int number(String location) {
+		Integer number = numbers.get(location);
+		if (number == null) {
+			number = locations.size();
+			numbers.put(location, number);
+			locations.add(location);
+		}
+		return number;
+	}
+
+	/**
+	 * Returns the number of words stored in the index
+	 *
+	 * @return 0 if empty, otherwise the number of words in the index
+	 */
+	public int size() {
+		return index.size();
+	}
+
+	/**
+	 * Returns the number of locations stored for a given word
+	 *
+	 * @param word the word to return the locations of
+	 * @return 0 if the word is not in the index, otherwise the number of
+	 *   locations stored for that word
+	 */
+	public int size(String word) {
+		Postings postings = index.get(word);
+		return postings == null ? 0 : postings.size();
+	}
+
+	@Override
+	public int size(String word, String location) {
+		Postings postings = index.get(word);
+		Integer number = numbers.get(location);
+		if (postings == null || number == null) {
+			return 0;
+		}
+		return postings.frequency(number);
+	}
+
+	@Override
+	public boolean has(String word) {
+		return index.containsKey(word);
+	}
+
+	@Override
+	public Collection<String> view() {
+		return Collections.unmodifiableSet(index.keySet());
+	}
+
+	@Override
+	public Collection<String> viewPrefix(String prefix) {
+		ArrayList<String> words = new ArrayList<>();
+		for (String word : index.tailMap(prefix, true).keySet()) {
+			if (!word.startsWith(prefix)) {
+				break;
+			}
+			words.add(word);
+		}
+		return words;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * The words are looked up in a {@link TrigramIndex} of the sorted
+	 * vocabulary, built the first time it is needed after a word is added.
+	 */
+	@Override
+	public Collection<String> viewMatching(String pattern) {
+		return vocabulary().trigrams().match(pattern);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * The words are looked up in the sorted vocabulary.
+	 */
+	@Override
+	public Collection<String> viewSimilar(String word, int distance) {
+		return vocabulary().spelling().match(word, distance);
+	}
+
+	/**
+	 * Returns the locations a word is found in, in the order the locations were
+	 * added to the index.
+	 *
+	 * @param word the word to view the locations of
+	 * @return the locations of the word, which is empty if the word is not in
+	 *   the index
+	 */
+	@Override
+	public Collection<String> view(String word) {
+		Postings postings = index.get(word);
+		if (postings == null) {
+			return Collections.emptyList();
+		}
+
+		ArrayList<String> found = new ArrayList<>(postings.size());
+		postings.forEach(number -> found.add(locations.get(number)));
+		return Collections.unmodifiableList(found);
+	}
+
+	/**
+	 * Returns the location with the given number
+	 *
+	 * @param number the number of the location
+	 * @return the location with that number
+	 */
+	public String location(int number) {
+		return locations.get(number);
+	}
+
+	/**
+	 * Returns the number of locations numbered so far, which is one more than
+	 * the largest number
+	 *
+	 * @return the number of locations
+	 */
+	public int locations() {
+		return locations.size();
+	}
+
+	/**
+	 * Returns the words of the index in sorted order with their postings, which
+	 * are copied into arrays the first time they are needed after a word is
+	 * added. Prefix searches of the arrays do not allocate.
+	 *
+	 * @return the sorted words of the index
+	 */
+	public Vocabulary vocabulary() {
+		Vocabulary sorted = vocabulary;
+		if (sorted == null) {
+			sorted = new Vocabulary(index);
+			vocabulary = sorted;
+		}
+		return sorted;
+	}
+
+	/**
+	 * Returns the postings of a word, which must not be modified
+	 *
+	 * @param word the word to look up
+	 * @return the postings of the word, or {@code null} if it is not in the index
+	 */
+	public Postings postings(String word) {
+		return index.get(word);
+	}
+
+	/**
+	 * Adds the location and the number of words it contains to the count Map
+	 *
+	 * @param location the location of the file being counted
+	 * @param numWords the number of words in the file
+	 */
+	public void addWordCount(String location, int numWords) {
+		counts.put(location, numWords);
+
+		int number = number(location);
+		if (number >= lengths.length) {
+			lengths = Arrays.copyOf(lengths, Math.max(number + 1, lengths.length * 2));
+		}
+		lengths[number] = numWords;
+	}
+
+	/**
+	 * Returns the number of words in the location with the given number
+	 *
+	 * @param number the number of the location
+	 * @return the number of words in the location
+	 */
+	public int getWordCount(int number) {
+		return lengths[number];
+	}
+
+	@Override
+	public int getWordCount(String location) {
+		return counts.get(location);
+	}
+
+	@Override
+	public Map<String, Integer> getWordCounts() {
+		return Collections.unmodifiableMap(counts);
+	}
+
+	/**
+	 * Stems a file and adds the number of times each stem is found to the index,
+	 * along with the number of words in the file.
+	 *
+	 * @param path the path of the file
+	 * @throws IOException when an IO error occurs
+	 */
+	@Override
+	public void inputFile(Path path) throws IOException {
+		long start = INDEX.start();
+		ArrayList<String> cleanedWords = WordCleaner.listStems(path);
+		inputStems(path.toString(), cleanedWords);
+		INDEX.stop(start);
+
+		if (Stats.isEnabled()) {
+			BYTES.add(Files.size(path));
+		}
+	}
+
+	@Override
+	public void inputStems(String location, List<String> cleanedWords) throws IOException {
+		if (cleanedWords.size() > 0) {
+			this.addWordCount(location, cleanedWords.size());
+		}
+
+		long insert = INSERT.start();
+		HashMap<String, Integer> frequencies = new HashMap<>();
+		for (String word : cleanedWords) {
+			frequencies.merge(word, 1, Integer::sum);
+		}
+		frequencies.forEach((word, frequency) -> add(word, location, frequency));
+		INSERT.stop(insert);
+
+		if (Stats.isEnabled()) {
+			FILES.add(1);
+			TOKENS.add(cleanedWords.size());
+			POSTINGS.add(frequencies.size());
+		}
+	}
+
+	/**
+	 * Counts the words in a file without stemming them or adding them to the
+	 * index. Used when only the word counts are needed.
+	 *
+	 * @param path the path of the file
+	 * @throws IOException when an IO error occurs
+	 *
+	 * @see WordCleaner#countWords(Path)
+	 */
+	public void countFile(Path path) throws IOException {
+		long start = INDEX.start();
+		int words = WordCleaner.countWords(path);
+		inputCount(path.toString(), words);
+		INDEX.stop(start);
+
+		if (Stats.isEnabled()) {
+			BYTES.add(Files.size(path));
+		}
+	}
+
+	/**
+	 * Adds the number of words in a file without adding the words to the index
+	 *
+	 * @param location the location of the file
+	 * @param words the number of words in the file
+	 */
+	public void inputCount(String location, int words) {
+		if (words > 0) {
+			this.addWordCount(location, words);
+		}
+
+		if (Stats.isEnabled()) {
+			FILES.add(1);
+			TOKENS.add(words);
+		}
+	}
+
+	/**
+	 * Returns an input that only counts the words in each file, for when only
+	 * the word counts are needed.
+	 *
+	 * @return an input that adds word counts to this index
+	 *
+	 * @see #countFile(Path)
+	 */
+	public FileFinder.CountInput counter() {
+		return new FileFinder.CountInput() {
+			@Override
+			public void inputFile(Path path) throws IOException {
+				countFile(path);
+			}
+
+			@Override
+			public void inputCount(String location, int words) {
+				FrequencyIndex.this.inputCount(location, words);
+			}
+		};
+	}
+
+	/**
+	 * The words of the index in sorted order and the postings of each, in
+	 * parallel arrays
+	 */
+	public static class Vocabulary {
+		/** The words in sorted order */
+		private final String[] words;
+
+		/** The postings of each word */
+		private final Postings[] postings;
+
+		/** The runs of three characters in the words, or {@code null} until they are needed */
+		private volatile TrigramIndex trigrams;
+
+		/** The words for finding similar words, or {@code null} until they are needed */
+		private volatile SpellingIndex spelling;
+
+		/**
+		 * Copies the words of an index
+		 *
+		 * @param index the words and their postings
+		 */
+		private Vocabulary(TreeMap<String, Postings> index) {
+			this.words = index.keySet().toArray(String[]::new);
+			this.postings = index.values().toArray(Postings[]::new);
+			this.trigrams = null;
+			this.spelling = null;
+		}
+
+		/**
+		 * Returns the position of the first word that is equal to or after the
+		 * given prefix, which is where the words starting with it begin
+		 *
+		 * @param prefix the prefix to look for
+		 * @return the position of the first word that could start with the prefix
+		 */
+		public int start(String prefix) {
+			int position = Arrays.binarySearch(words, prefix);
+			return position >= 0 ? position : -position - 1;
+		}
+
+		/**
+		 * Returns the number of words
+		 *
+		 * @return the number of words
+		 */
+		public int size() {
+			return words.length;
+		}
+
+		/**
+		 * Returns the word at a position
+		 *
+		 * @param position the position of the word
+		 * @return the word at the position
+		 */
+		public String word(int position) {
+			return words[position];
+		}
+
+		/**
+		 * Returns the postings of the word at a position, which must not be
+		 * modified
+		 *
+		 * @param position the position of the word
+		 * @return the postings of the word
+		 */
+		public Postings postings(int position) {
+			return postings[position];
+		}
+
+		/**
+		 * Returns the runs of three characters in the words, with each word
+		 * numbered by its position, which are indexed the first time they are
+		 * needed
+		 *
+		 * @return the trigrams of the words
+		 */
+		public TrigramIndex trigrams() {
+			TrigramIndex indexed = trigrams;
+			if (indexed == null) {
+				indexed = TrigramIndex.of(Arrays.asList(words));
+				trigrams = indexed;
+			}
+			return indexed;
+		}
+
+		/**
+		 * Returns the sorted words for finding the words within a few edits of
+		 * another
+		 *
+		 * @return the words for finding similar words
+		 */
+		public SpellingIndex spelling() {
+			SpellingIndex sorted = spelling;
+			if (sorted == null) {
+				sorted = new SpellingIndex(words);
+				spelling = sorted;
+			}
+			return sorted;
+		}
+	}
+}
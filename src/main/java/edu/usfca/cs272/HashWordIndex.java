@@ -0,0 +1,555 @@
+package edu.usfca.cs272;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.TreeMap;
+
+/**
+ * An index of the positions of each word in each location that is faster to
+ * build than a {@link WordIndex}. Words are kept in an open-addressing hash
+ * table and positions in primitive arrays, so adding a word costs a hash and
+ * usually a single comparison instead of two tree descents. The words (and the
+ * locations of each word) are only sorted the first time sorted order is
+ * needed, and sorted again only if words or locations were added since.
+ *
+ * The output of visiting this index is identical to visiting a
+ * {@link WordIndex} built from the same words.
+ *
+ * Warning: Adding to this index is not thread-safe. Once built, it may be
+ * visited and searched by multiple threads.
+ *
+ * @author Matthew Kahane
+ */
+public class HashWordIndex implements OrderedIndex, FileFinder.StemInput {
+
+	/** Initial number of slots in the hash table, a power of two */
+	private static final int INITIAL_CAPACITY = 1 << 10;
+
+	/** Number of locations a word must have before they are looked up by hash */
+	private static final int LOOKUP_THRESHOLD = 8;
+
+	/** Measures the time spent indexing files */
+	private static final Stats.Timer INDEX = Stats.timer(Stats.INDEX);
+
+	/** Measures the time spent adding words to the index */
+	private static final Stats.Timer INSERT = Stats.timer(Stats.INSERT);
+
+	/** Counts the files indexed */
+	private static final Stats.Counter FILES = Stats.counter(Stats.FILES);
+
+	/** Counts the bytes of the files indexed */
+	private static final Stats.Counter BYTES = Stats.counter(Stats.BYTES);
+
+	/** Counts the stemmed words produced */
+	private static final Stats.Counter TOKENS = Stats.counter(Stats.TOKENS);
+
+	/** Counts the positions added */
+	private static final Stats.Counter POSTINGS = Stats.counter(Stats.POSTINGS);
+
+	/** The words in the hash table, or {@code null} for empty slots */
+	private String[] keys;
+
+	/** The postings of the word in the same slot */
+	private Postings[] values;
+
+	/** The number of words in the table */
+	private int words;
+
+	/** The words in sorted order, or {@code null} if words were added since */
+	private volatile String[] sorted;
+
+	/** The postings of each word in {@link #sorted} */
+	private Postings[] sortedPostings;
+
+	/** Whether any word's locations were added out of order since the last sort */
+	private boolean unsorted;
+
+	/** The number of words in each location */
+	private final TreeMap<String, Integer> counts;
+
+	/**
+	 * Initializes an empty index
+	 */
+	public HashWordIndex() {
+		this.keys = new String[INITIAL_CAPACITY];
+		this.values = new Postings[INITIAL_CAPACITY];
+		this.words = 0;
+		this.counts = new TreeMap<>();
+	}
+
+	/**
+	 * Returns the slot of the word in the table, or the empty slot it would be
+	 * stored in.
+	 *
+	 * @param keys the table to search
+	 * @param word the word to find
+	 * @return the slot of the word
+	 */
+	private static int slot(String[] keys, String word) {
+		int hash = word.hashCode() * 0x9E3779B9;
+		int mask = keys.length - 1;
+		int i = (hash ^ (hash >>> 16)) & mask;
+		while (keys[i] != null && !keys[i].equals(word)) {
+			i = (i + 1) & mask;
+		}
+		return i;
+	}
+
+	/**
+	 * Doubles the size of the table and moves every word into it.
+	 */
+	private void grow() {
+		String[] oldKeys = keys;
+		Postings[] oldValues = values;
+		keys = new String[oldKeys.length * 2];
+		values = new Postings[oldValues.length * 2];
+
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldKeys[i] != null) {
+				int slot = slot(keys, oldKeys[i]);
+				keys[slot] = oldKeys[i];
+				values[slot] = oldValues[i];
+			}
+		}
+	}
+
+	/**
+	 * Returns the postings of a word
+	 *
+	 * @param word the word to look up
+	 * @return the postings of the word, or {@code null} if it is not in the index
+	 */
+	private Postings postings(String word) {
+		return values[slot(keys, word)];
+	}
+
+	/**
+	 * Adds a single position for a word and location. Adds the word and/or
+	 * location if they do not already exist.
+	 *
+	 * @param word word found at the given position in the given location
+	 * @param location location in which the word is found at the given position
+	 * @param position position of the word in the given location
+	 */
+	public void add(String word, String location, int position) {
+		int slot = slot(keys, word);
+		Postings postings = values[slot];
+
+		if (postings == null) {
+			if (2 * (words + 1) > keys.length) {
+				grow();
+				slot = slot(keys, word);
+			}
+			postings = new Postings();
+			keys[slot] = word;
+			values[slot] = postings;
+			words++;
+			sorted = null;
+		}
+
+		if (postings.add(location, position)) {
+			unsorted = true;
+		}
+	}
+
+	/**
+	 * Adds every position for a word and location.
+	 *
+	 * @param word word found at the given positions in the given location
+	 * @param location location in which the word is found at the given positions
+	 * @param positions positions of the word in the given location
+	 */
+	public void add(String word, String location, Collection<Integer> positions) {
+		for (Integer position : positions) {
+			add(word, location, position);
+		}
+	}
+
+	/**
+	 * Sorts the words, and the locations of any word added out of order, if
+	 * anything was added since the last sort.
+	 *
+	 * @return the words in sorted order
+	 */
+	private String[] sorted() {
+		String[] current = sorted;
+		if (current != null && !unsorted) {
+			return current;
+		}
+
+		synchronized (this) {
+			if (sorted == null) {
+				String[] terms = new String[words];
+				int next = 0;
+				for (String key : keys) {
+					if (key != null) {
+						terms[next++] = key;
+					}
+				}
+				Arrays.sort(terms);
+
+				Postings[] postings = new Postings[words];
+				for (int i = 0; i < terms.length; i++) {
+					postings[i] = postings(terms[i]);
+				}
+				sortedPostings = postings;
+				sorted = terms;
+			}
+
+			if (unsorted) {
+				for (Postings postings : sortedPostings) {
+					postings.sort();
+				}
+				unsorted = false;
+			}
+			return sorted;
+		}
+	}
+
+	/**
+	 * Returns the position of the first word in sorted order that is not less
+	 * than the given word.
+	 *
+	 * @param terms the words in sorted order
+	 * @param word the word to look for
+	 * @return the position the word is or would be at
+	 */
+	private static int lowerBound(String[] terms, String word) {
+		int low = 0;
+		int high = terms.length;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (terms[middle].compareTo(word) < 0) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	@Override
+	public int size() {
+		return words;
+	}
+
+	/**
+	 * Returns the number of locations stored for a given word
+	 *
+	 * @param word the word to return the locations of
+	 * @return 0 if the word is not in the index, otherwise the number of
+	 *   locations stored for that word
+	 */
+	public int size(String word) {
+		Postings postings = postings(word);
+		return postings == null ? 0 : postings.size;
+	}
+
+	@Override
+	public int size(String word, String location) {
+		Postings postings = postings(word);
+		if (postings == null) {
+			return 0;
+		}
+		int i = postings.find(location);
+		return i < 0 ? 0 : postings.sizes[i];
+	}
+
+	@Override
+	public boolean has(String word) {
+		return postings(word) != null;
+	}
+
+	@Override
+	public Collection<String> view() {
+		return Collections.unmodifiableList(Arrays.asList(sorted()));
+	}
+
+	@Override
+	public Collection<String> viewPrefix(String prefix) {
+		String[] terms = sorted();
+		int start = lowerBound(terms, prefix);
+		int end = start;
+		while (end < terms.length && terms[end].startsWith(prefix)) {
+			end++;
+		}
+		return Collections.unmodifiableList(Arrays.asList(terms).subList(start, end));
+	}
+
+	@Override
+	public Collection<String> view(String word) {
+		Postings postings = postings(word);
+		if (postings == null) {
+			return Collections.emptyList();
+		}
+		sorted();
+		return Collections.unmodifiableList(Arrays.asList(postings.locations).subList(0, postings.size));
+	}
+
+	/**
+	 * Returns an unmodifiable view of the positions of a word in a location
+	 *
+	 * @param word the word to view the positions of
+	 * @param location the location to view the positions in
+	 * @return the positions, which are empty if the word is not in the location
+	 */
+	public List<Integer> view(String word, String location) {
+		Postings postings = postings(word);
+		int i = postings == null ? -1 : postings.find(location);
+		return i < 0 ? Collections.emptyList() : new IntList(postings.positions[i], postings.sizes[i]);
+	}
+
+	@Override
+	public void visit(IndexVisitor<String> visitor, String start, String end) throws IOException {
+		String[] terms = sorted();
+		Postings[] postings = sortedPostings;
+		int first = start == null ? 0 : lowerBound(terms, start);
+		int last = end == null ? terms.length : lowerBound(terms, end);
+
+		for (int i = first; i < last; i++) {
+			Postings current = postings[i];
+			if (visitor.visitWord(terms[i], current.size)) {
+				for (int j = 0; j < current.size; j++) {
+					visitor.visitLocation(current.locations[j], new IntList(current.positions[j], current.sizes[j]));
+				}
+			}
+			visitor.endWord(terms[i]);
+		}
+	}
+
+	/**
+	 * Adds the location and the number of words it contains to the count Map
+	 *
+	 * @param location the location of the file being counted
+	 * @param numWords the number of words in the file
+	 */
+	public void addWordCount(String location, int numWords) {
+		counts.put(location, numWords);
+	}
+
+	@Override
+	public int getWordCount(String location) {
+		return counts.get(location);
+	}
+
+	@Override
+	public Map<String, Integer> getWordCounts() {
+		return Collections.unmodifiableMap(counts);
+	}
+
+	@Override
+	public void inputFile(Path path) throws IOException {
+		long start = INDEX.start();
+		ArrayList<String> cleanedWords = WordCleaner.listStems(path);
+		inputStems(path.toString(), cleanedWords);
+		INDEX.stop(start);
+
+		if (Stats.isEnabled()) {
+			BYTES.add(Files.size(path));
+		}
+	}
+
+	@Override
+	public void inputStems(String location, List<String> cleanedWords) throws IOException {
+		if (cleanedWords.size() > 0) {
+			this.addWordCount(location, cleanedWords.size());
+		}
+
+		long insert = INSERT.start();
+		for (int i = 0; i < cleanedWords.size(); i++) {
+			this.add(cleanedWords.get(i), location, i+1);
+		}
+		INSERT.stop(insert);
+
+		if (Stats.isEnabled()) {
+			FILES.add(1);
+			TOKENS.add(cleanedWords.size());
+			POSTINGS.add(cleanedWords.size());
+		}
+	}
+
+	/**
+	 * The locations of a single word and the positions in each, in the order
+	 * the locations were added until sorted.
+	 */
+	private static class Postings {
+		/** The locations of the word */
+		private String[] locations;
+
+		/** The positions in each location */
+		private int[][] positions;
+
+		/** The number of positions in each location */
+		private int[] sizes;
+
+		/** The number of locations */
+		private int size;
+
+		/** Whether the locations are in sorted order */
+		private boolean sorted;
+
+		/** The index of each location, once there are enough to need it */
+		private HashMap<String, Integer> lookup;
+
+		/**
+		 * Initializes empty postings
+		 */
+		public Postings() {
+			this.locations = new String[1];
+			this.positions = new int[1][];
+			this.sizes = new int[1];
+			this.size = 0;
+			this.sorted = true;
+		}
+
+		/**
+		 * Returns the index of a location. Words are usually added one file at a
+		 * time, so the last location is checked first.
+		 *
+		 * @param location the location to find
+		 * @return the index of the location, or -1 if it is not found
+		 */
+		public int find(String location) {
+			if (size > 0 && (locations[size - 1] == location || locations[size - 1].equals(location))) {
+				return size - 1;
+			}
+			if (lookup != null) {
+				return lookup.getOrDefault(location, -1);
+			}
+			for (int i = 0; i < size - 1; i++) {
+				if (locations[i].equals(location)) {
+					return i;
+				}
+			}
+			return -1;
+		}
+
+		/**
+		 * Adds a position in a location
+		 *
+		 * @param location the location
+		 * @param position the position in the location
+		 * @return whether the location was new and added out of sorted order
+		 */
+		public boolean add(String location, int position) {
+			int i = find(location);
+			boolean outOfOrder = false;
+
+			if (i < 0) {
+				if (size == locations.length) {
+					int capacity = size * 2;
+					locations = Arrays.copyOf(locations, capacity);
+					positions = Arrays.copyOf(positions, capacity);
+					sizes = Arrays.copyOf(sizes, capacity);
+				}
+
+				outOfOrder = sorted && size > 0 && locations[size - 1].compareTo(location) > 0;
+				sorted &= !outOfOrder;
+
+				i = size++;
+				locations[i] = location;
+				positions[i] = new int[4];
+				sizes[i] = 0;
+
+				if (lookup != null) {
+					lookup.put(location, i);
+				} else if (size > LOOKUP_THRESHOLD) {
+					index();
+				}
+			} else if (sizes[i] == positions[i].length) {
+				positions[i] = Arrays.copyOf(positions[i], sizes[i] * 2);
+			}
+
+			positions[i][sizes[i]++] = position;
+			return outOfOrder;
+		}
+
+		/**
+		 * Builds the lookup table from the current order of the locations
+		 */
+		private void index() {
+			lookup = new HashMap<>(size * 2);
+			for (int i = 0; i < size; i++) {
+				lookup.put(locations[i], i);
+			}
+		}
+
+		/**
+		 * Sorts the locations, keeping each with its positions
+		 */
+		public void sort() {
+			if (sorted) {
+				return;
+			}
+
+			Integer[] order = new Integer[size];
+			for (int i = 0; i < size; i++) {
+				order[i] = i;
+			}
+			Arrays.sort(order, (a, b) -> locations[a].compareTo(locations[b]));
+
+			String[] sortedLocations = new String[locations.length];
+			int[][] sortedPositions = new int[positions.length][];
+			int[] sortedSizes = new int[sizes.length];
+			for (int i = 0; i < size; i++) {
+				sortedLocations[i] = locations[order[i]];
+				sortedPositions[i] = positions[order[i]];
+				sortedSizes[i] = sizes[order[i]];
+			}
+
+			locations = sortedLocations;
+			positions = sortedPositions;
+			sizes = sortedSizes;
+			sorted = true;
+
+			if (lookup != null) {
+				index();
+			}
+		}
+	}
+
+	/**
+	 * An unmodifiable list view of the first values of an int array.
+	 */
+	private static class IntList extends AbstractList<Integer> implements RandomAccess {
+		/** The values */
+		private final int[] values;
+
+		/** The number of values in the list */
+		private final int size;
+
+		/**
+		 * Initializes a view of the first values of an array
+		 *
+		 * @param values the values
+		 * @param size the number of values in the list
+		 */
+		public IntList(int[] values, int size) {
+			this.values = values;
+			this.size = size;
+		}
+
+		@Override
+		public Integer get(int index) {
+			if (index < 0 || index >= size) {
+				throw new IndexOutOfBoundsException(index);
+			}
+			return values[index];
+		}
+
+		@Override
+		public int size() {
+			return size;
+		}
+	}
+}
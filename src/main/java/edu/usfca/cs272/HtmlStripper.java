@@ -0,0 +1,450 @@
+package edu.usfca.cs272;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Removes the markup from HTML in a single pass as it is read, passing on the
+ * text and the links of the page. Only one buffer of the page and one tag are
+ * held at a time, and no regular expressions are used.
+ *
+ * Every tag and comment is replaced by a space, so text on either side of a tag
+ * is never joined into one word. The contents of elements that are not shown as
+ * text, such as {@code head}, {@code script}, and {@code style}, are skipped.
+ * Character references such as {@code &amp;} and {@code &#233;} are decoded,
+ * and any that are not recognized are kept as they are.
+ *
+ * @author Matthew Kahane
+ */
+public class HtmlStripper {
+
+	/** Elements whose contents are skipped */
+	private static final Set<String> SKIPPED = Set.of("head", "script", "style", "noscript", "svg", "template");
+
+	/** Named character references that are decoded */
+	private static final Map<String, String> ENTITIES = Map.of(
+			"amp", "&", "lt", "<", "gt", ">", "quot", "\"", "apos", "'", "nbsp", " ");
+
+	/** The longest character reference that is decoded */
+	private static final int MAX_ENTITY = 32;
+
+	/** Text is passed on at the first whitespace after this many characters */
+	private static final int FLUSH_CHARS = 1 << 13;
+
+	/** The page being stripped */
+	private final Reader reader;
+
+	/** The characters read but not yet parsed */
+	private final char[] buffer;
+
+	/** The position of the next character to parse in the buffer */
+	private int position;
+
+	/** The number of characters in the buffer */
+	private int limit;
+
+	/** The text found since it was last passed on */
+	private final StringBuilder text;
+
+	/** The tag being read */
+	private final StringBuilder tag;
+
+	/** Receives the text of the page */
+	private final Consumer<CharSequence> texts;
+
+	/** Receives the links of the page */
+	private final Consumer<String> links;
+
+	/**
+	 * Initializes a stripper
+	 *
+	 * @param reader the page to strip
+	 * @param texts receives the text of the page
+	 * @param links receives the links of the page
+	 */
+	private HtmlStripper(Reader reader, Consumer<CharSequence> texts, Consumer<String> links) {
+		this.reader = reader;
+		this.buffer = new char[1 << 13];
+		this.position = 0;
+		this.limit = 0;
+		this.text = new StringBuilder();
+		this.tag = new StringBuilder();
+		this.texts = texts;
+		this.links = links;
+	}
+
+	/**
+	 * Reads a page and passes on its text and links in the order they are found.
+	 * The text is passed on in pieces that end at a line break or other
+	 * whitespace, so a word is never split between two pieces. Each piece is only
+	 * valid until the consumer returns. Links are passed on as they appear in
+	 * the {@code href} of each anchor, with character references decoded.
+	 *
+	 * @param reader the page to strip, which is not closed
+	 * @param texts receives the text of the page
+	 * @param links receives the links of the page
+	 * @throws IOException if unable to read the page
+	 */
+	public static void strip(Reader reader, Consumer<CharSequence> texts, Consumer<String> links) throws IOException {
+		new HtmlStripper(reader, texts, links).strip();
+	}
+
+	/**
+	 * Removes the markup from HTML held in a string
+	 *
+	 * @param html the HTML to strip
+	 * @return the text of the HTML
+	 *
+	 * @see #strip(Reader, Consumer, Consumer)
+	 */
+	public static String strip(String html) {
+		StringBuilder output = new StringBuilder();
+		try {
+			strip(new StringReader(html), output::append, link -> {});
+		} catch (IOException e) {
+			throw new IllegalStateException("Unable to read a string", e);
+		}
+		return output.toString();
+	}
+
+	/**
+	 * Parses the page until the end
+	 *
+	 * @throws IOException if unable to read the page
+	 */
+	private void strip() throws IOException {
+		int c;
+		while ((c = read()) != -1) {
+			if (c == '<') {
+				tag();
+			} else if (c == '&') {
+				entity(text);
+			} else {
+				text.append((char) c);
+				if (c == '\n' || text.length() >= FLUSH_CHARS && Character.isWhitespace(c)) {
+					flush();
+				}
+			}
+		}
+		flush();
+	}
+
+	/**
+	 * Passes on the text found so far
+	 */
+	private void flush() {
+		if (text.length() > 0) {
+			texts.accept(text);
+			text.setLength(0);
+		}
+	}
+
+	/**
+	 * Returns the next character of the page
+	 *
+	 * @return the next character, or -1 at the end of the page
+	 * @throws IOException if unable to read the page
+	 */
+	private int read() throws IOException {
+		if (position == limit) {
+			limit = reader.read(buffer, 0, buffer.length);
+			position = 0;
+			if (limit <= 0) {
+				limit = 0;
+				return -1;
+			}
+		}
+		return buffer[position++];
+	}
+
+	/**
+	 * Puts back the character just returned by {@link #read()}, which must not
+	 * have been the end of the page
+	 */
+	private void unread() {
+		position--;
+	}
+
+	/**
+	 * Parses whatever follows a {@code <}, which is a tag, a comment, a
+	 * declaration, or a {@code <} that is part of the text.
+	 *
+	 * @throws IOException if unable to read the page
+	 */
+	private void tag() throws IOException {
+		int c = read();
+		if (c == '!') {
+			c = read();
+			if (c == '-' && (c = read()) == '-') {
+				skipPast("-->");
+			} else if (c != '>' && c != -1) {
+				skipPast(">");
+			}
+		} else if (c == '/' || c == '?') {
+			skipPast(">");
+		} else if (c != -1 && Character.isLetter(c)) {
+			unread();
+			startTag();
+		} else {
+			text.append('<');
+			if (c != -1) {
+				unread();
+			}
+			return;
+		}
+		text.append(' ');
+	}
+
+	/**
+	 * Reads a start tag up to and including its {@code >}, passing on the link
+	 * of an anchor and skipping the contents of an element that is not shown.
+	 * A {@code >} inside a quoted attribute value does not end the tag.
+	 *
+	 * @throws IOException if unable to read the page
+	 */
+	private void startTag() throws IOException {
+		tag.setLength(0);
+		char quote = 0;
+		char previous = 0;
+
+		int c;
+		while ((c = read()) != -1) {
+			if (quote != 0) {
+				if (c == quote) {
+					quote = 0;
+				}
+			} else if (c == '>') {
+				break;
+			} else if ((c == '"' || c == '\'') && previous == '=') {
+				quote = (char) c;
+			}
+
+			if (!Character.isWhitespace(c)) {
+				previous = (char) c;
+			}
+			tag.append((char) c);
+		}
+
+		int end = 0;
+		while (end < tag.length() && Character.isLetterOrDigit(tag.charAt(end))) {
+			end++;
+		}
+		String name = tag.substring(0, end).toLowerCase(Locale.ROOT);
+
+		if (name.equals("a")) {
+			String href = attribute(tag, end, "href");
+			if (href != null) {
+				links.accept(unescape(href));
+			}
+		}
+
+		boolean empty = tag.length() > 0 && tag.charAt(tag.length() - 1) == '/';
+		if (!empty && SKIPPED.contains(name)) {
+			skipElement(name);
+		}
+	}
+
+	/**
+	 * Skips the contents of an element up to and including its end tag
+	 *
+	 * @param name the lowercase name of the element
+	 * @throws IOException if unable to read the page
+	 */
+	private void skipElement(String name) throws IOException {
+		int c;
+		while ((c = read()) != -1) {
+			if (c != '<' || (c = read()) != '/') {
+				if (c == '<') {
+					unread();
+				}
+				continue;
+			}
+
+			int matched = 0;
+			while (matched < name.length() && (c = read()) != -1
+					&& Character.toLowerCase((char) c) == name.charAt(matched)) {
+				matched++;
+			}
+
+			if (matched == name.length()) {
+				c = read();
+				if (c == -1 || !Character.isLetterOrDigit(c)) {
+					if (c != '>') {
+						skipPast(">");
+					}
+					return;
+				}
+			}
+
+			if (c == '<') {
+				unread();
+			}
+		}
+	}
+
+	/**
+	 * Skips everything up to and including the given characters
+	 *
+	 * @param end the characters to skip past
+	 * @throws IOException if unable to read the page
+	 */
+	private void skipPast(String end) throws IOException {
+		int matched = 0;
+		int c;
+		while (matched < end.length() && (c = read()) != -1) {
+			if (c == end.charAt(matched)) {
+				matched++;
+			} else {
+				// keep the longest part of what was matched that could still start a match, as in --->
+				String seen = end.substring(0, matched) + (char) c;
+				int overlap = matched;
+				while (overlap > 0 && !end.startsWith(seen.substring(seen.length() - overlap))) {
+					overlap--;
+				}
+				matched = overlap;
+			}
+		}
+	}
+
+	/**
+	 * Reads a character reference after its {@code &} and appends what it stands
+	 * for, or appends it unchanged if it is not recognized.
+	 *
+	 * @param output where to append the decoded character
+	 * @throws IOException if unable to read the page
+	 */
+	private void entity(StringBuilder output) throws IOException {
+		tag.setLength(0);
+		int c;
+		while ((c = read()) != -1 && tag.length() < MAX_ENTITY && (Character.isLetterOrDigit(c) || c == '#')) {
+			tag.append((char) c);
+		}
+
+		String decoded = c == ';' ? decode(tag) : null;
+		if (decoded != null) {
+			output.append(decoded);
+			return;
+		}
+
+		output.append('&').append(tag);
+		if (c != -1) {
+			unread();
+		}
+	}
+
+	/**
+	 * Decodes the name of a character reference, without its {@code &} and
+	 * {@code ;}
+	 *
+	 * @param name the name of the reference
+	 * @return what the reference stands for, or {@code null} if it is not
+	 *   recognized
+	 */
+	private static String decode(CharSequence name) {
+		if (name.length() > 1 && name.charAt(0) == '#') {
+			boolean hex = name.charAt(1) == 'x' || name.charAt(1) == 'X';
+			try {
+				int code = Integer.parseInt(name, hex ? 2 : 1, name.length(), hex ? 16 : 10);
+				return Character.isValidCodePoint(code) && code != 0 ? Character.toString(code) : null;
+			} catch (NumberFormatException e) {
+				return null;
+			}
+		}
+		return ENTITIES.get(name.toString());
+	}
+
+	/**
+	 * Decodes the character references in an attribute value
+	 *
+	 * @param value the attribute value
+	 * @return the value with its character references decoded
+	 */
+	static String unescape(String value) {
+		int amp = value.indexOf('&');
+		if (amp < 0) {
+			return value;
+		}
+
+		StringBuilder output = new StringBuilder(value.length());
+		output.append(value, 0, amp);
+		for (int i = amp; i < value.length(); i++) {
+			char c = value.charAt(i);
+			int semicolon = c == '&' ? value.indexOf(';', i) : -1;
+			String decoded = semicolon > i + 1 && semicolon - i <= MAX_ENTITY ? decode(value.subSequence(i + 1, semicolon)) : null;
+			if (decoded != null) {
+				output.append(decoded);
+				i = semicolon;
+			} else {
+				output.append(c);
+			}
+		}
+		return output.toString();
+	}
+
+	/**
+	 * Finds the value of an attribute in a start tag
+	 *
+	 * @param tag the start tag without its brackets
+	 * @param start the position after the name of the tag
+	 * @param name the lowercase name of the attribute
+	 * @return the value of the attribute, or {@code null} if it has none
+	 */
+	private static String attribute(CharSequence tag, int start, String name) {
+		int i = start;
+		int length = tag.length();
+
+		while (i < length) {
+			while (i < length && (Character.isWhitespace(tag.charAt(i)) || tag.charAt(i) == '/')) {
+				i++;
+			}
+
+			int nameStart = i;
+			while (i < length && !Character.isWhitespace(tag.charAt(i)) && tag.charAt(i) != '=' && tag.charAt(i) != '/') {
+				i++;
+			}
+			String attribute = tag.subSequence(nameStart, i).toString();
+
+			while (i < length && Character.isWhitespace(tag.charAt(i))) {
+				i++;
+			}
+			if (i >= length || tag.charAt(i) != '=') {
+				if (i == nameStart) {
+					i++;
+				}
+				continue;
+			}
+
+			i++;
+			while (i < length && Character.isWhitespace(tag.charAt(i))) {
+				i++;
+			}
+
+			int valueStart;
+			int valueEnd;
+			if (i < length && (tag.charAt(i) == '"' || tag.charAt(i) == '\'')) {
+				char quote = tag.charAt(i);
+				valueStart = ++i;
+				while (i < length && tag.charAt(i) != quote) {
+					i++;
+				}
+				valueEnd = i++;
+			} else {
+				valueStart = i;
+				while (i < length && !Character.isWhitespace(tag.charAt(i))) {
+					i++;
+				}
+				valueEnd = i;
+			}
+
+			if (attribute.equalsIgnoreCase(name)) {
+				return tag.subSequence(valueStart, valueEnd).toString();
+			}
+		}
+		return null;
+	}
+}
@@ -0,0 +1,35 @@
+package edu.usfca.cs272;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JDK Flight Recorder event emitted for every file or archive entry input by
+ * {@link FileFinder} or {@link ConcurrentFileWalker}, whatever it is input
+ * into. The event duration covers reading, stemming, and inserting the file.
+ *
+ * @author Matthew Kahane
+ */
+@Name("edu.usfca.cs272.IndexFile")
+@Label("Index File")
+@Category({"Search Engine", "Indexing"})
+@Description("Reads, stems, and adds a single file to the inverted index")
+public class IndexFileEvent extends Event {
+
+	/** The location of the file indexed, such as its path */
+	@Label("Path")
+	String path;
+
+	/** The number of bytes read from disk for the file */
+	@Label("Bytes")
+	@DataAmount
+	long bytes;
+
+	/** The number of stemmed or counted words added from the file, or 0 if the index read it itself */
+	@Label("Tokens")
+	int tokens;
+}
@@ -0,0 +1,49 @@
+package edu.usfca.cs272;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Receives the words, locations, and positions of an {@link InvertedIndex} in
+ * sorted order without the index copying any of its internal data.
+ *
+ * For every word, {@link #visitWord(String, int)} is called first, followed by
+ * {@link #visitLocation(Object, List)} for each of its locations (unless the
+ * visitor chose to skip them), and finally {@link #endWord(String)}.
+ *
+ * @param <E> the type of location visited
+ *
+ * @author Matthew Kahane
+ */
+public interface IndexVisitor<E> {
+
+	/**
+	 * Visits a word in the index.
+	 *
+	 * @param word the word being visited
+	 * @param locations the number of locations stored for the word
+	 * @return {@code true} if the locations of this word should be visited
+	 * @throws IOException if an IO error occurs
+	 */
+	public boolean visitWord(String word, int locations) throws IOException;
+
+	/**
+	 * Visits a location of the current word.
+	 *
+	 * @param location the location being visited
+	 * @param positions an unmodifiable view of the positions of the current
+	 *   word in this location
+	 * @throws IOException if an IO error occurs
+	 */
+	public void visitLocation(E location, List<Integer> positions) throws IOException;
+
+	/**
+	 * Called after the word and its locations have been visited. Does nothing
+	 * by default.
+	 *
+	 * @param word the word that was visited
+	 * @throws IOException if an IO error occurs
+	 */
+	public default void endWord(String word) throws IOException {
+	}
+}
@@ -0,0 +1,426 @@
+package edu.usfca.cs272;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * A compressed set of non-negative ints in the style of a Roaring bitmap. The
+ * values are split into chunks by their upper 16 bits, and each chunk is
+ * stored in whichever container is smaller for how full it is: a sorted array
+ * of the lower 16 bits when it holds at most {@value #ARRAY_MAX} values, or a
+ * bitmap of all 65536 lower values otherwise. A dense set costs about one bit
+ * per possible value and a sparse one about two bytes per value.
+ *
+ * Intersections work a chunk at a time directly on the containers, combining
+ * two bitmaps a 64-bit word at a time, without visiting each value.
+ *
+ * @author Matthew Kahane
+ */
+public class IntBitmap {
+
+	/** The most values a chunk holds as a sorted array, which then takes as much memory as a bitmap */
+	private static final int ARRAY_MAX = 4096;
+
+	/** The number of 64-bit words in a bitmap container */
+	private static final int BITMAP_WORDS = 1 << 10;
+
+	/** The upper 16 bits of the values in each chunk, in increasing order */
+	private char[] keys;
+
+	/** The container of each chunk, which is either a {@code char[]} or a {@code long[]} */
+	private Object[] containers;
+
+	/** The number of values in each chunk */
+	private int[] cardinalities;
+
+	/** The number of chunks */
+	private int size;
+
+	/** The number of values in the set */
+	private int cardinality;
+
+	/**
+	 * Initializes an empty set
+	 */
+	public IntBitmap() {
+		this.keys = new char[1];
+		this.containers = new Object[1];
+		this.cardinalities = new int[1];
+		this.size = 0;
+		this.cardinality = 0;
+	}
+
+	/**
+	 * Returns a set of the first values in a sorted array
+	 *
+	 * @param values the values in increasing order
+	 * @param length the number of values to add
+	 * @return a set of the values
+	 */
+	public static IntBitmap of(int[] values, int length) {
+		IntBitmap bitmap = new IntBitmap();
+		for (int i = 0; i < length; i++) {
+			bitmap.add(values[i]);
+		}
+		return bitmap;
+	}
+
+	/**
+	 * Adds a value to the set. Adding values in increasing order is fastest.
+	 *
+	 * @param value the non-negative value to add
+	 * @return {@code true} if the value was not already in the set
+	 */
+	public boolean add(int value) {
+		char key = (char) (value >>> 16);
+		char low = (char) value;
+
+		int index = find(key);
+		if (index < 0) {
+			index = -index - 1;
+			insertChunk(index, key, new char[4], 0);
+		}
+
+		int count = cardinalities[index];
+		if (containers[index] instanceof long[] bits) {
+			if ((bits[low >>> 6] & (1L << low)) != 0) {
+				return false;
+			}
+			bits[low >>> 6] |= 1L << low;
+		} else {
+			char[] values = (char[]) containers[index];
+			int position = count == 0 || values[count - 1] < low ? -count - 1 : Arrays.binarySearch(values, 0, count, low);
+			if (position >= 0) {
+				return false;
+			}
+			position = -position - 1;
+
+			if (count == ARRAY_MAX) {
+				long[] bits = toBitmap(values, count);
+				bits[low >>> 6] |= 1L << low;
+				containers[index] = bits;
+			} else {
+				if (count == values.length) {
+					values = Arrays.copyOf(values, Math.min(count * 2, ARRAY_MAX));
+					containers[index] = values;
+				}
+				System.arraycopy(values, position, values, position + 1, count - position);
+				values[position] = low;
+			}
+		}
+
+		cardinalities[index]++;
+		cardinality++;
+		return true;
+	}
+
+	/**
+	 * Determines whether a value is in the set
+	 *
+	 * @param value the value to look for
+	 * @return {@code true} if the value is in the set
+	 */
+	public boolean contains(int value) {
+		int index = find((char) (value >>> 16));
+		if (index < 0) {
+			return false;
+		}
+
+		char low = (char) value;
+		if (containers[index] instanceof long[] bits) {
+			return (bits[low >>> 6] & (1L << low)) != 0;
+		}
+		return Arrays.binarySearch((char[]) containers[index], 0, cardinalities[index], low) >= 0;
+	}
+
+	/**
+	 * Returns the number of values in the set that are less than the given
+	 * value, which is the position of the value in increasing order if it is in
+	 * the set
+	 *
+	 * @param value the value to rank
+	 * @return the number of smaller values in the set
+	 */
+	public int rank(int value) {
+		char key = (char) (value >>> 16);
+		int rank = 0;
+		int index = 0;
+		while (index < size && keys[index] < key) {
+			rank += cardinalities[index++];
+		}
+		if (index == size || keys[index] != key) {
+			return rank;
+		}
+
+		char low = (char) value;
+		if (containers[index] instanceof long[] bits) {
+			for (int i = 0; i < low >>> 6; i++) {
+				rank += Long.bitCount(bits[i]);
+			}
+			return rank + Long.bitCount(bits[low >>> 6] & ((1L << low) - 1));
+		}
+		int position = Arrays.binarySearch((char[]) containers[index], 0, cardinalities[index], low);
+		return rank + (position >= 0 ? position : -position - 1);
+	}
+
+	/**
+	 * Returns the number of values in the set
+	 *
+	 * @return the number of values in the set
+	 */
+	public int cardinality() {
+		return cardinality;
+	}
+
+	/**
+	 * Performs an action on each value in increasing order
+	 *
+	 * @param action the action to perform
+	 */
+	public void forEach(IntConsumer action) {
+		for (int i = 0; i < size; i++) {
+			int base = keys[i] << 16;
+			if (containers[i] instanceof long[] bits) {
+				for (int word = 0; word < BITMAP_WORDS; word++) {
+					long remaining = bits[word];
+					while (remaining != 0) {
+						action.accept(base | word << 6 | Long.numberOfTrailingZeros(remaining));
+						remaining &= remaining - 1;
+					}
+				}
+			} else {
+				char[] values = (char[]) containers[i];
+				for (int j = 0; j < cardinalities[i]; j++) {
+					action.accept(base | values[j]);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Adds a weight to the total of each value in the set, where the weight of
+	 * a value is at its rank in the weights. Values whose total was zero are
+	 * appended to the touched values.
+	 *
+	 * @param weights the weight of each value in increasing order of value
+	 * @param totals the total of every value, which is added to
+	 * @param touched the values whose totals are not zero
+	 * @param count the number of touched values
+	 * @return the new number of touched values
+	 */
+	public int accumulate(int[] weights, int[] totals, int[] touched, int count) {
+		int rank = 0;
+		for (int i = 0; i < size; i++) {
+			int base = keys[i] << 16;
+			if (containers[i] instanceof long[] bits) {
+				for (int word = 0; word < BITMAP_WORDS; word++) {
+					long remaining = bits[word];
+					while (remaining != 0) {
+						int value = base | word << 6 | Long.numberOfTrailingZeros(remaining);
+						if (totals[value] == 0) {
+							touched[count++] = value;
+						}
+						totals[value] += weights[rank++];
+						remaining &= remaining - 1;
+					}
+				}
+			} else {
+				char[] values = (char[]) containers[i];
+				for (int j = 0; j < cardinalities[i]; j++) {
+					int value = base | values[j];
+					if (totals[value] == 0) {
+						touched[count++] = value;
+					}
+					totals[value] += weights[rank++];
+				}
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Returns the intersection of this set and another
+	 *
+	 * @param other the other set
+	 * @return a new set of the values in both sets
+	 */
+	public IntBitmap and(IntBitmap other) {
+		IntBitmap intersection = new IntBitmap();
+		int i = 0;
+		int j = 0;
+		while (i < size && j < other.size) {
+			if (keys[i] < other.keys[j]) {
+				i++;
+			} else if (other.keys[j] < keys[i]) {
+				j++;
+			} else {
+				intersection.appendIntersection(keys[i], containers[i], cardinalities[i], other.containers[j], other.cardinalities[j]);
+				i++;
+				j++;
+			}
+		}
+		return intersection;
+	}
+
+	/**
+	 * Appends the intersection of two chunks with the same key, if it is not
+	 * empty
+	 *
+	 * @param key the upper 16 bits of the chunks
+	 * @param first the container of the first chunk
+	 * @param firstCount the number of values in the first chunk
+	 * @param second the container of the second chunk
+	 * @param secondCount the number of values in the second chunk
+	 */
+	private void appendIntersection(char key, Object first, int firstCount, Object second, int secondCount) {
+		if (first instanceof long[] && second instanceof char[]) {
+			appendIntersection(key, second, secondCount, first, firstCount);
+			return;
+		}
+
+		if (first instanceof long[] bits) {
+			long[] others = (long[]) second;
+			long[] intersection = new long[BITMAP_WORDS];
+			for (int word = 0; word < BITMAP_WORDS; word++) {
+				intersection[word] = bits[word] & others[word];
+			}
+			int count = bitCount(intersection);
+			if (count > ARRAY_MAX) {
+				appendChunk(key, intersection, count);
+			} else if (count > 0) {
+				appendChunk(key, toArray(intersection, count), count);
+			}
+			return;
+		}
+
+		char[] values = (char[]) first;
+		char[] intersection = new char[Math.min(firstCount, secondCount)];
+		int count = 0;
+		if (second instanceof long[] bits) {
+			for (int i = 0; i < firstCount; i++) {
+				if ((bits[values[i] >>> 6] & (1L << values[i])) != 0) {
+					intersection[count++] = values[i];
+				}
+			}
+		} else {
+			char[] others = (char[]) second;
+			int i = 0;
+			int j = 0;
+			while (i < firstCount && j < secondCount) {
+				if (values[i] < others[j]) {
+					i++;
+				} else if (others[j] < values[i]) {
+					j++;
+				} else {
+					intersection[count++] = values[i++];
+					j++;
+				}
+			}
+		}
+		if (count > 0) {
+			appendChunk(key, intersection, count);
+		}
+	}
+
+	/**
+	 * Finds the chunk with the given key
+	 *
+	 * @param key the upper 16 bits of the values in the chunk
+	 * @return the index of the chunk, or {@code -(insertion point) - 1} if there
+	 *   is none, as in {@link Arrays#binarySearch(char[], char)}
+	 */
+	private int find(char key) {
+		if (size == 0 || keys[size - 1] < key) {
+			return -size - 1;
+		}
+		if (keys[size - 1] == key) {
+			return size - 1;
+		}
+		return Arrays.binarySearch(keys, 0, size, key);
+	}
+
+	/**
+	 * Inserts a chunk at the given index
+	 *
+	 * @param index where to insert the chunk
+	 * @param key the upper 16 bits of the values in the chunk
+	 * @param container the container of the chunk
+	 * @param count the number of values in the chunk
+	 */
+	private void insertChunk(int index, char key, Object container, int count) {
+		if (size == keys.length) {
+			keys = Arrays.copyOf(keys, size * 2);
+			containers = Arrays.copyOf(containers, size * 2);
+			cardinalities = Arrays.copyOf(cardinalities, size * 2);
+		}
+		System.arraycopy(keys, index, keys, index + 1, size - index);
+		System.arraycopy(containers, index, containers, index + 1, size - index);
+		System.arraycopy(cardinalities, index, cardinalities, index + 1, size - index);
+
+		keys[index] = key;
+		containers[index] = container;
+		cardinalities[index] = count;
+		size++;
+		cardinality += count;
+	}
+
+	/**
+	 * Appends a chunk after every other chunk
+	 *
+	 * @param key the upper 16 bits of the values in the chunk
+	 * @param container the container of the chunk
+	 * @param count the number of values in the chunk
+	 */
+	private void appendChunk(char key, Object container, int count) {
+		insertChunk(size, key, container, count);
+	}
+
+	/**
+	 * Converts a sorted array container to a bitmap container
+	 *
+	 * @param values the sorted values
+	 * @param count the number of values
+	 * @return the bitmap of the values
+	 */
+	private static long[] toBitmap(char[] values, int count) {
+		long[] bits = new long[BITMAP_WORDS];
+		for (int i = 0; i < count; i++) {
+			bits[values[i] >>> 6] |= 1L << values[i];
+		}
+		return bits;
+	}
+
+	/**
+	 * Converts a bitmap container to a sorted array container
+	 *
+	 * @param bits the bitmap
+	 * @param count the number of values in the bitmap
+	 * @return the sorted values
+	 */
+	private static char[] toArray(long[] bits, int count) {
+		char[] values = new char[count];
+		int i = 0;
+		for (int word = 0; word < BITMAP_WORDS; word++) {
+			long remaining = bits[word];
+			while (remaining != 0) {
+				values[i++] = (char) (word << 6 | Long.numberOfTrailingZeros(remaining));
+				remaining &= remaining - 1;
+			}
+		}
+		return values;
+	}
+
+	/**
+	 * Counts the values in a bitmap container
+	 *
+	 * @param bits the bitmap
+	 * @return the number of values in the bitmap
+	 */
+	private static int bitCount(long[] bits) {
+		int count = 0;
+		for (long word : bits) {
+			count += Long.bitCount(word);
+		}
+		return count;
+	}
+}
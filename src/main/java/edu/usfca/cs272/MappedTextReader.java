@@ -0,0 +1,226 @@
+package edu.usfca.cs272;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.CharBuffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads a UTF-8 text file through a memory mapping, decoding it incrementally
+ * into a single reused character buffer. Each call to {@link #nextLines()}
+ * returns the next block of whole lines as a view of that buffer, so no string
+ * is created per line. Files larger than {@link #WINDOW_BYTES} are mapped one
+ * window at a time. Files smaller than {@link #MAP_THRESHOLD} are read into
+ * the heap instead, since mapping a small file costs more than reading it and
+ * every mapping is held until it is garbage collected.
+ *
+ * Warning: The returned view is only valid until the next call to
+ * {@link #nextLines()}.
+ *
+ * @author Matthew Kahane
+ */
+public class MappedTextReader implements Closeable {
+
+	/** The largest number of bytes mapped at once */
+	public static final long WINDOW_BYTES = 64L << 20;
+
+	/** Files smaller than this are read instead of mapped */
+	public static final long MAP_THRESHOLD = 256L << 10;
+
+	/** The default number of characters decoded per block */
+	public static final int BUFFER_CHARS = 1 << 16;
+
+	/** The channel the file is mapped from */
+	private final FileChannel channel;
+
+	/** The size of the file in bytes */
+	private final long size;
+
+	/** Decodes the mapped bytes, reporting malformed input */
+	private final CharsetDecoder decoder;
+
+	/** The decoded characters; between calls, holds the partial line left over */
+	private CharBuffer chars;
+
+	/** The currently mapped window, or {@code null} before the first is mapped */
+	private ByteBuffer window;
+
+	/** The offset in the file the current window starts at */
+	private long windowStart;
+
+	/** Whether every byte has been decoded */
+	private boolean decoded;
+
+	/** The largest number of bytes mapped at once by this reader */
+	private final long windowBytes;
+
+	/**
+	 * Opens a file with the default buffer size
+	 *
+	 * @param path the file to read
+	 * @throws IOException if unable to open the file
+	 */
+	public MappedTextReader(Path path) throws IOException {
+		this(path, BUFFER_CHARS);
+	}
+
+	/**
+	 * Opens a file
+	 *
+	 * @param path the file to read
+	 * @param bufferChars the number of characters to decode per block; grown if
+	 *   a single line is longer
+	 * @throws IOException if unable to open the file
+	 */
+	public MappedTextReader(Path path, int bufferChars) throws IOException {
+		this(path, bufferChars, WINDOW_BYTES);
+	}
+
+	/**
+	 * Opens a file, mapping at most the given number of bytes at once
+	 *
+	 * @param path the file to read
+	 * @param bufferChars the number of characters to decode per block
+	 * @param windowBytes the largest number of bytes to map at once; at least 4
+	 *   so that any character fits in a window
+	 * @throws IOException if unable to open the file
+	 */
+	MappedTextReader(Path path, int bufferChars, long windowBytes) throws IOException {
+		this.windowBytes = Math.max(windowBytes, 4);
+		this.channel = FileChannel.open(path, StandardOpenOption.READ);
+		this.size = channel.size();
+		this.decoder = UTF_8.newDecoder();
+		this.chars = CharBuffer.allocate(Math.max(bufferChars, 2));
+		this.chars.flip();
+		this.windowStart = 0;
+		this.decoded = size == 0;
+	}
+
+	/**
+	 * Returns the next block of whole lines, including their line breaks. The
+	 * last block of the file may end without a line break.
+	 *
+	 * @return a view of the next lines, or {@code null} at the end of the file
+	 * @throws IOException if unable to read the file or if it is not valid UTF-8
+	 */
+	public CharBuffer nextLines() throws IOException {
+		// drop the lines returned by the last call, keeping any partial line
+		chars.compact();
+
+		while (true) {
+			fill();
+			chars.flip();
+
+			if (decoded) {
+				if (!chars.hasRemaining()) {
+					return null;
+				}
+				CharBuffer lines = chars.duplicate();
+				chars.position(chars.limit());
+				return lines;
+			}
+
+			int end = lastLineBreak(chars) + 1;
+			if (end > 0) {
+				CharBuffer lines = chars.duplicate();
+				lines.limit(lines.position() + end);
+				chars.position(chars.position() + end);
+				return lines;
+			}
+
+			// a single line longer than the buffer
+			CharBuffer larger = CharBuffer.allocate(chars.capacity() * 2);
+			larger.put(chars);
+			chars = larger;
+		}
+	}
+
+	/**
+	 * Decodes bytes until the character buffer is full or every byte is decoded
+	 *
+	 * @throws IOException if unable to map the file or if it is not valid UTF-8
+	 */
+	private void fill() throws IOException {
+		while (!decoded && chars.hasRemaining()) {
+			if (window == null || !window.hasRemaining()) {
+				if (window != null) {
+					windowStart += window.position();
+				}
+				window = map(windowStart);
+			}
+
+			boolean last = windowStart + window.limit() == size;
+			CoderResult result = decoder.decode(window, chars, last);
+			if (result.isError()) {
+				result.throwException();
+			}
+
+			if (result.isUnderflow()) {
+				if (last) {
+					result = decoder.flush(chars);
+					if (result.isOverflow()) {
+						return;
+					}
+					decoded = true;
+				} else if (window.hasRemaining()) {
+					// a character is split across windows, so map the next window from it
+					windowStart += window.position();
+					window = map(windowStart);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Maps the window of the file starting at the given offset, or reads it if
+	 * the file is small.
+	 *
+	 * @param start the offset in the file to start at
+	 * @return the bytes of the window
+	 * @throws IOException if unable to map or read the file
+	 */
+	private ByteBuffer map(long start) throws IOException {
+		long length = Math.min(windowBytes, size - start);
+		if (size >= MAP_THRESHOLD) {
+			return channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+		}
+
+		ByteBuffer bytes = ByteBuffer.allocate((int) length);
+		while (bytes.hasRemaining()) {
+			if (channel.read(bytes, start + bytes.position()) < 0) {
+				throw new EOFException("File changed size while reading");
+			}
+		}
+		return bytes.flip();
+	}
+
+	/**
+	 * Returns the offset of the last line break in the remaining characters
+	 *
+	 * @param buffer the characters to search
+	 * @return the offset from the buffer position, or -1 if there is none
+	 */
+	private static int lastLineBreak(CharBuffer buffer) {
+		for (int i = buffer.remaining() - 1; i >= 0; i--) {
+			char c = buffer.get(buffer.position() + i);
+			if (c == '\n' || c == '\r') {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	@Override
+	public void close() throws IOException {
+		window = null;
+		channel.close();
+	}
+}
@@ -0,0 +1,45 @@
+package edu.usfca.cs272;
+
+import java.io.IOException;
+
+/**
+ * A searchable index that also stores the positions of each word, and can pass
+ * its words, locations, and positions to a visitor in sorted order.
+ *
+ * @author Matthew Kahane
+ */
+public interface OrderedIndex extends SearchableIndex {
+
+	/**
+	 * Returns the number of words stored in the index
+	 *
+	 * @return 0 if empty, otherwise the number of words in the index.
+	 */
+	public int size();
+
+	/**
+	 * Visits every word, location, and positions list in the index in sorted
+	 * order without copying them.
+	 *
+	 * @param visitor the visitor to pass the index contents to
+	 * @throws IOException if the visitor throws an IO error
+	 *
+	 * @see #visit(IndexVisitor, String, String)
+	 */
+	public default void visit(IndexVisitor<String> visitor) throws IOException {
+		visit(visitor, null, null);
+	}
+
+	/**
+	 * Visits the words in the given range, along with their locations and
+	 * positions, in sorted order without copying them.
+	 *
+	 * @param visitor the visitor to pass the index contents to
+	 * @param start the first word to visit (inclusive), or {@code null} to start
+	 *   from the first word in the index
+	 * @param end the word to stop at (exclusive), or {@code null} to continue to
+	 *   the last word in the index
+	 * @throws IOException if the visitor throws an IO error
+	 */
+	public void visit(IndexVisitor<String> visitor, String start, String end) throws IOException;
+}
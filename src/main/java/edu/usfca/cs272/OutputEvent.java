@@ -0,0 +1,59 @@
+package edu.usfca.cs272;
+
+import java.nio.file.Path;
+import java.util.Locale;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JDK Flight Recorder event emitted when the index, counts, or search results
+ * are written.
+ *
+ * @author Matthew Kahane
+ */
+@Name("edu.usfca.cs272.Output")
+@Label("Write Output")
+@Category({"Search Engine", "Output"})
+@Description("Writes the index, word counts, or search results")
+public class OutputEvent extends Event {
+
+	/** Which output was written: index, counts, or results */
+	@Label("Output")
+	String output;
+
+	/** The format the output was written in */
+	@Label("Format")
+	String format;
+
+	/** The file written to, if known */
+	@Label("Path")
+	String path;
+
+	/** The number of top-level elements written (words, locations, or queries) */
+	@Label("Elements")
+	int elements;
+
+	/**
+	 * Ends the event and commits it with the given details if it is enabled.
+	 * The details are only converted to Strings when the event is recorded.
+	 *
+	 * @param output which output was written: index, counts, or results
+	 * @param format the format the output was written in
+	 * @param path the file written to, or {@code null} if unknown
+	 * @param elements the number of top-level elements written
+	 */
+	public void finish(String output, OutputFormat format, Path path, int elements) {
+		end();
+		if (shouldCommit()) {
+			this.output = output;
+			this.format = format.name().toLowerCase(Locale.ROOT);
+			this.path = path == null ? null : path.toString();
+			this.elements = elements;
+			commit();
+		}
+	}
+}
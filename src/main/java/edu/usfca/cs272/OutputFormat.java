@@ -0,0 +1,161 @@
+package edu.usfca.cs272;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.Locale;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The formats the index, counts, and search results can be written in.
+ *
+ * @author Matthew Kahane
+ */
+public enum OutputFormat {
+	/** Pretty JSON with newlines and indentation, see {@link PrettyJsonWriter} */
+	PRETTY,
+
+	/** JSON without any whitespace between elements, see {@link CompactJsonWriter} */
+	COMPACT,
+
+	/**
+	 * Newline-delimited JSON; each line is a compact JSON object with a single
+	 * member (one word, location, or query), see {@link CompactJsonWriter}
+	 */
+	NDJSON;
+
+	/** Measures the time spent writing the word counts */
+	private static final Stats.Timer WRITE_COUNTS = Stats.timer(Stats.WRITE_COUNTS);
+
+	/** Measures the time spent writing the search results */
+	private static final Stats.Timer WRITE_RESULTS = Stats.timer(Stats.WRITE_RESULTS);
+
+	/** Size of the buffer placed in front of the compressor */
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	/**
+	 * Returns the format with the given name, ignoring case.
+	 *
+	 * @param name the name of the format, or {@code null} for the default
+	 * @return the format with that name, or {@link #PRETTY} if the name is
+	 *   {@code null}
+	 * @throws IllegalArgumentException if there is no format with that name
+	 */
+	public static OutputFormat of(String name) {
+		if (name == null) {
+			return PRETTY;
+		}
+		return valueOf(name.toUpperCase(Locale.ROOT));
+	}
+
+	/**
+	 * Writes the word counts in this format.
+	 *
+	 * @param counts the word counts to write
+	 * @param writer the writer to use
+	 * @throws IOException if an IO error occurs
+	 */
+	public void writeCounts(Map<String, ? extends Number> counts, Writer writer) throws IOException {
+		OutputEvent event = new OutputEvent();
+		event.begin();
+
+		long start = WRITE_COUNTS.start();
+		try {
+			if (this == PRETTY) {
+				PrettyJsonWriter.writeObject(counts, writer, 0);
+			} else {
+				CompactJsonWriter.writeObject(counts, writer, this == NDJSON);
+			}
+		} finally {
+			WRITE_COUNTS.stop(start);
+			event.finish("counts", this, null, counts.size());
+		}
+	}
+
+	/**
+	 * Writes the search results in this format.
+	 *
+	 * @param searchResults the search results to write
+	 * @param writer the writer to use
+	 * @throws IOException if an IO error occurs
+	 */
+	public void writeResults(Map<String, ? extends Collection<SearchResult>> searchResults, Writer writer) throws IOException {
+		OutputEvent event = new OutputEvent();
+		event.begin();
+
+		long start = WRITE_RESULTS.start();
+		try {
+			if (this == PRETTY) {
+				PrettyJsonWriter.writeSearchResults(searchResults, writer, 0);
+			} else {
+				CompactJsonWriter.writeSearchResults(searchResults, writer, this == NDJSON);
+			}
+		} finally {
+			WRITE_RESULTS.stop(start);
+			event.finish("results", this, null, searchResults.size());
+		}
+	}
+
+	/**
+	 * Opens a UTF-8 writer to the file, compressing the output with GZIP if
+	 * requested.
+	 *
+	 * @param path the file to write to
+	 * @param gzip whether to compress the output
+	 * @return a buffered writer to the file
+	 * @throws IOException if an IO error occurs
+	 */
+	public static BufferedWriter newWriter(Path path, boolean gzip) throws IOException {
+		if (!gzip) {
+			return Files.newBufferedWriter(path, UTF_8);
+		}
+		return new BufferedWriter(new OutputStreamWriter(newGzipStream(path), UTF_8));
+	}
+
+	/**
+	 * Opens a channel to the file, compressing the output with GZIP if
+	 * requested.
+	 *
+	 * @param path the file to write to
+	 * @param gzip whether to compress the output
+	 * @return a channel to the file
+	 * @throws IOException if an IO error occurs
+	 */
+	public static WritableByteChannel newChannel(Path path, boolean gzip) throws IOException {
+		if (!gzip) {
+			return FileChannel.open(path, StandardOpenOption.CREATE,
+					StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+		}
+		return Channels.newChannel(newGzipStream(path));
+	}
+
+	/**
+	 * Opens a stream that compresses everything written to it into the file.
+	 *
+	 * @param path the file to write to
+	 * @return the compressing stream
+	 * @throws IOException if an IO error occurs
+	 */
+	private static OutputStream newGzipStream(Path path) throws IOException {
+		OutputStream file = new BufferedOutputStream(Files.newOutputStream(path), BUFFER_SIZE);
+		try {
+			return new GZIPOutputStream(file, BUFFER_SIZE);
+		} catch (IOException e) {
+			file.close();
+			throw e;
+		}
+	}
+}
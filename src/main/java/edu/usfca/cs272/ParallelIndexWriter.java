@@ -0,0 +1,491 @@
+package edu.usfca.cs272;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Writes an {@link OrderedIndex} as pretty JSON using multiple threads. The index
+ * is split into contiguous ranges of words, each range is rendered into its own
+ * byte buffer by a worker thread, and the buffers are written to a
+ * channel in order. The index is traversed with an
+ * {@link IndexVisitor}, so no words, locations, or positions are copied.
+ *
+ * In the {@link OutputFormat#PRETTY} format, the output is identical to
+ * {@link PrettyJsonWriter#writeIndex(WordIndex, Path, int)}.
+ * The index must not be modified while it is being written.
+ *
+ * @author Matthew Kahane
+ */
+public class ParallelIndexWriter {
+
+	/** Number of ranges rendered per worker thread, to balance uneven ranges */
+	private static final int RANGES_PER_THREAD = 4;
+
+	/** Measures the time spent writing the index */
+	private static final Stats.Timer WRITE = Stats.timer(Stats.WRITE_INDEX);
+
+	/** The number of worker threads to render ranges with */
+	private final int threads;
+
+	/**
+	 * Initializes a writer that renders with one thread per available processor
+	 */
+	public ParallelIndexWriter() {
+		this(Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Initializes a writer that renders with the given number of threads
+	 *
+	 * @param threads the number of worker threads to use
+	 */
+	public ParallelIndexWriter(int threads) {
+		if (threads < 1) {
+			throw new IllegalArgumentException("Number of threads must be at least 1");
+		}
+		this.threads = threads;
+	}
+
+	/**
+	 * Writes the index as a pretty JSON object with nested objects to a file
+	 *
+	 * @param index the index to write
+	 * @param path the path to write it to
+	 * @param indent the level of indent
+	 * @throws IOException when an IO error occurs
+	 */
+	public void write(OrderedIndex index, Path path, int indent) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+			write(index, channel, OutputFormat.PRETTY, indent);
+		}
+	}
+
+	/**
+	 * Writes the index in the given format to the channel. The channel is not
+	 * closed.
+	 *
+	 * @param index the index to write
+	 * @param channel the channel to write to
+	 * @param format the format to write the index in
+	 * @param indent the level of indent; only used by {@link OutputFormat#PRETTY}
+	 * @throws IOException when an IO error occurs
+	 */
+	public void write(OrderedIndex index, WritableByteChannel channel, OutputFormat format, int indent) throws IOException {
+		OutputEvent event = new OutputEvent();
+		event.begin();
+
+		long start = WRITE.start();
+		try {
+			writeRanges(index, channel, format, indent);
+		} finally {
+			WRITE.stop(start);
+			event.finish("index", format, null, index.size());
+		}
+	}
+
+	/**
+	 * Splits the index into ranges and writes them in the given format.
+	 *
+	 * @param index the index to write
+	 * @param channel the channel to write to
+	 * @param format the format to write the index in
+	 * @param indent the level of indent
+	 * @throws IOException when an IO error occurs
+	 */
+	private void writeRanges(OrderedIndex index, WritableByteChannel channel, OutputFormat format, int indent) throws IOException {
+		List<String> bounds = split(index, threads * RANGES_PER_THREAD);
+
+		write(channel, header(format));
+
+		if (threads == 1 || bounds.size() <= 2) {
+			for (int i = 1; i < bounds.size(); i++) {
+				write(channel, render(index, bounds.get(i - 1), bounds.get(i), i == 1, format, indent));
+			}
+		} else {
+			writeParallel(index, bounds, channel, format, indent);
+		}
+
+		write(channel, footer(format, index.size() == 0, indent));
+	}
+
+	/**
+	 * Returns the text written before the first word of an index.
+	 *
+	 * @param format the format the index is written in
+	 * @return the text that opens the index
+	 */
+	static String header(OutputFormat format) {
+		return switch (format) {
+			case PRETTY -> "{\n";
+			case COMPACT -> "{";
+			case NDJSON -> "";
+		};
+	}
+
+	/**
+	 * Returns the text written after the last word of an index.
+	 *
+	 * @param format the format the index is written in
+	 * @param empty whether the index has no words
+	 * @param indent the level of indent
+	 * @return the text that closes the index
+	 */
+	static String footer(OutputFormat format, boolean empty, int indent) {
+		return switch (format) {
+			case PRETTY -> (empty ? "" : "\n") + "  ".repeat(Math.max(indent, 0)) + "}\n";
+			case COMPACT -> "}\n";
+			case NDJSON -> "";
+		};
+	}
+
+	/**
+	 * Returns a visitor that renders every word it visits in the given format.
+	 * The text returned by {@link #header(OutputFormat)} and
+	 * {@link #footer(OutputFormat, boolean, int)} is not included.
+	 *
+	 * @param writer the writer to render to
+	 * @param format the format to render in
+	 * @param first whether the first visited word is the first in the index
+	 * @param indent the level of indent; only used by {@link OutputFormat#PRETTY}
+	 * @return the renderer
+	 */
+	static IndexVisitor<String> renderer(Writer writer, OutputFormat format, boolean first, int indent) {
+		return format == OutputFormat.PRETTY
+				? new RangeRenderer(writer, first, indent)
+				: new CompactRenderer(writer, first, format == OutputFormat.NDJSON);
+	}
+
+	/**
+	 * Renders the ranges on worker threads and writes them to the channel in
+	 * order. Only a limited number of ranges are rendered ahead of the range
+	 * currently being written, to bound memory use.
+	 *
+	 * @param index the index to write
+	 * @param bounds the words the ranges start and end at
+	 * @param channel the channel to write to
+	 * @param format the format to write the index in
+	 * @param indent the level of indent
+	 * @throws IOException when an IO error occurs
+	 */
+	private void writeParallel(OrderedIndex index, List<String> bounds, WritableByteChannel channel,
+			OutputFormat format, int indent) throws IOException {
+		ExecutorService workers = Executors.newFixedThreadPool(threads);
+		ArrayDeque<Future<Buffer>> pending = new ArrayDeque<>();
+
+		try {
+			int next = 1;
+			while (next < bounds.size() || !pending.isEmpty()) {
+				while (next < bounds.size() && pending.size() < threads * 2) {
+					String start = bounds.get(next - 1);
+					String end = bounds.get(next);
+					boolean first = next == 1;
+					pending.add(workers.submit(() -> render(index, start, end, first, format, indent)));
+					next++;
+				}
+
+				write(channel, pending.remove().get());
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while writing index");
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			throw new IOException("Unable to render index", e.getCause());
+		} finally {
+			workers.shutdownNow();
+		}
+	}
+
+	/**
+	 * Chooses the words to split the index at so that each range holds roughly
+	 * the same number of positions.
+	 *
+	 * @param index the index to split
+	 * @param ranges the desired number of ranges
+	 * @return the bounds of each range; range i starts at bound i (inclusive) and
+	 *   ends at bound i + 1 (exclusive), where {@code null} is unbounded
+	 * @throws IOException if an IO error occurs
+	 */
+	private static List<String> split(OrderedIndex index, int ranges) throws IOException {
+		long[] total = new long[1];
+		index.visit(new IndexVisitor<String>() {
+			@Override
+			public boolean visitWord(String word, int locations) {
+				total[0] += locations;
+				return true;
+			}
+
+			@Override
+			public void visitLocation(String location, List<Integer> positions) {
+				total[0] += positions.size();
+			}
+		});
+
+		List<String> bounds = new ArrayList<>();
+		bounds.add(null);
+
+		long target = total[0] / ranges + 1;
+		if (ranges > 1 && total[0] > 0) {
+			index.visit(new IndexVisitor<String>() {
+				/** Positions seen since the last bound */
+				private long seen = 0;
+
+				@Override
+				public boolean visitWord(String word, int locations) {
+					if (seen >= target) {
+						bounds.add(word);
+						seen = 0;
+					}
+					seen += locations;
+					return true;
+				}
+
+				@Override
+				public void visitLocation(String location, List<Integer> positions) {
+					seen += positions.size();
+				}
+			});
+		}
+
+		bounds.add(null);
+		return bounds;
+	}
+
+	/**
+	 * Renders the words in a range as UTF-8 encoded JSON.
+	 *
+	 * @param index the index to render
+	 * @param start the first word in the range (inclusive), or {@code null}
+	 * @param end the word the range ends at (exclusive), or {@code null}
+	 * @param first whether this is the first range in the index
+	 * @param format the format to render the range in
+	 * @param indent the level of indent
+	 * @return the rendered range
+	 * @throws IOException if an IO error occurs
+	 */
+	private static Buffer render(OrderedIndex index, String start, String end, boolean first,
+			OutputFormat format, int indent) throws IOException {
+		Buffer buffer = new Buffer();
+		try (Writer writer = new BufferedWriter(new OutputStreamWriter(buffer, UTF_8))) {
+			index.visit(renderer(writer, format, first, indent), start, end);
+		}
+		return buffer;
+	}
+
+	/**
+	 * Writes the text to the channel.
+	 *
+	 * @param channel the channel to write to
+	 * @param text the text to write
+	 * @throws IOException if an IO error occurs
+	 */
+	private static void write(WritableByteChannel channel, String text) throws IOException {
+		write(channel, ByteBuffer.wrap(text.getBytes(UTF_8)));
+	}
+
+	/**
+	 * Writes the rendered range to the channel.
+	 *
+	 * @param channel the channel to write to
+	 * @param buffer the rendered range
+	 * @throws IOException if an IO error occurs
+	 */
+	private static void write(WritableByteChannel channel, Buffer buffer) throws IOException {
+		write(channel, buffer.toByteBuffer());
+	}
+
+	/**
+	 * Writes all of the remaining bytes to the channel.
+	 *
+	 * @param channel the channel to write to
+	 * @param bytes the bytes to write
+	 * @throws IOException if an IO error occurs
+	 */
+	private static void write(WritableByteChannel channel, ByteBuffer bytes) throws IOException {
+		while (bytes.hasRemaining()) {
+			channel.write(bytes);
+		}
+	}
+
+	/**
+	 * A byte array output stream whose contents can be wrapped without copying.
+	 */
+	private static class Buffer extends ByteArrayOutputStream {
+		/**
+		 * Initializes an empty buffer
+		 */
+		public Buffer() {
+			super(1 << 16);
+		}
+
+		/**
+		 * Returns a view of the bytes written so far
+		 *
+		 * @return a view of the bytes written so far
+		 */
+		public ByteBuffer toByteBuffer() {
+			return ByteBuffer.wrap(buf, 0, count);
+		}
+	}
+
+	/**
+	 * Renders the visited words in the same format as
+	 * {@link PrettyJsonWriter#writeIndex(WordIndex, Path, int)}.
+	 */
+	private static class RangeRenderer implements IndexVisitor<String> {
+		/** The writer to render to */
+		private final Writer writer;
+
+		/** The level of indent */
+		private final int indent;
+
+		/** Formatter used to write positions */
+		private final FixedPointFormatter formatter;
+
+		/** Whether the next word is the first in the index */
+		private boolean firstWord;
+
+		/** Whether the next location is the first for the current word */
+		private boolean firstLocation;
+
+		/**
+		 * Initializes a renderer
+		 *
+		 * @param writer the writer to render to
+		 * @param firstWord whether the first visited word is the first in the index
+		 * @param indent the level of indent
+		 */
+		public RangeRenderer(Writer writer, boolean firstWord, int indent) {
+			this.writer = writer;
+			this.firstWord = firstWord;
+			this.indent = indent;
+			this.formatter = new FixedPointFormatter(0);
+		}
+
+		@Override
+		public boolean visitWord(String word, int locations) throws IOException {
+			if (!firstWord) {
+				writer.write(",\n");
+			}
+			firstWord = false;
+			firstLocation = true;
+
+			PrettyJsonWriter.writeIndent(writer, indent);
+			PrettyJsonWriter.writeQuote(word, writer, indent+1);
+			writer.write(": {\n");
+			return true;
+		}
+
+		@Override
+		public void visitLocation(String location, List<Integer> positions) throws IOException {
+			if (!firstLocation) {
+				writer.write(",\n");
+			}
+			firstLocation = false;
+
+			PrettyJsonWriter.writeQuote(location, writer, indent+2);
+			writer.write(": [\n");
+
+			for (int i = 0; i < positions.size(); i++) {
+				if (i > 0) {
+					writer.write(",\n");
+				}
+				PrettyJsonWriter.writeIndent(writer, indent+3);
+				formatter.write(positions.get(i).intValue(), writer);
+			}
+
+			writer.write("\n");
+			PrettyJsonWriter.writeIndent(writer, indent+2);
+			writer.write("]");
+		}
+
+		@Override
+		public void endWord(String word) throws IOException {
+			if (!firstLocation) {
+				writer.write("\n");
+			}
+			PrettyJsonWriter.writeIndent(writer, indent+1);
+			writer.write("}");
+		}
+	}
+
+	/**
+	 * Renders the visited words as compact or newline-delimited JSON.
+	 *
+	 * @see CompactJsonWriter
+	 */
+	private static class CompactRenderer implements IndexVisitor<String> {
+		/** The writer to render to */
+		private final Writer writer;
+
+		/** Whether to render newline-delimited JSON */
+		private final boolean lines;
+
+		/** Formatter used to write positions */
+		private final FixedPointFormatter formatter;
+
+		/** Whether the next word is the first in the index */
+		private boolean firstWord;
+
+		/** Whether the next location is the first for the current word */
+		private boolean firstLocation;
+
+		/**
+		 * Initializes a renderer
+		 *
+		 * @param writer the writer to render to
+		 * @param firstWord whether the first visited word is the first in the index
+		 * @param lines whether to render newline-delimited JSON
+		 */
+		public CompactRenderer(Writer writer, boolean firstWord, boolean lines) {
+			this.writer = writer;
+			this.firstWord = firstWord;
+			this.lines = lines;
+			this.formatter = new FixedPointFormatter(0);
+		}
+
+		@Override
+		public boolean visitWord(String word, int locations) throws IOException {
+			CompactJsonWriter.startMember(firstWord, lines, writer);
+			firstWord = false;
+			firstLocation = true;
+
+			CompactJsonWriter.writeQuote(word, writer);
+			writer.write(":{");
+			return true;
+		}
+
+		@Override
+		public void visitLocation(String location, List<Integer> positions) throws IOException {
+			CompactJsonWriter.writeLocation(location, positions, firstLocation, writer, formatter);
+			firstLocation = false;
+		}
+
+		@Override
+		public void endWord(String word) throws IOException {
+			writer.write('}');
+			CompactJsonWriter.endMember(lines, writer);
+		}
+	}
+}
@@ -0,0 +1,193 @@
+package edu.usfca.cs272;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static opennlp.tools.stemmer.snowball.SnowballStemmer.ALGORITHM.ENGLISH;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import opennlp.tools.stemmer.Stemmer;
+import opennlp.tools.stemmer.snowball.SnowballStemmer;
+
+/**
+ * Cleans and stems a single large file using multiple threads. The file is read
+ * in chunks that end at a line break, and each chunk is cleaned, split, and
+ * stemmed by a worker thread with its own stemmer. Words never span a line
+ * break, so the words of each chunk are the same as a sequential run would find.
+ * The position of each word is rebased by the number of words in the chunks
+ * before it, so the result is identical to {@link WordCleaner#listStems(Path)}.
+ *
+ * @author Matthew Kahane
+ */
+public class ParallelStemmer {
+
+	/** Files at least this large are split into chunks by default */
+	public static final long THRESHOLD = 8L << 20;
+
+	/** The default number of bytes read per chunk */
+	public static final int CHUNK_BYTES = 1 << 20;
+
+	/** Measures the time spent reading files */
+	private static final Stats.Timer READ = Stats.timer(Stats.READ);
+
+	/** The number of worker threads to stem chunks with */
+	private final int threads;
+
+	/** The number of bytes read per chunk, before extending it to a line break */
+	private final int chunkBytes;
+
+	/**
+	 * Initializes a stemmer that uses one thread per available processor
+	 */
+	public ParallelStemmer() {
+		this(Runtime.getRuntime().availableProcessors(), CHUNK_BYTES);
+	}
+
+	/**
+	 * Initializes a stemmer with the given number of threads and chunk size
+	 *
+	 * @param threads the number of worker threads to use
+	 * @param chunkBytes the number of bytes to read per chunk
+	 */
+	public ParallelStemmer(int threads, int chunkBytes) {
+		if (threads < 1 || chunkBytes < 1) {
+			throw new IllegalArgumentException("Number of threads and chunk size must be at least 1");
+		}
+		this.threads = threads;
+		this.chunkBytes = chunkBytes;
+	}
+
+	/**
+	 * Determines whether a file is large enough, and there are enough processors,
+	 * for splitting it into chunks to be worthwhile.
+	 *
+	 * @param input the file to check
+	 * @return {@code true} if the file should be stemmed in parallel
+	 * @throws IOException if unable to read the size of the file
+	 */
+	public static boolean shouldSplit(Path input) throws IOException {
+		return Runtime.getRuntime().availableProcessors() > 1 && Files.size(input) >= THRESHOLD;
+	}
+
+	/**
+	 * Reads a file in chunks, parses each chunk into cleaned and stemmed words in
+	 * parallel, and combines them in order.
+	 *
+	 * @param input the input file to parse and stem
+	 * @return a list of stems from file in parsed order
+	 * @throws IOException if unable to read or decode the file
+	 *
+	 * @see WordCleaner#listStems(Path)
+	 */
+	public ArrayList<String> listStems(Path input) throws IOException {
+		ExecutorService workers = Executors.newFixedThreadPool(threads);
+		ArrayList<Future<ArrayList<String>>> chunks = new ArrayList<>();
+
+		try {
+			try (InputStream in = Files.newInputStream(input)) {
+				byte[] carry = new byte[0];
+				boolean done = false;
+
+				while (!done) {
+					long start = READ.start();
+					byte[] block = in.readNBytes(chunkBytes);
+					READ.stop(start);
+					done = block.length < chunkBytes;
+
+					byte[] bytes = carry;
+					if (block.length > 0) {
+						bytes = Arrays.copyOf(carry, carry.length + block.length);
+						System.arraycopy(block, 0, bytes, carry.length, block.length);
+					}
+
+					// a line feed byte is never part of a multi-byte UTF-8 character
+					int end = bytes.length;
+					if (!done) {
+						end = lastLineFeed(bytes) + 1;
+					}
+
+					if (end > 0) {
+						byte[] chunk = end == bytes.length ? bytes : Arrays.copyOf(bytes, end);
+						chunks.add(workers.submit(() -> stem(chunk)));
+					}
+					carry = Arrays.copyOfRange(bytes, end, bytes.length);
+				}
+			}
+
+			// prefix sums of the word counts give the position each chunk starts at
+			int[] offsets = new int[chunks.size() + 1];
+			ArrayList<ArrayList<String>> stems = new ArrayList<>(chunks.size());
+			for (int i = 0; i < chunks.size(); i++) {
+				stems.add(chunks.get(i).get());
+				offsets[i + 1] = offsets[i] + stems.get(i).size();
+			}
+
+			ArrayList<String> output = new ArrayList<>(offsets[chunks.size()]);
+			for (int i = 0; i < stems.size(); i++) {
+				assert output.size() == offsets[i];
+				output.addAll(stems.get(i));
+				stems.set(i, null);
+			}
+			return output;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while stemming " + input);
+		} catch (ExecutionException e) {
+			// errors such as running out of memory, and bugs, are not failures to read
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			} else if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			} else if (e.getCause() instanceof Error) {
+				throw (Error) e.getCause();
+			}
+			throw new IOException("Unable to stem " + input, e.getCause());
+		} finally {
+			workers.shutdownNow();
+		}
+	}
+
+	/**
+	 * Returns the index of the last line feed in the bytes
+	 *
+	 * @param bytes the bytes to search
+	 * @return the index of the last line feed, or -1 if there is none
+	 */
+	private static int lastLineFeed(byte[] bytes) {
+		for (int i = bytes.length - 1; i >= 0; i--) {
+			if (bytes[i] == '\n') {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Decodes a chunk of whole lines and parses each line into cleaned and
+	 * stemmed words.
+	 *
+	 * @param chunk the UTF-8 encoded lines
+	 * @return the stems of the chunk in parsed order
+	 * @throws IOException if the chunk is not valid UTF-8
+	 */
+	private static ArrayList<String> stem(byte[] chunk) throws IOException {
+		String text = UTF_8.newDecoder().decode(ByteBuffer.wrap(chunk)).toString();
+		Stemmer stemmer = new SnowballStemmer(ENGLISH);
+		ArrayList<String> stems = new ArrayList<>();
+
+		for (String line : (Iterable<String>) text.lines()::iterator) {
+			WordCleaner.addStems(line, stemmer, stems);
+		}
+		return stems;
+	}
+}
@@ -0,0 +1,189 @@
+package edu.usfca.cs272;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * The documents a word is found in and how many times it is found in each,
+ * by document number. A rare word keeps its documents in a sorted array. Once
+ * a word is found in at least one of every {@value #DENSITY} documents, about
+ * as dense as a chunk of an {@link IntBitmap} has to be to become a bitmap,
+ * its documents move to an {@link IntBitmap}. Either way the frequencies are
+ * kept in a parallel array in order of document number.
+ *
+ * @author Matthew Kahane
+ */
+public class Postings {
+
+	/** A word found in at least one of this many documents is stored as a bitmap */
+	private static final int DENSITY = 16;
+
+	/** The fewest documents a word must be found in to be stored as a bitmap */
+	private static final int BITMAP_MIN = 64;
+
+	/** The documents in increasing order, or {@code null} once they are a bitmap */
+	private int[] documents;
+
+	/** The documents once the word is common, or {@code null} while it is rare */
+	private IntBitmap bitmap;
+
+	/** The number of times the word is found in each document, in order of document */
+	private int[] frequencies;
+
+	/** The number of documents */
+	private int size;
+
+	/** The largest document so far */
+	private int last;
+
+	/**
+	 * Initializes empty postings
+	 */
+	public Postings() {
+		this.documents = new int[2];
+		this.bitmap = null;
+		this.frequencies = new int[2];
+		this.size = 0;
+		this.last = -1;
+	}
+
+	/**
+	 * Adds to the number of times the word is found in a document. Adding
+	 * documents in increasing order is fastest.
+	 *
+	 * @param document the number of the document
+	 * @param frequency the number of additional times the word is found in it
+	 */
+	public void add(int document, int frequency) {
+		if (document > last) {
+			if (size == frequencies.length) {
+				frequencies = Arrays.copyOf(frequencies, size * 2);
+			}
+
+			if (bitmap != null) {
+				bitmap.add(document);
+			} else {
+				if (size == documents.length) {
+					documents = Arrays.copyOf(documents, size * 2);
+				}
+				documents[size] = document;
+			}
+			frequencies[size++] = frequency;
+			last = document;
+
+			if (bitmap == null && size >= BITMAP_MIN && size >= (document + 1) / DENSITY) {
+				bitmap = IntBitmap.of(documents, size);
+				documents = null;
+			}
+			return;
+		}
+
+		int position = position(document);
+		if (position >= 0) {
+			frequencies[position] += frequency;
+			return;
+		}
+
+		position = -position - 1;
+		if (size == frequencies.length) {
+			frequencies = Arrays.copyOf(frequencies, size * 2);
+		}
+		System.arraycopy(frequencies, position, frequencies, position + 1, size - position);
+		frequencies[position] = frequency;
+
+		if (bitmap != null) {
+			bitmap.add(document);
+		} else {
+			if (size == documents.length) {
+				documents = Arrays.copyOf(documents, size * 2);
+			}
+			System.arraycopy(documents, position, documents, position + 1, size - position);
+			documents[position] = document;
+		}
+		size++;
+	}
+
+	/**
+	 * Finds the position of a document in order of document number
+	 *
+	 * @param document the number of the document
+	 * @return the position of the document, or {@code -(insertion point) - 1} if
+	 *   the word is not found in it
+	 */
+	private int position(int document) {
+		if (bitmap != null) {
+			int rank = bitmap.rank(document);
+			return bitmap.contains(document) ? rank : -rank - 1;
+		}
+		return Arrays.binarySearch(documents, 0, size, document);
+	}
+
+	/**
+	 * Returns the number of times the word is found in a document
+	 *
+	 * @param document the number of the document
+	 * @return the number of times the word is found in the document, or 0
+	 */
+	public int frequency(int document) {
+		int position = document > last ? -1 : position(document);
+		return position >= 0 ? frequencies[position] : 0;
+	}
+
+	/**
+	 * Returns the number of documents the word is found in
+	 *
+	 * @return the number of documents
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Determines whether the documents are stored as a bitmap
+	 *
+	 * @return {@code true} if the word is common enough to be stored as a bitmap
+	 */
+	public boolean isBitmap() {
+		return bitmap != null;
+	}
+
+	/**
+	 * Performs an action on each document in increasing order
+	 *
+	 * @param action the action to perform
+	 */
+	public void forEach(IntConsumer action) {
+		if (bitmap != null) {
+			bitmap.forEach(action);
+			return;
+		}
+		for (int i = 0; i < size; i++) {
+			action.accept(documents[i]);
+		}
+	}
+
+	/**
+	 * Adds the number of times the word is found in each document to the count
+	 * of that document. Documents whose count was zero are appended to the
+	 * touched documents.
+	 *
+	 * @param counts the count of every document, which is added to
+	 * @param touched the documents whose counts are not zero
+	 * @param count the number of touched documents
+	 * @return the new number of touched documents
+	 */
+	public int accumulate(int[] counts, int[] touched, int count) {
+		if (bitmap != null) {
+			return bitmap.accumulate(frequencies, counts, touched, count);
+		}
+
+		for (int i = 0; i < size; i++) {
+			int document = documents[i];
+			if (counts[document] == 0) {
+				touched[count++] = document;
+			}
+			counts[document] += frequencies[i];
+		}
+		return count;
+	}
+}
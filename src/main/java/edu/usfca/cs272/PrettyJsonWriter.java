@@ -27,6 +27,12 @@ import java.util.TreeMap;
  */
 
 public class PrettyJsonWriter {
+	/** Measures the time spent writing the index */
+	private static final Stats.Timer WRITE_INDEX = Stats.timer(Stats.WRITE_INDEX);
+
+	/** Measures the time spent writing the search results */
+	private static final Stats.Timer WRITE_RESULTS = Stats.timer(Stats.WRITE_RESULTS);
+
 	/**
 	 * Indents the writer by the specified number of times. Does nothing if the
 	 * indentation level is 0 or less.
@@ -286,15 +292,15 @@ public class PrettyJsonWriter {
 	 * @see #writeArray(Collection)
 	 */
 	public static void writeNestedArrays(
-			TreeMap<Path, ? extends Collection<? extends Number>> elements,
+			TreeMap<String, ? extends Collection<? extends Number>> elements,
 			Writer writer, int indent) throws IOException {
 		writer.write("{\n");
-		Set<Path> keys = elements.keySet();
+		Set<String> keys = elements.keySet();
 		var iterator = keys.iterator();
 
 		while (iterator.hasNext()) {
-			Path current = iterator.next();
-			writeQuote(current.toString(), writer, indent+1);
+			String current = iterator.next();
+			writeQuote(current, writer, indent+1);
 			writer.append(": ");
 			writeArray(elements.get(current), writer, indent+1);
 			if (iterator.hasNext()) {
@@ -319,7 +325,7 @@ public class PrettyJsonWriter {
 	 * @see #writeNestedArrays(TreeMap, Writer, int)
 	 */
 	public static void writeNestedArrays(
-			TreeMap<Path, ? extends Collection<? extends Number>> elements, Path path)
+			TreeMap<String, ? extends Collection<? extends Number>> elements, Path path)
 			throws IOException {
 		try (BufferedWriter writer = Files.newBufferedWriter(path, UTF_8)) {
 			writeNestedArrays(elements, writer, 0);
@@ -336,7 +342,7 @@ public class PrettyJsonWriter {
 	 * @see #writeNestedArrays(TreeMap, Writer, int)
 	 */
 	public static String writeNestedArrays(
-			TreeMap<Path, ? extends Collection<? extends Number>> elements) {
+			TreeMap<String, ? extends Collection<? extends Number>> elements) {
 		try {
 			StringWriter writer = new StringWriter();
 			writeNestedArrays(elements, writer, 0);
@@ -466,6 +472,10 @@ public class PrettyJsonWriter {
 	 * @throws IOException when an IO error occurs
 	 */
 	public static void writeIndex(WordIndex elements, Path path, int indent) throws IOException {
+		OutputEvent event = new OutputEvent();
+		event.begin();
+
+		long start = WRITE_INDEX.start();
 		try (BufferedWriter writer = Files.newBufferedWriter(path, UTF_8)) {
 			writer.write("{\n");
 			var iterator = elements.view().iterator();
@@ -483,6 +493,9 @@ public class PrettyJsonWriter {
 			}
 			writeIndent(writer, indent);
 			writer.write("}\n");
+		} finally {
+			WRITE_INDEX.stop(start);
+			event.finish("index", OutputFormat.PRETTY, path, elements.size());
 		}
 	}
 
@@ -498,6 +511,10 @@ public class PrettyJsonWriter {
 	 */
 	public static void writeNestedMap(Map<String, ? extends List< ? extends Map<String, String>>> searchResults,
 			Path path, int indent) throws IOException {
+		OutputEvent event = new OutputEvent();
+		event.begin();
+
+		long start = WRITE_RESULTS.start();
 		try(BufferedWriter writer = Files.newBufferedWriter(path, UTF_8)) {
 			writer.write("{\n");
 			var keyI = searchResults.keySet().iterator();
@@ -521,8 +538,132 @@ public class PrettyJsonWriter {
 			writer.append("\n");
 			writeIndent(writer, indent);
 			writer.write("}\n");
+		} finally {
+			WRITE_RESULTS.stop(start);
+			event.finish("results", OutputFormat.PRETTY, path, searchResults.size());
+		}
+	}
+
+	/**
+	 * Writes a single search result as a pretty JSON object directly to the
+	 * writer. Produces the same output as writing {@link SearchResult#format()}
+	 * with {@link #writeStringObject(Map, Writer, int)}, without creating the
+	 * intermediate map or Strings.
+	 *
+	 * @param result the search result to write
+	 * @param writer the writer to use
+	 * @param indent the initial indent level; the first bracket is not indented,
+	 *   inner elements are indented by one, and the last bracket is indented at
+	 *   the initial indentation level
+	 * @param formatter the formatter (and its reusable buffer) used for numbers
+	 * @throws IOException if an IO error occurs
+	 */
+	public static void writeSearchResult(SearchResult result, Writer writer,
+			int indent, FixedPointFormatter formatter) throws IOException {
+		writer.write("{\n");
+		writeQuote("count", writer, indent+1);
+		writer.write(": ");
+		formatter.write(result.count, writer);
+		writer.write(",\n");
+		writeQuote("score", writer, indent+1);
+		writer.write(": ");
+		formatter.write(result.score, writer);
+		writer.write(",\n");
+		writeQuote("where", writer, indent+1);
+		writer.write(": ");
+		writeQuote(result.location, writer, 0);
+		writer.write("\n");
+		writeIndent(writer, indent);
+		writer.write("}");
+	}
+
+	/**
+	 * Writes the search results as a pretty JSON object of queries to arrays of
+	 * results. Produces the same output as
+	 * {@link #writeNestedMap(Map, Path, int)} on the formatted results.
+	 *
+	 * @param searchResults the search results to write
+	 * @param writer the writer to use
+	 * @param indent indent the initial indent level; the first bracket is not indented,
+	 *   inner elements are indented by one, and the last bracket is indented at
+	 *   the initial indentation level
+	 * @throws IOException if an IO error occurs
+	 *
+	 * @see #writeSearchResult(SearchResult, Writer, int, FixedPointFormatter)
+	 */
+	public static void writeSearchResults(Map<String, ? extends Collection<SearchResult>> searchResults,
+			Writer writer, int indent) throws IOException {
+		FixedPointFormatter formatter = new FixedPointFormatter(8);
+
+		writer.write("{\n");
+		var keyI = searchResults.entrySet().iterator();
+		while (keyI.hasNext()) {
+			var current = keyI.next();
+			writeIndent(writer, indent);
+			writeQuote(current.getKey(), writer, indent+1);
+			writer.write(": [\n");
+
+			var resultI = current.getValue().iterator();
+			while (resultI.hasNext()) {
+				writeIndent(writer, indent+2);
+				writeSearchResult(resultI.next(), writer, indent+2, formatter);
+				writer.write(resultI.hasNext() ? ",\n" : "\n");
+			}
+
+			writeIndent(writer, indent+1);
+			writer.write(keyI.hasNext() ? "],\n" : "]");
 		}
+
+		writer.write("\n");
+		writeIndent(writer, indent);
+		writer.write("}\n");
 	}
 
+	/**
+	 * Writes the search results as a pretty JSON object of queries to arrays of
+	 * results to file.
+	 *
+	 * @param searchResults the search results to write
+	 * @param path the path to write the pretty JSON object to
+	 * @param indent indent the initial indent level; the first bracket is not indented,
+	 *   inner elements are indented by one, and the last bracket is indented at
+	 *   the initial indentation level
+	 * @throws IOException if an IO error occurs
+	 *
+	 * @see #writeSearchResults(Map, Writer, int)
+	 */
+	public static void writeSearchResults(Map<String, ? extends Collection<SearchResult>> searchResults,
+			Path path, int indent) throws IOException {
+		OutputEvent event = new OutputEvent();
+		event.begin();
+
+		long start = WRITE_RESULTS.start();
+		try (BufferedWriter writer = Files.newBufferedWriter(path, UTF_8)) {
+			writeSearchResults(searchResults, writer, indent);
+		} finally {
+			WRITE_RESULTS.stop(start);
+			event.finish("results", OutputFormat.PRETTY, path, searchResults.size());
+		}
+	}
 
+	/**
+	 * Returns the search results as a pretty JSON object of queries to arrays of
+	 * results.
+	 *
+	 * @param searchResults the search results to use
+	 * @return a {@link String} containing the results in pretty JSON format
+	 *
+	 * @see StringWriter
+	 * @see #writeSearchResults(Map, Writer, int)
+	 */
+	public static String writeSearchResults(Map<String, ? extends Collection<SearchResult>> searchResults) {
+		try {
+			StringWriter writer = new StringWriter();
+			writeSearchResults(searchResults, writer, 0);
+			return writer.toString();
+		}
+		catch (IOException e) {
+			return null;
+		}
+	}
 }
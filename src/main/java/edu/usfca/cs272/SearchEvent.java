@@ -0,0 +1,37 @@
+package edu.usfca.cs272;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JDK Flight Recorder event emitted for every query searched by
+ * {@link WordSearcher}. The event duration covers finding, scoring, and sorting
+ * the results.
+ *
+ * @author Matthew Kahane
+ */
+@Name("edu.usfca.cs272.Search")
+@Label("Search")
+@Category({"Search Engine", "Searching"})
+@Description("Searches the inverted index for a single query")
+public class SearchEvent extends Event {
+
+	/** The cleaned and stemmed query, joined by spaces */
+	@Label("Stems")
+	String stems;
+
+	/** Whether the search was exact or partial */
+	@Label("Mode")
+	String mode;
+
+	/** The number of index words that matched a query stem */
+	@Label("Matched Terms")
+	int matchedTerms;
+
+	/** The number of documents that were scored */
+	@Label("Documents Scored")
+	int documentsScored;
+}
@@ -41,10 +41,8 @@ public class SearchResult implements Comparable<SearchResult> {
 				return 1;
 			} else if (this.count > o.count) {
 				return -1;
-			} else if (this.location.compareToIgnoreCase(o.location) < 0) {
-				return -1;
 			} else {
-				return 0;
+				return this.location.compareToIgnoreCase(o.location);
 			}
 		} else {
 			return -1;
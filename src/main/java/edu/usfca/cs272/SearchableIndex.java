@@ -0,0 +1,118 @@
+package edu.usfca.cs272;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * The parts of an index needed to search it: which locations each word is
+ * found in, how many times, and how many words each location contains.
+ *
+ * @author Matthew Kahane
+ */
+public interface SearchableIndex {
+
+	/**
+	 * Determines whether the word is stored in the index.
+	 *
+	 * @param word the word to lookup
+	 * @return {@true} if the word is stored in the index
+	 */
+	public boolean has(String word);
+
+	/**
+	 * Returns an unmodifiable view of the words stored in the index.
+	 *
+	 * @return an unmodifiable view of the words stored in the index
+	 */
+	public Collection<String> view();
+
+	/**
+	 * Returns the words stored in the index that start with the given prefix,
+	 * in sorted order.
+	 *
+	 * @param prefix the prefix to look for
+	 * @return the words that start with the prefix
+	 */
+	public default Collection<String> viewPrefix(String prefix) {
+		ArrayList<String> words = new ArrayList<>();
+		for (String word : view()) {
+			if (word.startsWith(prefix)) {
+				words.add(word);
+			}
+		}
+		Collections.sort(words);
+		return words;
+	}
+
+	/**
+	 * Returns the words stored in the index that match a wildcard pattern, in
+	 * sorted order. Indexes that keep a {@link TrigramIndex} of their words
+	 * should override this rather than check every word.
+	 *
+	 * @param pattern the pattern to match, where {@value TrigramIndex#WILDCARD}
+	 *   stands for any run of characters
+	 * @return the words that match the pattern
+	 */
+	public default Collection<String> viewMatching(String pattern) {
+		ArrayList<String> words = new ArrayList<>();
+		for (String word : view()) {
+			if (TrigramIndex.matches(pattern, word)) {
+				words.add(word);
+			}
+		}
+		Collections.sort(words);
+		return words;
+	}
+
+	/**
+	 * Returns the words stored in the index within a number of edits of a word,
+	 * in sorted order. Indexes that keep their words sorted should override this
+	 * rather than sort them for every word.
+	 *
+	 * @param word the word to look for
+	 * @param distance the most edits a word may be from the given word
+	 * @return the words within the distance of the given word
+	 *
+	 * @see SpellingIndex#match(String, int)
+	 */
+	public default Collection<String> viewSimilar(String word, int distance) {
+		return SpellingIndex.of(view()).match(word, distance);
+	}
+
+	/**
+	 * Returns an unmodifiable view of the locations stored in the index for a
+	 * given word.
+	 *
+	 * @param word the word to view the locations of
+	 * @return an unmodifiable view of the locations of the word, which is empty
+	 *   if the word is not in the index
+	 */
+	public Collection<String> view(String word);
+
+	/**
+	 * Returns the number of times a word is found at a given location
+	 *
+	 * @param word the word to count
+	 * @param location the location in which the word is found
+	 * @return 0 if the word is not found at the location, otherwise the number of
+	 *   times it is found there
+	 */
+	public int size(String word, String location);
+
+	/**
+	 * Gets the word count of a specific file
+	 *
+	 * @param location the location of the file to get the word count of
+	 * @return the word count of the file at the location given
+	 */
+	public int getWordCount(String location);
+
+	/**
+	 * Returns an unmodifiable view of the counts map
+	 *
+	 * @return An unmodifiable view of the counts map
+	 */
+	public Map<String, Integer> getWordCounts();
+}
@@ -0,0 +1,357 @@
+package edu.usfca.cs272;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static opennlp.tools.stemmer.snowball.SnowballStemmer.ALGORITHM.ENGLISH;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.MalformedInputException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import opennlp.tools.stemmer.Stemmer;
+import opennlp.tools.stemmer.snowball.SnowballStemmer;
+
+/**
+ * Reads snippets of text around the words a search matched, using the byte
+ * offset of each word position recorded by a {@link WordIndex}. A snippet is
+ * read with a single positioned read of just the bytes around the first match,
+ * instead of reading and stemming the whole file again to find it.
+ *
+ * The offsets are found while the file is stemmed, in a single pass over its
+ * bytes, mapped if it is large. Each run of characters between whitespace is
+ * cleaned and stemmed on its own, and the offset of the run is recorded along
+ * with its stem, so there is exactly one offset for every position. Cleaning
+ * the runs one at a time gives the same words as {@link WordCleaner}, which
+ * cleans a whole line and then splits it on the same whitespace.
+ *
+ * @author Matthew Kahane
+ *
+ * @see WordIndex#WordIndex(boolean)
+ */
+public class SnippetReader {
+
+	/** The most bytes read for a snippet */
+	public static final int MAX_BYTES = 1 << 12;
+
+	/**
+	 * Does not allow instantiation of this class
+	 */
+	private SnippetReader() {
+	}
+
+	/**
+	 * The cleaned and stemmed words of a file, with the byte offset each word
+	 * starts at
+	 */
+	public static class Words {
+		/** The stems, in order of position */
+		private final ArrayList<String> stems;
+
+		/** The offset of the first byte of each word, in order of position */
+		private final int[] offsets;
+
+		/**
+		 * Initializes the words of a file
+		 *
+		 * @param stems the stems, in order of position
+		 * @param offsets the offset of each stem
+		 */
+		private Words(ArrayList<String> stems, int[] offsets) {
+			this.stems = stems;
+			this.offsets = offsets;
+		}
+
+		/**
+		 * Returns the stems of the file
+		 *
+		 * @return the stems, in order of position
+		 */
+		public List<String> stems() {
+			return stems;
+		}
+
+		/**
+		 * Returns the byte offsets of the stems, which must not be modified
+		 *
+		 * @return the offset of the first byte of each word, in order of position
+		 */
+		public int[] offsets() {
+			return offsets;
+		}
+	}
+
+	/**
+	 * Cleans and stems the words of a UTF-8 text file, recording the byte
+	 * offset of each
+	 *
+	 * @param path the file to read
+	 * @return the stems of the file and their offsets
+	 * @throws IOException if unable to read the file, if it is not valid UTF-8,
+	 *   or if it is too large for its offsets to be stored as ints
+	 *
+	 * @see WordCleaner#listStems(Path)
+	 */
+	public static Words words(Path path) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			long size = channel.size();
+			if (size >= Integer.MAX_VALUE) {
+				throw new IOException("Too large to record offsets: " + path);
+			}
+
+			ByteBuffer bytes;
+			if (size >= MappedTextReader.MAP_THRESHOLD) {
+				bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+			} else {
+				bytes = read(channel, 0, (int) size);
+			}
+			return words(bytes);
+		}
+	}
+
+	/**
+	 * Cleans and stems the words of UTF-8 bytes, recording the offset of each
+	 *
+	 * @param bytes the bytes to read
+	 * @return the stems and their offsets
+	 * @throws MalformedInputException if the bytes are not valid UTF-8
+	 */
+	private static Words words(ByteBuffer bytes) throws MalformedInputException {
+		Stemmer stemmer = new SnowballStemmer(ENGLISH);
+		ArrayList<String> stems = new ArrayList<>();
+		int[] offsets = new int[Math.max(16, bytes.limit() / 8)];
+		StringBuilder ascii = new StringBuilder();
+
+		int start = -1;
+		boolean plain = true;
+
+		int i = 0;
+		while (i <= bytes.limit()) {
+			int codePoint;
+			int length;
+			if (i == bytes.limit()) {
+				codePoint = ' ';
+				length = 1;
+			} else {
+				length = length(bytes, i);
+				codePoint = decode(bytes, i, length);
+			}
+
+			if (isSpace(codePoint)) {
+				if (start >= 0) {
+					// most runs are plain ASCII, which cleans to its letters in lowercase
+					String cleaned = plain ? ascii.toString() : WordCleaner.clean(text(bytes, start, i));
+					if (!cleaned.isEmpty()) {
+						if (stems.size() == offsets.length) {
+							offsets = Arrays.copyOf(offsets, offsets.length * 2);
+						}
+						offsets[stems.size()] = start;
+						stems.add(stemmer.stem(cleaned).toString());
+					}
+				}
+				start = -1;
+				plain = true;
+				ascii.setLength(0);
+			} else {
+				if (start < 0) {
+					start = i;
+				}
+				if (codePoint >= 0x80) {
+					plain = false;
+				} else if (plain && Character.isLetter(codePoint)) {
+					ascii.append(Character.toLowerCase((char) codePoint));
+				}
+			}
+			i += length;
+		}
+		return new Words(stems, Arrays.copyOf(offsets, stems.size()));
+	}
+
+	/**
+	 * Returns the text around the first position in a location of any of the
+	 * given words, with the words around it on either side. Whitespace in the
+	 * snippet is collapsed to single spaces. If the words around the match
+	 * take up more than {@link #MAX_BYTES}, the snippet is cut down to the
+	 * words around the match that fit.
+	 *
+	 * @param index the index the words were found in, which must have recorded
+	 *   the offsets of the location
+	 * @param location the location to read the snippet from
+	 * @param words the words of the index to look for, such as the words a
+	 *   search matched
+	 * @param context the number of words to include before and after the match
+	 * @return the snippet, or {@code null} if none of the words are found in the
+	 *   location
+	 * @throws IOException if unable to read the location
+	 * @throws IllegalArgumentException if the offsets of the location were not
+	 *   recorded
+	 *
+	 * @see WordIndex#hasOffsets(String)
+	 */
+	public static String snippet(WordIndex index, String location, Collection<String> words, int context)
+			throws IOException {
+		if (!index.hasOffsets(location)) {
+			throw new IllegalArgumentException("Offsets were not recorded for: " + location);
+		}
+
+		int first = Integer.MAX_VALUE;
+		for (String word : words) {
+			for (int position : index.view(word, location)) {
+				first = Math.min(first, position);
+			}
+		}
+		if (first == Integer.MAX_VALUE) {
+			return null;
+		}
+
+		long match = index.offset(location, first);
+		long start = index.offset(location, Math.max(1, first - context));
+		long end = index.offset(location, first + context + 1);
+		try (FileChannel channel = FileChannel.open(Path.of(location), StandardOpenOption.READ)) {
+			if (end < 0) {
+				end = channel.size();
+			}
+
+			// the bytes read are centred on the match, so it is never cut off
+			boolean cutStart = false;
+			boolean cutEnd = false;
+			if (end - start > MAX_BYTES) {
+				cutStart = match - start > MAX_BYTES / 2;
+				start = cutStart ? match - MAX_BYTES / 2 : start;
+				cutEnd = end - start > MAX_BYTES;
+				end = cutEnd ? start + MAX_BYTES : end;
+			}
+
+			ByteBuffer bytes = read(channel, start, (int) (end - start));
+			int relative = (int) (match - start);
+			int from = 0;
+			int to = bytes.limit();
+
+			// words cut in half at either end are dropped, without dropping the match. bytes are
+			// signed, so only ASCII whitespace is found, which is never part of a longer character
+			if (cutStart) {
+				from = relative;
+				for (int i = 0; i < relative; i++) {
+					if (isSpace(bytes.get(i))) {
+						from = i + 1;
+						break;
+					}
+				}
+			}
+			if (cutEnd) {
+				for (int i = to - 1; i > relative; i--) {
+					if (isSpace(bytes.get(i))) {
+						to = i;
+						break;
+					}
+				}
+			}
+			return String.join(" ", WordCleaner.split(text(bytes, from, to)));
+		}
+	}
+
+	/**
+	 * Reads bytes from a channel with positioned reads, which do not move the
+	 * position of the channel
+	 *
+	 * @param channel the channel to read from
+	 * @param start the offset to start reading at
+	 * @param length the number of bytes to read
+	 * @return the bytes read, which are fewer than asked for if the file ends
+	 *   first
+	 * @throws IOException if unable to read from the channel
+	 */
+	private static ByteBuffer read(FileChannel channel, long start, int length) throws IOException {
+		ByteBuffer bytes = ByteBuffer.allocate(length);
+		while (bytes.hasRemaining()) {
+			if (channel.read(bytes, start + bytes.position()) < 0) {
+				break;
+			}
+		}
+		return bytes.flip();
+	}
+
+	/**
+	 * Returns the number of bytes in the UTF-8 character starting at an offset
+	 *
+	 * @param bytes the bytes to decode
+	 * @param offset the offset of the lead byte
+	 * @return the number of bytes in the character
+	 * @throws MalformedInputException if the bytes at the offset are not a
+	 *   whole UTF-8 character
+	 */
+	private static int length(ByteBuffer bytes, int offset) throws MalformedInputException {
+		int lead = bytes.get(offset) & 0xFF;
+		if (lead < 0x80) {
+			return 1;
+		}
+
+		int length = lead >= 0xC2 && lead < 0xE0 ? 2 : lead >= 0xE0 && lead < 0xF0 ? 3 : lead >= 0xF0 && lead < 0xF5 ? 4 : 0;
+		if (length == 0 || offset + length > bytes.limit()) {
+			throw new MalformedInputException(1);
+		}
+		for (int i = 1; i < length; i++) {
+			if ((bytes.get(offset + i) & 0xC0) != 0x80) {
+				throw new MalformedInputException(i);
+			}
+		}
+		return length;
+	}
+
+	/**
+	 * Decodes the UTF-8 character starting at an offset
+	 *
+	 * @param bytes the bytes to decode
+	 * @param offset the offset of the lead byte
+	 * @param length the number of bytes in the character
+	 * @return the code point of the character
+	 *
+	 * @see #length(ByteBuffer, int)
+	 */
+	private static int decode(ByteBuffer bytes, int offset, int length) {
+		int lead = bytes.get(offset) & 0xFF;
+		if (length == 1) {
+			return lead;
+		}
+		int codePoint = lead & (0xFF >> (length + 1));
+		for (int i = 1; i < length; i++) {
+			codePoint = codePoint << 6 | bytes.get(offset + i) & 0x3F;
+		}
+		return codePoint;
+	}
+
+	/**
+	 * Decodes a range of UTF-8 bytes, replacing any that are not valid
+	 *
+	 * @param bytes the bytes to decode
+	 * @param from the offset of the first byte
+	 * @param to the offset after the last byte
+	 * @return the decoded text
+	 */
+	private static String text(ByteBuffer bytes, int from, int to) {
+		byte[] range = new byte[to - from];
+		bytes.get(from, range);
+		return new String(range, UTF_8);
+	}
+
+	/**
+	 * Determines whether a character is whitespace as {@link WordCleaner#SPLIT_REGEX}
+	 * matches it, which is the Unicode White_Space property
+	 *
+	 * @param codePoint the character to check
+	 * @return {@code true} if the character separates words
+	 */
+	private static boolean isSpace(int codePoint) {
+		switch (codePoint) {
+			case 0x20, 0x85, 0xA0, 0x1680, 0x2028, 0x2029, 0x202F, 0x205F, 0x3000:
+				return true;
+			default:
+				return codePoint >= 0x09 && codePoint <= 0x0D || codePoint >= 0x2000 && codePoint <= 0x200A;
+		}
+	}
+}
@@ -0,0 +1,178 @@
+package edu.usfca.cs272;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Finds the words of a sorted vocabulary within a few edits of a word, to
+ * search for words with typos in them. An edit inserts, deletes, or replaces
+ * one character, or swaps two adjacent characters.
+ *
+ * The distance to each word is computed a row of the edit distance table at a
+ * time, one row per character of the word. Since the words are sorted, a word
+ * reuses the rows of the prefix it shares with the word before it, which walks
+ * the vocabulary as if it were a prefix tree. Once every entry of a row is over
+ * the distance, no word starting with that prefix can be close enough, and
+ * they are all skipped at once by a binary search. Only the prefixes within
+ * the distance of some prefix of the word are visited, rather than the whole
+ * vocabulary.
+ *
+ * @author Matthew Kahane
+ *
+ * @see SearchableIndex#viewSimilar(String, int)
+ */
+public class SpellingIndex {
+
+	/** The words in sorted order */
+	private final String[] words;
+
+	/**
+	 * Initializes an index of words that are already sorted
+	 *
+	 * @param words the distinct words in sorted order, which must not be
+	 *   modified
+	 */
+	public SpellingIndex(String[] words) {
+		this.words = words;
+	}
+
+	/**
+	 * Builds an index of words
+	 *
+	 * @param words the distinct words to index
+	 * @return the index of the words
+	 */
+	public static SpellingIndex of(Collection<String> words) {
+		String[] sorted = words.toArray(String[]::new);
+		Arrays.sort(sorted);
+		return new SpellingIndex(sorted);
+	}
+
+	/**
+	 * Returns the words within a number of edits of a word, in sorted order
+	 *
+	 * @param query the word to look for
+	 * @param distance the most edits a word may be from the query
+	 * @return the words within the distance of the query, including the query
+	 *   itself if it is a word
+	 */
+	public List<String> match(String query, int distance) {
+		ArrayList<String> matches = new ArrayList<>();
+		int length = query.length();
+
+		// row d holds the distances from the first d characters of the last word to each prefix of the query,
+		// and a row more than the distance past the length of the query is always pruned
+		int[][] rows = new int[length + distance + 2][length + 1];
+		for (int j = 0; j <= length; j++) {
+			rows[0][j] = Math.min(j, distance + 1);
+		}
+
+		String last = "";
+		int depth = 0;
+		int i = 0;
+		while (i < words.length) {
+			String word = words[i];
+			int row = 0;
+			int shared = Math.min(depth, word.length());
+			while (row < shared && word.charAt(row) == last.charAt(row)) {
+				row++;
+			}
+
+			boolean pruned = false;
+			while (row < word.length() && !pruned) {
+				row++;
+				pruned = fill(rows, row, word, query, distance) > distance;
+			}
+			last = word;
+			depth = row;
+
+			if (pruned) {
+				i = skip(word, row, i);
+			} else {
+				if (Math.abs(row - length) <= distance && rows[row][length] <= distance) {
+					matches.add(word);
+				}
+				i++;
+			}
+		}
+		return matches;
+	}
+
+	/**
+	 * Computes a row of the edit distance table from the rows before it. Only
+	 * the entries at most the distance away from the diagonal are computed,
+	 * since the others are always over the distance, and the entries just
+	 * outside that band are set to one over the distance for the next row to
+	 * read.
+	 *
+	 * @param rows the rows of the table, which are filled up to the one before
+	 * @param row the row to compute, which is the number of characters of the
+	 *   word it is for
+	 * @param word the word whose prefix the row is for
+	 * @param query the word being looked for
+	 * @param distance the most edits a word may be from the query
+	 * @return the smallest distance in the row, or one over the distance if
+	 *   every entry is over it
+	 */
+	private static int fill(int[][] rows, int row, String word, String query, int distance) {
+		int[] previous = rows[row - 1];
+		int[] current = rows[row];
+		char c = word.charAt(row - 1);
+		int over = distance + 1;
+		int low = Math.max(1, row - distance);
+		int high = Math.min(query.length(), row + distance);
+
+		current[0] = Math.min(row, over);
+		current[low - 1] = low == 1 ? current[0] : over;
+		if (high < query.length()) {
+			current[high + 1] = over;
+		}
+
+		int smallest = low == 1 ? current[0] : over;
+		for (int j = low; j <= high; j++) {
+			char q = query.charAt(j - 1);
+			int edits = Math.min(previous[j - 1] + (c == q ? 0 : 1), Math.min(previous[j], current[j - 1]) + 1);
+			if (row > 1 && j > 1 && c == query.charAt(j - 2) && word.charAt(row - 2) == q) {
+				edits = Math.min(edits, rows[row - 2][j - 2] + 1);
+			}
+			current[j] = Math.min(edits, over);
+			smallest = Math.min(smallest, current[j]);
+		}
+		return smallest;
+	}
+
+	/**
+	 * Finds the first word after a position that does not start with a prefix
+	 * of the word at that position. Most prefixes are shared by only a few
+	 * words, so the search gallops forward before it narrows down.
+	 *
+	 * @param word the word at the position
+	 * @param length the length of the prefix
+	 * @param position the position of the word
+	 * @return the position of the first later word without the prefix
+	 */
+	private int skip(String word, int length, int position) {
+		int shared = position;
+		int next = position + 1;
+		int step = 1;
+		while (next < words.length && words[next].regionMatches(0, word, 0, length)) {
+			shared = next;
+			next += step;
+			step *= 2;
+		}
+
+		int low = shared + 1;
+		int high = Math.min(next, words.length);
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (words[middle].regionMatches(0, word, 0, length)) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+}
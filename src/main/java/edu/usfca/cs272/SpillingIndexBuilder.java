@@ -0,0 +1,788 @@
+package edu.usfca.cs272;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+
+/**
+ * Builds an inverted index that may be much larger than the heap. Postings are
+ * collected in memory until their estimated size exceeds a budget, then
+ * written to disk as a run sorted by word and location. The runs are combined
+ * with a k-way merge when the index is written or loaded. The merge visits
+ * locations in order as it reads them, so only the locations of the current
+ * word and the positions of a single location are held in memory at a time.
+ *
+ * The word counts (one entry per file) are always kept in memory. The output of
+ * {@link #write(WritableByteChannel, OutputFormat, int)} is identical to
+ * {@link ParallelIndexWriter} writing a {@link WordIndex} built from the same
+ * files.
+ *
+ * @author Matthew Kahane
+ */
+public class SpillingIndexBuilder implements FileFinder.StemInput, Closeable {
+
+	/** Estimated bytes used by a word the buffer has not seen before */
+	private static final int WORD_BYTES = 120;
+
+	/** Estimated bytes used by a location the current word has not seen before */
+	private static final int LOCATION_BYTES = 100;
+
+	/** Estimated bytes used by a single position */
+	private static final int POSITION_BYTES = 20;
+
+	/** Measures the time spent indexing files */
+	private static final Stats.Timer INDEX = Stats.timer(Stats.INDEX);
+
+	/** Measures the time spent adding words to the buffer */
+	private static final Stats.Timer INSERT = Stats.timer(Stats.INSERT);
+
+	/** Measures the time spent writing runs */
+	private static final Stats.Timer SPILL = Stats.timer(Stats.SPILL);
+
+	/** Measures the time spent merging runs */
+	private static final Stats.Timer MERGE = Stats.timer(Stats.MERGE);
+
+	/** Counts the files indexed */
+	private static final Stats.Counter FILES = Stats.counter(Stats.FILES);
+
+	/** Counts the bytes of the files indexed */
+	private static final Stats.Counter BYTES = Stats.counter(Stats.BYTES);
+
+	/** Counts the stemmed words produced */
+	private static final Stats.Counter TOKENS = Stats.counter(Stats.TOKENS);
+
+	/** Counts the positions added */
+	private static final Stats.Counter POSTINGS = Stats.counter(Stats.POSTINGS);
+
+	/** Counts the runs written */
+	private static final Stats.Counter RUNS = Stats.counter(Stats.RUNS);
+
+	/** The postings collected since the last run was written */
+	private final TreeMap<String, TreeMap<String, ArrayList<Integer>>> buffer;
+
+	/** The number of words in each location */
+	private final TreeMap<String, Integer> counts;
+
+	/** The runs written so far, in the order they were written */
+	private final ArrayList<Path> runs;
+
+	/** The directory runs are written to */
+	private final Path directory;
+
+	/** Whether the directory was created by this builder */
+	private final boolean temporary;
+
+	/** The estimated size of the buffer in bytes before a run is written */
+	private final long budget;
+
+	/** The estimated size of the buffer in bytes */
+	private long used;
+
+	/**
+	 * Initializes a builder that writes its runs to a new temporary directory,
+	 * which is deleted when the builder is closed.
+	 *
+	 * @param budget the estimated size of the postings buffer in bytes before it
+	 *   is written to disk
+	 * @throws IOException if the directory cannot be created
+	 */
+	public SpillingIndexBuilder(long budget) throws IOException {
+		this(budget, Files.createTempDirectory("index-runs"), true);
+	}
+
+	/**
+	 * Initializes a builder that writes its runs to the given directory. The
+	 * runs are deleted when the builder is closed, but the directory is not.
+	 *
+	 * @param budget the estimated size of the postings buffer in bytes before it
+	 *   is written to disk
+	 * @param directory the existing directory to write runs to
+	 */
+	public SpillingIndexBuilder(long budget, Path directory) {
+		this(budget, directory, false);
+	}
+
+	/**
+	 * Initializes a builder.
+	 *
+	 * @param budget the estimated size of the postings buffer in bytes
+	 * @param directory the directory to write runs to
+	 * @param temporary whether to delete the directory when closed
+	 */
+	private SpillingIndexBuilder(long budget, Path directory, boolean temporary) {
+		if (budget < 1) {
+			throw new IllegalArgumentException("Budget must be at least 1 byte");
+		}
+		this.buffer = new TreeMap<>();
+		this.counts = new TreeMap<>();
+		this.runs = new ArrayList<>();
+		this.directory = directory;
+		this.temporary = temporary;
+		this.budget = budget;
+		this.used = 0;
+	}
+
+	/**
+	 * Adds a position to the buffer, writing the buffer to a run first if it is
+	 * full. Positions must be added in increasing order for each location.
+	 *
+	 * @param word the word to add
+	 * @param location the location of the word
+	 * @param position the position of the word in the location
+	 * @throws IOException if a run cannot be written
+	 */
+	public void add(String word, String location, int position) throws IOException {
+		if (used >= budget) {
+			spill();
+		}
+
+		TreeMap<String, ArrayList<Integer>> locations = buffer.get(word);
+		if (locations == null) {
+			locations = new TreeMap<>();
+			buffer.put(word, locations);
+			used += WORD_BYTES + 2L * word.length();
+		}
+
+		ArrayList<Integer> positions = locations.get(location);
+		if (positions == null) {
+			positions = new ArrayList<>();
+			locations.put(location, positions);
+			used += LOCATION_BYTES;
+		}
+
+		positions.add(position);
+		used += POSITION_BYTES;
+	}
+
+	/**
+	 * Adds a word count to the map of word counts
+	 *
+	 * @param location the location of the file
+	 * @param numWords the number of words in the file
+	 */
+	public void addWordCount(String location, int numWords) {
+		counts.put(location, numWords);
+	}
+
+	/**
+	 * Returns an unmodifiable view of the word counts
+	 *
+	 * @return the number of words in each location
+	 */
+	public Map<String, Integer> getWordCounts() {
+		return Collections.unmodifiableMap(counts);
+	}
+
+	/**
+	 * Returns the number of runs written to disk so far
+	 *
+	 * @return the number of runs
+	 */
+	public int runs() {
+		return runs.size();
+	}
+
+	@Override
+	public void inputFile(Path path) throws IOException {
+		long start = INDEX.start();
+		ArrayList<String> cleanedWords = WordCleaner.listStems(path);
+		inputStems(path.toString(), cleanedWords);
+		INDEX.stop(start);
+
+		if (Stats.isEnabled()) {
+			BYTES.add(Files.size(path));
+		}
+	}
+
+	@Override
+	public void inputStems(String location, List<String> cleanedWords) throws IOException {
+		if (cleanedWords.size() > 0) {
+			this.addWordCount(location, cleanedWords.size());
+		}
+
+		long insert = INSERT.start();
+		for (int i = 0; i < cleanedWords.size(); i++) {
+			this.add(cleanedWords.get(i), location, i+1);
+		}
+		INSERT.stop(insert);
+
+		if (Stats.isEnabled()) {
+			FILES.add(1);
+			TOKENS.add(cleanedWords.size());
+			POSTINGS.add(cleanedWords.size());
+		}
+	}
+
+	/**
+	 * Writes the buffer to a new run and clears it. Each word is written as a
+	 * marker, the word, its number of locations, and the path of each location.
+	 * The paths are followed by the positions of each location, written as their
+	 * number and the gaps between them as variable-length integers, so the
+	 * locations of a word can be counted before any positions are read. Words
+	 * and paths are written as their length in bytes and their UTF-8 bytes, so
+	 * they may be of any length.
+	 *
+	 * The run is registered before it is written, so a run that fails part way
+	 * is still deleted when the builder is closed.
+	 *
+	 * @throws IOException if the run cannot be written
+	 */
+	private void spill() throws IOException {
+		if (buffer.isEmpty()) {
+			return;
+		}
+
+		long start = SPILL.start();
+		Path run = directory.resolve(String.format("run-%06d.bin", runs.size()));
+		runs.add(run);
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(run), 1 << 16))) {
+			for (var word : buffer.entrySet()) {
+				out.writeBoolean(true);
+				writeString(out, word.getKey());
+				writeVarInt(out, word.getValue().size());
+
+				for (String location : word.getValue().keySet()) {
+					writeString(out, location);
+				}
+
+				for (ArrayList<Integer> positions : word.getValue().values()) {
+					writeVarInt(out, positions.size());
+
+					int previous = 0;
+					for (int i = 0; i < positions.size(); i++) {
+						int position = positions.get(i);
+						writeVarInt(out, position - previous);
+						previous = position;
+					}
+				}
+			}
+			out.writeBoolean(false);
+		} catch (IOException e) {
+			// the partial run would be read as if it were whole, so it is removed now
+			runs.remove(runs.size() - 1);
+			Files.deleteIfExists(run);
+			throw e;
+		} finally {
+			SPILL.stop(start);
+		}
+
+		RUNS.add(1);
+		buffer.clear();
+		used = 0;
+	}
+
+	/**
+	 * Merges the runs and passes every word to the visitor in sorted order, as
+	 * {@link WordIndex#visit(IndexVisitor)} would. Any postings still in the
+	 * buffer are written to a run first. May be called more than once.
+	 *
+	 * The positions passed to the visitor are only valid until the next location
+	 * is visited, since the same list is reused for every location.
+	 *
+	 * @param visitor the visitor to pass words to
+	 * @return the number of words visited
+	 * @throws IOException if a run cannot be read or the visitor throws one
+	 */
+	public int merge(IndexVisitor<String> visitor) throws IOException {
+		spill();
+
+		long start = MERGE.start();
+		try (RunMerger merger = new RunMerger(runs)) {
+			ArrayList<Integer> positions = new ArrayList<>();
+			List<Integer> view = Collections.unmodifiableList(positions);
+
+			int words = 0;
+			String word;
+			while ((word = merger.nextWord()) != null) {
+				if (visitor.visitWord(word, merger.locations())) {
+					String location;
+					while ((location = merger.nextLocation()) != null) {
+						positions.clear();
+						merger.readPositions(positions);
+						visitor.visitLocation(location, view);
+					}
+				}
+				visitor.endWord(word);
+				words++;
+			}
+			return words;
+		} finally {
+			MERGE.stop(start);
+		}
+	}
+
+	/**
+	 * Merges the runs into a {@link FrequencyIndex} for searching. Only the
+	 * number of positions of each word in each location is kept, and the
+	 * positions are skipped over as they are read, so none are held in memory.
+	 * The word counts are added as well. Any postings still in the buffer are
+	 * written to a run first.
+	 *
+	 * @param index the index to add to
+	 * @throws IOException if a run cannot be read
+	 */
+	public void mergeInto(FrequencyIndex index) throws IOException {
+		counts.forEach(index::addWordCount);
+		spill();
+
+		long start = MERGE.start();
+		try (RunMerger merger = new RunMerger(runs)) {
+			String word;
+			while ((word = merger.nextWord()) != null) {
+				String location;
+				while ((location = merger.nextLocation()) != null) {
+					index.add(word, location, merger.skipPositions());
+				}
+			}
+		} finally {
+			MERGE.stop(start);
+		}
+	}
+
+	/**
+	 * Merges the runs and writes the index in the given format to the channel.
+	 * The channel is not closed.
+	 *
+	 * @param channel the channel to write to
+	 * @param format the format to write the index in
+	 * @param indent the level of indent; only used by {@link OutputFormat#PRETTY}
+	 * @throws IOException if an IO error occurs
+	 */
+	public void write(WritableByteChannel channel, OutputFormat format, int indent) throws IOException {
+		Writer writer = new BufferedWriter(Channels.newWriter(channel, UTF_8), 1 << 16);
+		writer.write(ParallelIndexWriter.header(format));
+		int words = merge(ParallelIndexWriter.renderer(writer, format, true, indent));
+		writer.write(ParallelIndexWriter.footer(format, words == 0, indent));
+		writer.flush();
+	}
+
+	/**
+	 * Deletes the runs, and the directory if it was created by this builder.
+	 *
+	 * @throws IOException if a run cannot be deleted
+	 */
+	@Override
+	public void close() throws IOException {
+		for (Path run : runs) {
+			Files.deleteIfExists(run);
+		}
+		runs.clear();
+		buffer.clear();
+		used = 0;
+
+		if (temporary) {
+			Files.deleteIfExists(directory);
+		}
+	}
+
+	/**
+	 * Writes a non-negative integer using 7 bits per byte, low bits first.
+	 *
+	 * @param out the stream to write to
+	 * @param value the value to write
+	 * @throws IOException if an IO error occurs
+	 */
+	private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+		while ((value & ~0x7F) != 0) {
+			out.writeByte((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		out.writeByte(value);
+	}
+
+	/**
+	 * Writes a string as its length in bytes followed by its UTF-8 bytes. Unlike
+	 * {@link DataOutputStream#writeUTF(String)}, the string may be longer than
+	 * 65535 bytes.
+	 *
+	 * @param out the stream to write to
+	 * @param text the string to write
+	 * @throws IOException if an IO error occurs
+	 */
+	private static void writeString(DataOutputStream out, String text) throws IOException {
+		byte[] bytes = text.getBytes(UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	/**
+	 * Reads a string written by {@link #writeString(DataOutputStream, String)}.
+	 *
+	 * @param in the stream to read from
+	 * @return the string read
+	 * @throws IOException if an IO error occurs
+	 */
+	private static String readString(DataInputStream in) throws IOException {
+		byte[] bytes = new byte[in.readInt()];
+		in.readFully(bytes);
+		return new String(bytes, UTF_8);
+	}
+
+	/**
+	 * Reads an integer written by {@link #writeVarInt(DataOutputStream, int)}.
+	 *
+	 * @param in the stream to read from
+	 * @return the value read
+	 * @throws IOException if an IO error occurs
+	 */
+	private static int readVarInt(DataInputStream in) throws IOException {
+		int value = 0;
+		for (int shift = 0; ; shift += 7) {
+			int next = in.readUnsignedByte();
+			value |= (next & 0x7F) << shift;
+			if ((next & 0x80) == 0) {
+				return value;
+			}
+		}
+	}
+
+	/**
+	 * Merges the words of several runs, and the locations of each word, in
+	 * sorted order. A location whose positions were split between runs is
+	 * visited once, with the positions of the earlier runs first.
+	 */
+	private static class RunMerger implements Closeable {
+		/** The readers that are not at the current word, by word */
+		private final PriorityQueue<RunReader> words;
+
+		/** The readers at the current word with locations left, by location */
+		private final PriorityQueue<RunReader> locations;
+
+		/** The readers at the current word, in the order their runs were written */
+		private final ArrayList<RunReader> current;
+
+		/** The readers at the current location, in the order their runs were written */
+		private final ArrayList<RunReader> location;
+
+		/** Locations already read, so each name is kept once */
+		private final HashMap<String, String> names;
+
+		/** The number of locations of the current word */
+		private int size;
+
+		/**
+		 * Opens the runs, which move to their first word with the first call to
+		 * {@link #nextWord()}
+		 *
+		 * @param runs the runs to merge, in the order they were written
+		 * @throws IOException if a run cannot be opened
+		 */
+		public RunMerger(List<Path> runs) throws IOException {
+			this.words = new PriorityQueue<>();
+			this.locations = new PriorityQueue<>(RunReader::compareLocation);
+			this.current = new ArrayList<>();
+			this.location = new ArrayList<>();
+			this.names = new HashMap<>();
+
+			try {
+				for (int i = 0; i < runs.size(); i++) {
+					current.add(new RunReader(runs.get(i), i));
+				}
+			} catch (IOException e) {
+				close();
+				throw e;
+			}
+		}
+
+		/**
+		 * Moves to the next word, skipping any locations of the current word
+		 * that were not visited
+		 *
+		 * @return the next word, or {@code null} if there are none left
+		 * @throws IOException if a run cannot be read
+		 */
+		public String nextWord() throws IOException {
+			while (nextLocation() != null) {
+				skipPositions();
+			}
+
+			for (RunReader reader : current) {
+				if (reader.next()) {
+					words.add(reader);
+				} else {
+					reader.close();
+				}
+			}
+			current.clear();
+
+			if (words.isEmpty()) {
+				return null;
+			}
+
+			// runs with the same word are polled in the order they were written
+			String word = words.peek().word;
+			while (!words.isEmpty() && words.peek().word.equals(word)) {
+				RunReader reader = words.poll();
+				reader.readLocations(names);
+				current.add(reader);
+			}
+
+			// the locations are counted by merging their names, without reading any positions
+			size = 0;
+			String previous = null;
+			queueLocations();
+			while (!locations.isEmpty()) {
+				RunReader reader = locations.poll();
+				if (!reader.location().equals(previous)) {
+					previous = reader.location();
+					size++;
+				}
+				reader.cursor++;
+				if (reader.cursor < reader.size) {
+					locations.add(reader);
+				}
+			}
+			for (RunReader reader : current) {
+				reader.cursor = 0;
+			}
+			queueLocations();
+			return word;
+		}
+
+		/**
+		 * Returns the number of locations of the current word
+		 *
+		 * @return the number of locations
+		 */
+		public int locations() {
+			return size;
+		}
+
+		/**
+		 * Moves to the next location of the current word, skipping the positions
+		 * of the current location if they were not read
+		 *
+		 * @return the next location, or {@code null} if there are none left
+		 * @throws IOException if a run cannot be read
+		 */
+		public String nextLocation() throws IOException {
+			if (!location.isEmpty()) {
+				skipPositions();
+			}
+			if (locations.isEmpty()) {
+				return null;
+			}
+
+			String next = locations.peek().location();
+			while (!locations.isEmpty() && locations.peek().location().equals(next)) {
+				location.add(locations.poll());
+			}
+			return next;
+		}
+
+		/**
+		 * Reads the positions of the current location
+		 *
+		 * @param positions the list to add the positions to, in increasing order
+		 * @throws IOException if a run cannot be read
+		 */
+		public void readPositions(ArrayList<Integer> positions) throws IOException {
+			for (RunReader reader : location) {
+				reader.readPositions(positions);
+				requeue(reader);
+			}
+			location.clear();
+		}
+
+		/**
+		 * Skips over the positions of the current location
+		 *
+		 * @return the number of positions skipped
+		 * @throws IOException if a run cannot be read
+		 */
+		public int skipPositions() throws IOException {
+			int count = 0;
+			for (RunReader reader : location) {
+				count += reader.skipPositions();
+				requeue(reader);
+			}
+			location.clear();
+			return count;
+		}
+
+		/**
+		 * Adds the readers at the current word that have locations to the queue
+		 * of locations
+		 */
+		private void queueLocations() {
+			for (RunReader reader : current) {
+				if (reader.cursor < reader.size) {
+					locations.add(reader);
+				}
+			}
+		}
+
+		/**
+		 * Returns a reader to the queue of locations if it has locations left
+		 *
+		 * @param reader the reader whose location was read
+		 */
+		private void requeue(RunReader reader) {
+			if (reader.cursor < reader.size) {
+				locations.add(reader);
+			}
+		}
+
+		@Override
+		public void close() throws IOException {
+			for (RunReader reader : words) {
+				reader.close();
+			}
+			for (RunReader reader : current) {
+				reader.close();
+			}
+			words.clear();
+			current.clear();
+			locations.clear();
+			location.clear();
+		}
+	}
+
+	/**
+	 * Reads the words of a single run in order. Readers are ordered by their
+	 * current word, then by the order their runs were written.
+	 */
+	private static class RunReader implements Comparable<RunReader>, Closeable {
+		/** The stream the run is read from */
+		private final DataInputStream in;
+
+		/** The position of the run in the order runs were written */
+		private final int order;
+
+		/** The current word */
+		private String word;
+
+		/** The locations of the current word, once they have been read */
+		private String[] locations;
+
+		/** The number of locations of the current word */
+		private int size;
+
+		/** The index of the location whose positions are read next */
+		private int cursor;
+
+		/**
+		 * Opens a run
+		 *
+		 * @param run the path of the run
+		 * @param order the position of the run in the order runs were written
+		 * @throws IOException if the run cannot be opened
+		 */
+		public RunReader(Path run, int order) throws IOException {
+			this.in = new DataInputStream(new BufferedInputStream(Files.newInputStream(run), 1 << 16));
+			this.order = order;
+			this.locations = new String[16];
+		}
+
+		/**
+		 * Moves to the next word in the run. The positions of the current word
+		 * must have been read or skipped first.
+		 *
+		 * @return whether there is another word
+		 * @throws IOException if an IO error occurs
+		 */
+		public boolean next() throws IOException {
+			word = in.readBoolean() ? readString(in) : null;
+			size = 0;
+			cursor = 0;
+			return word != null;
+		}
+
+		/**
+		 * Reads the locations of the current word, but none of their positions
+		 *
+		 * @param names locations already read, so each name is kept once
+		 * @throws IOException if an IO error occurs
+		 */
+		public void readLocations(Map<String, String> names) throws IOException {
+			size = readVarInt(in);
+			if (size > locations.length) {
+				locations = new String[Math.max(size, locations.length * 2)];
+			}
+			for (int i = 0; i < size; i++) {
+				locations[i] = names.computeIfAbsent(readString(in), name -> name);
+			}
+		}
+
+		/**
+		 * Returns the location whose positions are read next
+		 *
+		 * @return the location
+		 */
+		public String location() {
+			return locations[cursor];
+		}
+
+		/**
+		 * Reads the positions of the current location and moves to the next
+		 *
+		 * @param positions the list to add the positions to
+		 * @throws IOException if an IO error occurs
+		 */
+		public void readPositions(ArrayList<Integer> positions) throws IOException {
+			int count = readVarInt(in);
+			int position = 0;
+			for (int i = 0; i < count; i++) {
+				position += readVarInt(in);
+				positions.add(position);
+			}
+			cursor++;
+		}
+
+		/**
+		 * Skips over the positions of the current location and moves to the next
+		 *
+		 * @return the number of positions skipped
+		 * @throws IOException if an IO error occurs
+		 */
+		public int skipPositions() throws IOException {
+			int count = readVarInt(in);
+			for (int i = 0; i < count; i++) {
+				readVarInt(in);
+			}
+			cursor++;
+			return count;
+		}
+
+		/**
+		 * Compares readers by the location whose positions are read next, then by
+		 * the order their runs were written
+		 *
+		 * @param other the reader to compare to
+		 * @return the result of the comparison
+		 */
+		public int compareLocation(RunReader other) {
+			int compare = location().compareTo(other.location());
+			return compare != 0 ? compare : Integer.compare(order, other.order);
+		}
+
+		@Override
+		public int compareTo(RunReader other) {
+			int compare = word.compareTo(other.word);
+			return compare != 0 ? compare : Integer.compare(order, other.order);
+		}
+
+		@Override
+		public void close() throws IOException {
+			in.close();
+		}
+	}
+}
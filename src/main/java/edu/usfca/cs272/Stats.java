@@ -0,0 +1,377 @@
+package edu.usfca.cs272;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collects named timers and counters describing where a run spends its time,
+ * and writes them as a pretty JSON report. Collection is disabled by default;
+ * while disabled, starting and stopping a timer or adding to a counter only
+ * checks a flag.
+ *
+ * Timers and counters are created once (usually as static fields of the class
+ * being measured) and are safe to update from multiple threads.
+ *
+ * @author Matthew Kahane
+ */
+public class Stats {
+
+	/** Time spent walking directories to find text files */
+	public static final String WALK = "walk";
+
+	/** Time spent indexing files, including reading, tokenizing, and stemming */
+	public static final String INDEX = "index";
+
+	/** Time spent reading files */
+	public static final String READ = "read";
+
+	/** Time spent cleaning and splitting text */
+	public static final String TOKENIZE = "tokenize";
+
+	/** Time spent stemming words */
+	public static final String STEM = "stem";
+
+	/** Time spent adding words to the index */
+	public static final String INSERT = "insert";
+
+	/** Time spent writing sorted runs of postings to disk */
+	public static final String SPILL = "spill";
+
+	/** Time spent merging sorted runs of postings */
+	public static final String MERGE = "merge";
+
+	/** Time spent hashing the content of text files to find duplicates */
+	public static final String HASH = "hash";
+
+	/** Time spent crawling web pages, from the first request to the last page indexed */
+	public static final String CRAWL = "crawl";
+
+	/** Time spent downloading, parsing, and stemming each web page */
+	public static final String FETCH = "fetch";
+
+	/** Time spent searching the index */
+	public static final String SEARCH = "search";
+
+	/** Time spent writing the index */
+	public static final String WRITE_INDEX = "write.index";
+
+	/** Time spent writing the word counts */
+	public static final String WRITE_COUNTS = "write.counts";
+
+	/** Time spent writing the search results */
+	public static final String WRITE_RESULTS = "write.results";
+
+	/** Number of text files indexed */
+	public static final String FILES = "files";
+
+	/** Number of bytes in the text files indexed */
+	public static final String BYTES = "bytes";
+
+	/** Number of stemmed words produced */
+	public static final String TOKENS = "tokens";
+
+	/** Number of positions added to the index */
+	public static final String POSTINGS = "postings";
+
+	/** Number of sorted runs of postings written to disk */
+	public static final String RUNS = "runs";
+
+	/** Number of text files whose stems were reused from an identical file */
+	public static final String DUPLICATES = "duplicates";
+
+	/** Number of bytes in duplicate text files that were not read again */
+	public static final String DUPLICATE_BYTES = "duplicate bytes";
+
+	/** Number of stemmed words reused from identical files instead of stemmed */
+	public static final String REUSED_TOKENS = "reused tokens";
+
+	/** Number of web pages downloaded and indexed */
+	public static final String PAGES = "pages";
+
+	/** Number of bytes downloaded while crawling */
+	public static final String DOWNLOADED = "downloaded";
+
+	/** Number of non-empty queries searched */
+	public static final String QUERIES = "queries";
+
+	/** Number of search results found */
+	public static final String RESULTS = "results";
+
+	/** Whether timers and counters are currently collecting */
+	private static volatile boolean enabled = false;
+
+	/** Every timer created so far, by name */
+	private static final Map<String, Timer> timers = new ConcurrentHashMap<>();
+
+	/** Every counter created so far, by name */
+	private static final Map<String, Counter> counters = new ConcurrentHashMap<>();
+
+	/** Prevents instantiation of this utility class */
+	private Stats() {
+	}
+
+	/**
+	 * Starts collecting timers and counters.
+	 */
+	public static void enable() {
+		enabled = true;
+	}
+
+	/**
+	 * Determines whether timers and counters are collecting.
+	 *
+	 * @return {@code true} if timers and counters are collecting
+	 */
+	public static boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * Resets every timer and counter to zero.
+	 */
+	public static void reset() {
+		timers.values().forEach(Timer::reset);
+		counters.values().forEach(Counter::reset);
+	}
+
+	/**
+	 * Returns the timer with the given name, creating it if necessary.
+	 *
+	 * @param name the name of the timer
+	 * @return the timer with that name
+	 */
+	public static Timer timer(String name) {
+		return timers.computeIfAbsent(name, Timer::new);
+	}
+
+	/**
+	 * Returns the counter with the given name, creating it if necessary.
+	 *
+	 * @param name the name of the counter
+	 * @return the counter with that name
+	 */
+	public static Counter counter(String name) {
+		return counters.computeIfAbsent(name, Counter::new);
+	}
+
+	/**
+	 * Writes the timers, counters, and throughput rates as a pretty JSON object.
+	 *
+	 * @param writer the writer to use
+	 * @throws IOException if an IO error occurs
+	 */
+	public static void writeReport(Writer writer) throws IOException {
+		TreeMap<String, Double> seconds = new TreeMap<>();
+		TreeMap<String, Long> calls = new TreeMap<>();
+		for (Timer timer : timers.values()) {
+			seconds.put(timer.name, timer.seconds());
+			calls.put(timer.name, timer.calls());
+		}
+
+		TreeMap<String, Long> totals = new TreeMap<>();
+		for (Counter counter : counters.values()) {
+			totals.put(counter.name, counter.sum());
+		}
+
+		TreeMap<String, Double> rates = new TreeMap<>();
+		addRate(rates, "files per second", FILES, INDEX);
+		addRate(rates, "bytes per second", BYTES, INDEX);
+		addRate(rates, "tokens per second", TOKENS, INDEX);
+		addRate(rates, "postings per second", POSTINGS, INSERT);
+		addRate(rates, "pages per second", PAGES, CRAWL);
+		addRate(rates, "downloaded bytes per second", DOWNLOADED, CRAWL);
+		addRate(rates, "queries per second", QUERIES, SEARCH);
+		addRate(rates, "results per query", RESULTS, QUERIES);
+
+		writer.write("{\n");
+		PrettyJsonWriter.writeQuote("seconds", writer, 1);
+		writer.write(": ");
+		PrettyJsonWriter.writeObject(seconds, writer, 1);
+		writer.write(",\n");
+		PrettyJsonWriter.writeQuote("calls", writer, 1);
+		writer.write(": ");
+		PrettyJsonWriter.writeObject(calls, writer, 1);
+		writer.write(",\n");
+		PrettyJsonWriter.writeQuote("counters", writer, 1);
+		writer.write(": ");
+		PrettyJsonWriter.writeObject(totals, writer, 1);
+		writer.write(",\n");
+		PrettyJsonWriter.writeQuote("rates", writer, 1);
+		writer.write(": ");
+		PrettyJsonWriter.writeObject(rates, writer, 1);
+		writer.write("\n}\n");
+	}
+
+	/**
+	 * Writes the report to a file.
+	 *
+	 * @param path the file path to use
+	 * @throws IOException if an IO error occurs
+	 *
+	 * @see #writeReport(Writer)
+	 */
+	public static void writeReport(Path path) throws IOException {
+		try (BufferedWriter writer = Files.newBufferedWriter(path, UTF_8)) {
+			writeReport(writer);
+		}
+	}
+
+	/**
+	 * Adds the amount of one counter per unit of a timer or counter, if both
+	 * exist and the divisor is not zero.
+	 *
+	 * @param rates the rates to add to
+	 * @param rate the name of the rate
+	 * @param counter the counter to divide
+	 * @param per the timer (in seconds) or counter to divide by
+	 */
+	private static void addRate(Map<String, Double> rates, String rate, String counter, String per) {
+		Counter dividend = counters.get(counter);
+		if (dividend == null) {
+			return;
+		}
+
+		double divisor;
+		if (timers.containsKey(per)) {
+			divisor = timers.get(per).seconds();
+		} else if (counters.containsKey(per)) {
+			divisor = counters.get(per).sum();
+		} else {
+			return;
+		}
+
+		if (divisor > 0) {
+			rates.put(rate, dividend.sum() / divisor);
+		}
+	}
+
+	/**
+	 * Accumulates the time spent in a named phase and how often it ran.
+	 */
+	public static class Timer {
+		/** The name of this timer */
+		private final String name;
+
+		/** Total nanoseconds measured */
+		private final LongAdder nanos;
+
+		/** Number of measurements */
+		private final LongAdder calls;
+
+		/**
+		 * Initializes a timer
+		 *
+		 * @param name the name of this timer
+		 */
+		private Timer(String name) {
+			this.name = name;
+			this.nanos = new LongAdder();
+			this.calls = new LongAdder();
+		}
+
+		/**
+		 * Starts a measurement.
+		 *
+		 * @return the start time to pass to {@link #stop(long)}, or 0 if
+		 *   collection is disabled
+		 */
+		public long start() {
+			return enabled ? System.nanoTime() : 0;
+		}
+
+		/**
+		 * Ends a measurement started by {@link #start()}.
+		 *
+		 * @param start the value returned by {@link #start()}
+		 */
+		public void stop(long start) {
+			if (enabled && start != 0) {
+				nanos.add(System.nanoTime() - start);
+				calls.increment();
+			}
+		}
+
+		/**
+		 * Returns the total time measured.
+		 *
+		 * @return the total time measured in seconds
+		 */
+		public double seconds() {
+			return nanos.sum() / 1e9;
+		}
+
+		/**
+		 * Returns the number of measurements.
+		 *
+		 * @return the number of measurements
+		 */
+		public long calls() {
+			return calls.sum();
+		}
+
+		/**
+		 * Resets this timer to zero.
+		 */
+		private void reset() {
+			nanos.reset();
+			calls.reset();
+		}
+	}
+
+	/**
+	 * Accumulates a named total.
+	 */
+	public static class Counter {
+		/** The name of this counter */
+		private final String name;
+
+		/** The running total */
+		private final LongAdder total;
+
+		/**
+		 * Initializes a counter
+		 *
+		 * @param name the name of this counter
+		 */
+		private Counter(String name) {
+			this.name = name;
+			this.total = new LongAdder();
+		}
+
+		/**
+		 * Adds to the total if collection is enabled.
+		 *
+		 * @param amount the amount to add
+		 */
+		public void add(long amount) {
+			if (enabled) {
+				total.add(amount);
+			}
+		}
+
+		/**
+		 * Returns the total.
+		 *
+		 * @return the total
+		 */
+		public long sum() {
+			return total.sum();
+		}
+
+		/**
+		 * Resets this counter to zero.
+		 */
+		private void reset() {
+			total.reset();
+		}
+	}
+}
@@ -0,0 +1,312 @@
+package edu.usfca.cs272;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Suggests completions of a prefix as it is typed. The words of an index are
+ * kept in a prefix tree, and every node of the tree stores the words below it
+ * that are found in the most documents, best first, with ties broken in
+ * alphabetical order. Suggesting completions only walks down the tree to the
+ * prefix and copies the words stored there, so it takes time in proportion to
+ * the length of the prefix and the number of completions, however many words
+ * start with the prefix.
+ *
+ * When the number of documents a word is found in goes up, only the nodes on
+ * the path to the word are updated, each by moving the word forward in its
+ * stored list. When it goes down, the nodes on the path are ranked again from
+ * their children, since the best words below a node are always among the best
+ * words below its children.
+ *
+ * @author Matthew Kahane
+ *
+ * @see WordIndex#suggestions()
+ */
+public class SuggestionIndex {
+
+	/** The default number of completions stored at each node */
+	public static final int TOP = 10;
+
+	/** The number of completions stored at each node */
+	private final int top;
+
+	/** The node of the empty prefix */
+	private final Node root;
+
+	/**
+	 * Initializes an empty index that stores the default number of completions
+	 */
+	public SuggestionIndex() {
+		this(TOP);
+	}
+
+	/**
+	 * Initializes an empty index
+	 *
+	 * @param top the most completions that can be suggested for a prefix
+	 */
+	public SuggestionIndex(int top) {
+		if (top < 1) {
+			throw new IllegalArgumentException("Number of completions must be at least 1");
+		}
+		this.top = top;
+		this.root = new Node();
+	}
+
+	/**
+	 * Builds an index of the words in another index, ranked by the number of
+	 * locations they are found in. The tree is built first and then every node
+	 * is ranked once from its children.
+	 *
+	 * @param index the index to suggest words from
+	 * @param top the most completions that can be suggested for a prefix
+	 * @return the suggestions for the index
+	 */
+	public static SuggestionIndex of(SearchableIndex index, int top) {
+		SuggestionIndex suggestions = new SuggestionIndex(top);
+		for (String word : index.view()) {
+			Node node = suggestions.root;
+			for (int i = 0; i < word.length(); i++) {
+				node = node.child(word.charAt(i), true);
+			}
+			node.word = word;
+			node.documents = index.view(word).size();
+		}
+		suggestions.rankAll(suggestions.root);
+		return suggestions;
+	}
+
+	/**
+	 * Sets the number of documents a word is found in, adding the word if it is
+	 * new.
+	 *
+	 * @param word the word to update
+	 * @param documents the number of documents the word is found in
+	 */
+	public void update(String word, int documents) {
+		Node[] path = new Node[word.length() + 1];
+		path[0] = root;
+		for (int i = 0; i < word.length(); i++) {
+			path[i + 1] = path[i].child(word.charAt(i), true);
+		}
+
+		Node node = path[word.length()];
+		int previous = node.word == null ? 0 : node.documents;
+		node.word = word;
+		node.documents = documents;
+
+		if (documents >= previous) {
+			for (Node parent : path) {
+				parent.promote(word, documents);
+			}
+		} else {
+			for (int i = path.length - 1; i >= 0; i--) {
+				path[i].rank();
+			}
+		}
+	}
+
+	/**
+	 * Returns the words starting with a prefix that are found in the most
+	 * documents, best first
+	 *
+	 * @param prefix the prefix to complete
+	 * @param n the most completions to return, which is at most the number
+	 *   stored at each node
+	 * @return the best completions of the prefix, including the prefix itself
+	 *   if it is a word
+	 */
+	public List<String> suggest(String prefix, int n) {
+		Node node = root;
+		for (int i = 0; i < prefix.length() && node != null; i++) {
+			node = node.child(prefix.charAt(i), false);
+		}
+		if (node == null || node.size == 0) {
+			return Collections.emptyList();
+		}
+		return Collections.unmodifiableList(Arrays.asList(Arrays.copyOf(node.words, Math.min(n, node.size))));
+	}
+
+	/**
+	 * Returns the words starting with any of several prefixes that are found in
+	 * the most documents, best first
+	 *
+	 * @param prefixes the prefixes to complete
+	 * @param n the most completions to return, which is at most the number
+	 *   stored at each node
+	 * @return the best completions of any of the prefixes
+	 */
+	public List<String> suggest(Collection<String> prefixes, int n) {
+		HashMap<String, Integer> found = new HashMap<>();
+		for (String prefix : prefixes) {
+			for (String word : suggest(prefix, n)) {
+				found.put(word, documents(word));
+			}
+		}
+
+		ArrayList<String> best = new ArrayList<>(found.keySet());
+		best.sort((word, other) -> word.equals(other) ? 0
+				: before(word, found.get(word), other, found.get(other)) ? -1 : 1);
+		return Collections.unmodifiableList(best.subList(0, Math.min(n, best.size())));
+	}
+
+	/**
+	 * Returns the number of documents a word is found in, as last updated
+	 *
+	 * @param word the word to look up
+	 * @return the number of documents the word is found in, or 0 if it is not
+	 *   in the index
+	 */
+	public int documents(String word) {
+		Node node = root;
+		for (int i = 0; i < word.length() && node != null; i++) {
+			node = node.child(word.charAt(i), false);
+		}
+		return node == null || node.word == null ? 0 : node.documents;
+	}
+
+	/**
+	 * Ranks every node below and including the given node, children first
+	 *
+	 * @param node the node to start from
+	 */
+	private void rankAll(Node node) {
+		for (int i = 0; i < node.children; i++) {
+			rankAll(node.nodes[i]);
+		}
+		node.rank();
+	}
+
+	/**
+	 * Determines whether one word ranks before another
+	 *
+	 * @param word the first word
+	 * @param documents the number of documents the first word is found in
+	 * @param other the second word
+	 * @param otherDocuments the number of documents the second word is found in
+	 * @return {@code true} if the first word ranks before the second
+	 */
+	private static boolean before(String word, int documents, String other, int otherDocuments) {
+		return documents > otherDocuments || documents == otherDocuments && word.compareTo(other) < 0;
+	}
+
+	/**
+	 * A node of the prefix tree, which stands for the prefix spelled out by the
+	 * path to it
+	 */
+	private class Node {
+		/** The next character of each child, in sorted order */
+		private char[] keys = new char[0];
+
+		/** The child for each character */
+		private Node[] nodes = new Node[0];
+
+		/** The number of children */
+		private int children = 0;
+
+		/** The word the prefix spells, or {@code null} if it is not a word */
+		private String word = null;
+
+		/** The number of documents the word is found in */
+		private int documents = 0;
+
+		/** The best words below this node, best first */
+		private String[] words = null;
+
+		/** The number of documents each of the best words is found in */
+		private int[] counts = null;
+
+		/** The number of best words stored */
+		private int size = 0;
+
+		/**
+		 * Returns the child for a character
+		 *
+		 * @param key the next character of the prefix
+		 * @param create whether to add the child if there is none
+		 * @return the child, or {@code null} if there is none and it is not created
+		 */
+		private Node child(char key, boolean create) {
+			int position = Arrays.binarySearch(keys, 0, children, key);
+			if (position >= 0) {
+				return nodes[position];
+			}
+			if (!create) {
+				return null;
+			}
+
+			position = -position - 1;
+			if (children == keys.length) {
+				keys = Arrays.copyOf(keys, Math.max(2, children * 2));
+				nodes = Arrays.copyOf(nodes, keys.length);
+			}
+			System.arraycopy(keys, position, keys, position + 1, children - position);
+			System.arraycopy(nodes, position, nodes, position + 1, children - position);
+			keys[position] = key;
+			nodes[position] = new Node();
+			children++;
+			return nodes[position];
+		}
+
+		/**
+		 * Moves a word forward among the best words after the number of documents
+		 * it is found in went up, adding it if it is now one of the best
+		 *
+		 * @param word the word that changed
+		 * @param documents the number of documents it is now found in
+		 */
+		private void promote(String word, int documents) {
+			int i = 0;
+			while (i < size && !words[i].equals(word)) {
+				i++;
+			}
+
+			if (i == size) {
+				if (size < top) {
+					size++;
+				} else if (before(word, documents, words[size - 1], counts[size - 1])) {
+					i = size - 1;
+				} else {
+					return;
+				}
+			}
+
+			if (words == null) {
+				words = new String[top];
+				counts = new int[top];
+			}
+			while (i > 0 && before(word, documents, words[i - 1], counts[i - 1])) {
+				words[i] = words[i - 1];
+				counts[i] = counts[i - 1];
+				i--;
+			}
+			words[i] = word;
+			counts[i] = documents;
+		}
+
+		/**
+		 * Ranks the best words below this node from scratch, from its own word and
+		 * the best words of each of its children
+		 */
+		private void rank() {
+			size = 0;
+			if (word != null) {
+				promote(word, documents);
+			}
+			for (int i = 0; i < children; i++) {
+				Node child = nodes[i];
+				for (int j = 0; j < child.size; j++) {
+					// the best words of a child are in order, so the rest cannot make it either
+					if (size == top && !before(child.words[j], child.counts[j], words[size - 1], counts[size - 1])) {
+						break;
+					}
+					promote(child.words[j], child.counts[j]);
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,252 @@
+package edu.usfca.cs272;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * A text file to index, which is either a file on disk, a gzip compressed file,
+ * or a text entry of a zip archive. Compressed text is decompressed as it is
+ * stemmed and is never extracted to disk. An entry of a zip archive is indexed
+ * under the path of the archive, followed by {@link #SEPARATOR} and the name of
+ * the entry, such as {@code corpus/archive.zip!/dir/file.txt}.
+ *
+ * @author Matthew Kahane
+ */
+public class TextSource {
+
+	/** Separates the path of an archive from the name of an entry in it */
+	public static final String SEPARATOR = "!/";
+
+	/** The number of compressed bytes read at once */
+	private static final int BUFFER_BYTES = 1 << 16;
+
+	/** The location the text is indexed under */
+	private final String location;
+
+	/** The file on disk that holds the text */
+	private final Path file;
+
+	/** The archive holding the text, or {@code null} if it is not in one */
+	private final ZipFile zip;
+
+	/** The entry of the archive holding the text, or {@code null} */
+	private final ZipEntry entry;
+
+	/**
+	 * Initializes a source
+	 *
+	 * @param location the location the text is indexed under
+	 * @param file the file on disk that holds the text
+	 * @param zip the archive holding the text, or {@code null}
+	 * @param entry the entry of the archive holding the text, or {@code null}
+	 */
+	private TextSource(String location, Path file, ZipFile zip, ZipEntry entry) {
+		this.location = location;
+		this.file = file;
+		this.zip = zip;
+		this.entry = entry;
+	}
+
+	/**
+	 * Returns the source for a file, which is decompressed if it is gzip
+	 * compressed
+	 *
+	 * @param file the file holding the text
+	 * @return the source for the file
+	 */
+	public static TextSource of(Path file) {
+		return new TextSource(file.toString(), file, null, null);
+	}
+
+	/**
+	 * Returns the sources for the text entries of an open zip archive, in the
+	 * order they are stored. The archive must stay open until they are read.
+	 *
+	 * @param archive the path of the archive
+	 * @param zip the open archive
+	 * @return the sources for the text entries
+	 *
+	 * @see FileFinder#isTextFile(String)
+	 */
+	public static List<TextSource> entries(Path archive, ZipFile zip) {
+		ArrayList<TextSource> sources = new ArrayList<>();
+		Enumeration<? extends ZipEntry> entries = zip.entries();
+		while (entries.hasMoreElements()) {
+			ZipEntry entry = entries.nextElement();
+			if (!entry.isDirectory() && FileFinder.isTextFile(entry.getName())) {
+				String location = archive.toString() + SEPARATOR + entry.getName();
+				sources.add(new TextSource(location, archive, zip, entry));
+			}
+		}
+		return Collections.unmodifiableList(sources);
+	}
+
+	/**
+	 * Determines whether a file is a zip archive by its extension
+	 *
+	 * @param path the path of the file
+	 * @return {@code true} if the file is a zip archive
+	 */
+	public static boolean isZip(Path path) {
+		return path.toString().toLowerCase().endsWith(".zip");
+	}
+
+	/**
+	 * Determines whether a file is gzip compressed by its extension
+	 *
+	 * @param path the path of the file
+	 * @return {@code true} if the file is gzip compressed
+	 */
+	public static boolean isGzip(Path path) {
+		return path.toString().toLowerCase().endsWith(".gz");
+	}
+
+	/**
+	 * Determines whether a file is a zip archive or gzip compressed
+	 *
+	 * @param path the path of the file
+	 * @return {@code true} if the file is an archive
+	 */
+	public static boolean isArchive(Path path) {
+		return isZip(path) || isGzip(path);
+	}
+
+	/**
+	 * Determines whether a file found in a directory should be indexed, which is
+	 * when it is a text file, a compressed text file such as {@code a.txt.gz},
+	 * or a zip archive.
+	 *
+	 * @param path the path of the file
+	 * @return {@code true} if the file holds text to index
+	 *
+	 * @see FileFinder#isTextFile(Path)
+	 */
+	public static boolean isTextSource(Path path) {
+		if (isGzip(path)) {
+			String name = path.toString();
+			return FileFinder.isTextFile(name.substring(0, name.length() - 3));
+		}
+		return isZip(path) || FileFinder.isTextFile(path);
+	}
+
+	/**
+	 * Returns the location the text is indexed under
+	 *
+	 * @return the location the text is indexed under
+	 */
+	public String location() {
+		return location;
+	}
+
+	/**
+	 * Returns the file on disk that holds the text, which is the archive if the
+	 * text is an entry of one
+	 *
+	 * @return the file that holds the text
+	 */
+	public Path file() {
+		return file;
+	}
+
+	/**
+	 * Determines whether the text is an uncompressed file on disk, which can be
+	 * input with {@link FileFinder.FileInput#inputFile(Path)}
+	 *
+	 * @return {@code true} if the text is an uncompressed file
+	 */
+	public boolean isFile() {
+		return zip == null && !isGzip(file);
+	}
+
+	/**
+	 * Returns the number of bytes read from disk for the text, which is the
+	 * compressed size if it is compressed
+	 *
+	 * @return the number of bytes read from disk
+	 * @throws IOException if unable to read the size of the file
+	 */
+	public long bytes() throws IOException {
+		return entry != null ? Math.max(entry.getCompressedSize(), 0) : Files.size(file);
+	}
+
+	/**
+	 * Opens the bytes of the text, decompressing them as they are read
+	 *
+	 * @return a stream of the uncompressed bytes of the text
+	 * @throws IOException if unable to open the text
+	 */
+	public InputStream openStream() throws IOException {
+		InputStream input = zip != null ? zip.getInputStream(entry) : Files.newInputStream(file);
+		try {
+			if (zip == null && isGzip(file)) {
+				input = new GZIPInputStream(input, BUFFER_BYTES);
+			}
+			return input;
+		} catch (IOException e) {
+			input.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Opens the text for reading, decompressing it as it is read. Malformed
+	 * UTF-8 is reported rather than replaced.
+	 *
+	 * @return a reader for the text
+	 * @throws IOException if unable to open the text
+	 */
+	public BufferedReader open() throws IOException {
+		return new BufferedReader(new InputStreamReader(openStream(), UTF_8.newDecoder()), BUFFER_BYTES);
+	}
+
+	/**
+	 * Parses the text into cleaned and stemmed words
+	 *
+	 * @return a list of stems from the text in parsed order
+	 * @throws IOException if unable to read or parse the text
+	 *
+	 * @see WordCleaner#listStems(Path)
+	 * @see WordCleaner#listStems(BufferedReader)
+	 */
+	public ArrayList<String> listStems() throws IOException {
+		if (isFile()) {
+			return WordCleaner.listStems(file);
+		}
+
+		try (BufferedReader reader = open()) {
+			return WordCleaner.listStems(reader);
+		}
+	}
+
+	/**
+	 * Counts the cleaned words in the text, without stemming them
+	 *
+	 * @return the number of cleaned words in the text
+	 * @throws IOException if unable to read or parse the text
+	 *
+	 * @see WordCleaner#countWords(BufferedReader)
+	 */
+	public int countWords() throws IOException {
+		try (BufferedReader reader = open()) {
+			return WordCleaner.countWords(reader);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return location;
+	}
+}
@@ -0,0 +1,195 @@
+package edu.usfca.cs272;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Finds the words of a vocabulary that match a wildcard pattern such as
+ * {@code *tion} or {@code *graph*}, where {@value #WILDCARD} stands for any
+ * run of characters. Each word is numbered, and every run of three characters
+ * in the word, with {@value #BOUNDARY} marking its start and end, maps to the
+ * numbers of the words it is found in. A pattern is split on its wildcards and
+ * marked the same way, the word numbers of every run of three characters in
+ * the pieces are intersected, starting from the rarest, and the few candidates
+ * left are checked against the whole pattern. The work depends on how common
+ * the rarest runs of the pattern are rather than on the size of the
+ * vocabulary.
+ *
+ * A pattern with no piece of at least three characters, once marked, such as
+ * {@code *a*}, has nothing to intersect and is checked against every word.
+ *
+ * @author Matthew Kahane
+ *
+ * @see SearchableIndex#viewMatching(String)
+ */
+public class TrigramIndex {
+
+	/** Stands for any run of characters in a pattern */
+	public static final char WILDCARD = '*';
+
+	/** Marks the start and end of a word, which cleaned words never contain */
+	private static final char BOUNDARY = '$';
+
+	/** The words by number */
+	private final ArrayList<String> words;
+
+	/** The numbers of the words each run of three characters is found in */
+	private final HashMap<String, IntBitmap> trigrams;
+
+	/**
+	 * Initializes an empty index
+	 */
+	public TrigramIndex() {
+		this.words = new ArrayList<>();
+		this.trigrams = new HashMap<>();
+	}
+
+	/**
+	 * Builds an index of words, numbered in the order they are given. Words
+	 * given in sorted order match in sorted order without sorting.
+	 *
+	 * @param words the distinct words to index
+	 * @return the index of the words
+	 */
+	public static TrigramIndex of(Collection<String> words) {
+		TrigramIndex index = new TrigramIndex();
+		for (String word : words) {
+			index.add(word);
+		}
+		return index;
+	}
+
+	/**
+	 * Adds a word that is not in the index yet
+	 *
+	 * @param word the word to add
+	 * @return the number of the word
+	 */
+	public int add(String word) {
+		int number = words.size();
+		words.add(word);
+
+		String marked = BOUNDARY + word + BOUNDARY;
+		for (int i = 0; i + 3 <= marked.length(); i++) {
+			trigrams.computeIfAbsent(marked.substring(i, i + 3), key -> new IntBitmap()).add(number);
+		}
+		return number;
+	}
+
+	/**
+	 * Returns the number of words
+	 *
+	 * @return the number of words
+	 */
+	public int size() {
+		return words.size();
+	}
+
+	/**
+	 * Returns the words that match a pattern, in sorted order
+	 *
+	 * @param pattern the pattern to match, where {@value #WILDCARD} stands for
+	 *   any run of characters
+	 * @return the matching words
+	 */
+	public List<String> match(String pattern) {
+		ArrayList<String> matches = new ArrayList<>();
+		IntBitmap candidates = candidates(pattern);
+		if (candidates == null) {
+			for (String word : words) {
+				if (matches(pattern, word)) {
+					matches.add(word);
+				}
+			}
+		} else {
+			candidates.forEach(number -> {
+				String word = words.get(number);
+				if (matches(pattern, word)) {
+					matches.add(word);
+				}
+			});
+		}
+
+		// words numbered out of order are matched out of order
+		for (int i = 1; i < matches.size(); i++) {
+			if (matches.get(i - 1).compareTo(matches.get(i)) > 0) {
+				Collections.sort(matches);
+				break;
+			}
+		}
+		return matches;
+	}
+
+	/**
+	 * Intersects the numbers of the words containing each run of three
+	 * characters in the marked pieces of a pattern, from the rarest run up
+	 *
+	 * @param pattern the pattern to match
+	 * @return the numbers of the words that may match, or {@code null} if the
+	 *   pattern has no runs of three characters to narrow them down by
+	 */
+	private IntBitmap candidates(String pattern) {
+		ArrayList<IntBitmap> lists = new ArrayList<>();
+		String marked = BOUNDARY + pattern + BOUNDARY;
+		for (String piece : marked.split("\\" + WILDCARD)) {
+			for (int i = 0; i + 3 <= piece.length(); i++) {
+				IntBitmap list = trigrams.get(piece.substring(i, i + 3));
+				if (list == null) {
+					return new IntBitmap();
+				}
+				if (!lists.contains(list)) {
+					lists.add(list);
+				}
+			}
+		}
+		if (lists.isEmpty()) {
+			return null;
+		}
+
+		lists.sort(Comparator.comparingInt(IntBitmap::cardinality));
+		IntBitmap candidates = lists.get(0);
+		for (int i = 1; i < lists.size() && candidates.cardinality() > 0; i++) {
+			candidates = candidates.and(lists.get(i));
+		}
+		return candidates;
+	}
+
+	/**
+	 * Determines whether a word matches a pattern. The pieces of the pattern
+	 * between wildcards must be found in the word in order, with the first
+	 * starting the word and the last ending it unless the pattern starts or
+	 * ends with a wildcard.
+	 *
+	 * @param pattern the pattern to match, where {@value #WILDCARD} stands for
+	 *   any run of characters
+	 * @param word the word to check
+	 * @return {@code true} if the word matches the pattern
+	 */
+	public static boolean matches(String pattern, String word) {
+		String[] pieces = pattern.split("\\" + WILDCARD, -1);
+		if (pieces.length == 1) {
+			return pattern.equals(word);
+		}
+
+		String first = pieces[0];
+		String last = pieces[pieces.length - 1];
+		if (first.length() + last.length() > word.length() || !word.startsWith(first) || !word.endsWith(last)) {
+			return false;
+		}
+
+		int from = first.length();
+		int to = word.length() - last.length();
+		for (int i = 1; i < pieces.length - 1; i++) {
+			int found = word.indexOf(pieces[i], from);
+			if (found < 0 || found + pieces[i].length() > to) {
+				return false;
+			}
+			from = found + pieces[i].length();
+		}
+		return true;
+	}
+}
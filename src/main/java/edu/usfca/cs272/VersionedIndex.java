@@ -0,0 +1,568 @@
+package edu.usfca.cs272;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * An index that can be searched while it is being built. Changes are collected
+ * in a {@link Batch} and then published as a new immutable {@link Snapshot} of
+ * the whole index with a single volatile write. A search pins the snapshot that
+ * was current when it started, so it never blocks and never sees part of a
+ * batch, while later batches are published underneath it.
+ *
+ * Each batch becomes an immutable segment. To keep searches fast, segments are
+ * merged when a new one is at least half the size of the one before it, so a
+ * snapshot holds a logarithmic number of segments. Snapshots that are no longer
+ * used are reclaimed by the garbage collector.
+ *
+ * A location added again in a later batch replaces the earlier version of it
+ * rather than adding to it. The segment of the later batch records the
+ * location as replaced, which hides the postings of every older segment for
+ * that location, and the hidden postings are dropped when segments merge. The
+ * sorted words of a snapshot are built when it is published, by merging the
+ * words of the new segment into the words of the snapshot before it.
+ *
+ * @author Matthew Kahane
+ */
+public class VersionedIndex implements FileFinder.FileInput {
+
+	/** The most recently published snapshot */
+	private volatile Snapshot current;
+
+	/**
+	 * Initializes an empty index
+	 */
+	public VersionedIndex() {
+		this.current = new Snapshot(0, List.of(), new String[0]);
+	}
+
+	/**
+	 * Returns the most recently published snapshot. The snapshot never changes,
+	 * so every lookup made through it sees the same version of the index.
+	 *
+	 * @return the current snapshot
+	 */
+	public Snapshot snapshot() {
+		return current;
+	}
+
+	/**
+	 * Returns a new, empty batch of changes
+	 *
+	 * @return a new batch
+	 */
+	public Batch batch() {
+		return new Batch();
+	}
+
+	/**
+	 * Adds a file in its own batch and publishes it
+	 *
+	 * @param path the path of the file
+	 * @throws IOException when an IO error occurs
+	 */
+	@Override
+	public void inputFile(Path path) throws IOException {
+		Batch batch = batch();
+		batch.inputFile(path);
+		batch.publish();
+	}
+
+	/**
+	 * Publishes a segment as part of a new snapshot, merging it with earlier
+	 * segments if needed. Publishing is serialized between writers, but does not
+	 * block readers.
+	 *
+	 * @param segment the sorted segment to publish
+	 * @param tokens the number of positions in the segment
+	 * @param locations the locations in the segment
+	 * @param replaced the locations whose earlier versions the segment replaces
+	 * @return the new snapshot
+	 */
+	private synchronized Snapshot publish(HashWordIndex segment, long tokens, Set<String> locations,
+			Set<String> replaced) {
+		Snapshot before = current;
+		ArrayList<Segment> segments = new ArrayList<>(before.segments);
+
+		// a word of the snapshot before may only have been found in the locations replaced
+		boolean hides = false;
+		for (Segment older : segments) {
+			for (String location : replaced) {
+				hides |= older.locations.contains(location);
+			}
+		}
+		segments.add(new Segment(segment, tokens, locations, replaced));
+
+		while (segments.size() > 1) {
+			Segment last = segments.get(segments.size() - 1);
+			Segment previous = segments.get(segments.size() - 2);
+			if (last.tokens * 2 < previous.tokens) {
+				break;
+			}
+			segments.remove(segments.size() - 1);
+			segments.set(segments.size() - 1, Segment.merge(previous, last));
+		}
+
+		String[] words = before.terms;
+		if (hides) {
+			words = Arrays.stream(words).filter(word -> Snapshot.found(segments, word)).toArray(String[]::new);
+		}
+
+		Snapshot next = new Snapshot(before.version + 1, List.copyOf(segments),
+				union(words, segment.view().toArray(String[]::new)));
+		current = next;
+		return next;
+	}
+
+	/**
+	 * Merges two arrays of distinct words in sorted order into one
+	 *
+	 * @param first the first words in sorted order
+	 * @param second the second words in sorted order
+	 * @return the words in either array in sorted order, without duplicates
+	 */
+	private static String[] union(String[] first, String[] second) {
+		if (first.length == 0 || second.length == 0) {
+			return first.length == 0 ? second : first;
+		}
+
+		String[] union = new String[first.length + second.length];
+		int i = 0;
+		int j = 0;
+		int size = 0;
+		while (i < first.length && j < second.length) {
+			int compared = first[i].compareTo(second[j]);
+			union[size++] = compared <= 0 ? first[i] : second[j];
+			i += compared <= 0 ? 1 : 0;
+			j += compared >= 0 ? 1 : 0;
+		}
+		while (i < first.length) {
+			union[size++] = first[i++];
+		}
+		while (j < second.length) {
+			union[size++] = second[j++];
+		}
+		return size == union.length ? union : Arrays.copyOf(union, size);
+	}
+
+	/**
+	 * Changes that become visible to searches all at once when published. A
+	 * batch is not thread-safe, but separate batches may be filled in parallel.
+	 */
+	public class Batch implements FileFinder.FileInput {
+		/** The words added so far */
+		private HashWordIndex pending;
+
+		/** The number of positions added so far, used to decide when to merge */
+		private long tokens;
+
+		/** The locations added so far */
+		private HashSet<String> locations;
+
+		/** The locations whose earlier versions are replaced */
+		private HashSet<String> replaced;
+
+		/**
+		 * Initializes an empty batch
+		 */
+		private Batch() {
+			this.pending = new HashWordIndex();
+			this.tokens = 0;
+			this.locations = new HashSet<>();
+			this.replaced = new HashSet<>();
+		}
+
+		/**
+		 * Adds a single position for a word and location. Positions added this way
+		 * are added to any earlier version of the location, unless its word count
+		 * is also set in this batch.
+		 *
+		 * @param word word found at the given position in the given location
+		 * @param location location in which the word is found at the given position
+		 * @param position position of the word in the given location
+		 */
+		public void add(String word, String location, int position) {
+			pending.add(word, location, position);
+			locations.add(location);
+			tokens++;
+		}
+
+		/**
+		 * Adds the location and the number of words it contains to the count Map,
+		 * replacing any earlier version of the location once published
+		 *
+		 * @param location the location of the file being counted
+		 * @param numWords the number of words in the file
+		 */
+		public void addWordCount(String location, int numWords) {
+			pending.addWordCount(location, numWords);
+			locations.add(location);
+			replaced.add(location);
+		}
+
+		/**
+		 * Removes every earlier version of a location once published
+		 *
+		 * @param location the location to remove
+		 */
+		public void remove(String location) {
+			replaced.add(location);
+		}
+
+		/**
+		 * Adds a file, replacing any earlier version of it once published. A file
+		 * that is now empty removes the earlier version.
+		 *
+		 * @param path the path of the file
+		 * @throws IOException when an IO error occurs
+		 */
+		@Override
+		public void inputFile(Path path) throws IOException {
+			pending.inputFile(path);
+			tokens += pending.getWordCounts().getOrDefault(path.toString(), 0);
+			locations.add(path.toString());
+			replaced.add(path.toString());
+		}
+
+		/**
+		 * Publishes the changes in this batch as a new snapshot, then empties the
+		 * batch so it can be reused.
+		 *
+		 * @return the new snapshot, which includes this batch
+		 */
+		public Snapshot publish() {
+			HashWordIndex segment = pending;
+			long size = tokens;
+			Set<String> added = Set.copyOf(locations);
+			Set<String> removed = Set.copyOf(replaced);
+			pending = new HashWordIndex();
+			tokens = 0;
+			locations = new HashSet<>();
+			replaced = new HashSet<>();
+
+			if (segment.size() == 0 && segment.getWordCounts().isEmpty() && removed.isEmpty()) {
+				return current;
+			}
+
+			// sort before publishing so readers never trigger a sort
+			segment.view();
+			return VersionedIndex.this.publish(segment, size, added, removed);
+		}
+	}
+
+	/**
+	 * An immutable index segment, its number of positions, and the locations it
+	 * replaces in older segments
+	 */
+	private static class Segment {
+		/** The sorted index, which is never modified once published */
+		private final HashWordIndex index;
+
+		/** The number of positions in the segment */
+		private final long tokens;
+
+		/** The locations with postings or word counts in the segment */
+		private final Set<String> locations;
+
+		/** The locations whose postings in older segments are hidden */
+		private final Set<String> replaced;
+
+		/**
+		 * Initializes a segment
+		 *
+		 * @param index the sorted index
+		 * @param tokens the number of positions in the index
+		 * @param locations the locations in the index
+		 * @param replaced the locations replaced in older segments
+		 */
+		public Segment(HashWordIndex index, long tokens, Set<String> locations, Set<String> replaced) {
+			this.index = index;
+			this.tokens = tokens;
+			this.locations = locations;
+			this.replaced = replaced;
+		}
+
+		/**
+		 * Merges two segments into a new one, dropping the postings of the older
+		 * segment for the locations the newer one replaces. The merged segment
+		 * still replaces those locations in the segments older than both. Neither
+		 * segment is modified.
+		 *
+		 * @param older the segment published first
+		 * @param newer the segment published second
+		 * @return the merged segment
+		 */
+		public static Segment merge(Segment older, Segment newer) {
+			HashWordIndex merged = new HashWordIndex();
+			for (Segment segment : List.of(older, newer)) {
+				Set<String> hidden = segment == older ? newer.replaced : Set.of();
+				try {
+					segment.index.visit(new IndexVisitor<String>() {
+						/** The word currently being visited */
+						private String current;
+
+						@Override
+						public boolean visitWord(String word, int locations) {
+							current = word;
+							return true;
+						}
+
+						@Override
+						public void visitLocation(String location, List<Integer> positions) {
+							if (!hidden.contains(location)) {
+								merged.add(current, location, positions);
+							}
+						}
+					});
+				} catch (IOException e) {
+					throw new IllegalStateException("Unable to merge segments", e);
+				}
+				segment.index.getWordCounts().forEach((location, count) -> {
+					if (!hidden.contains(location)) {
+						merged.addWordCount(location, count);
+					}
+				});
+			}
+			merged.view();
+
+			HashSet<String> locations = new HashSet<>(older.locations);
+			locations.removeAll(newer.replaced);
+			locations.addAll(newer.locations);
+			HashSet<String> replaced = new HashSet<>(older.replaced);
+			replaced.addAll(newer.replaced);
+			return new Segment(merged, older.tokens + newer.tokens, Set.copyOf(locations), Set.copyOf(replaced));
+		}
+	}
+
+	/**
+	 * An immutable version of the index. Any number of threads may search a
+	 * snapshot while newer snapshots are published.
+	 */
+	public static class Snapshot implements OrderedIndex {
+		/** The number of batches published before this snapshot */
+		private final long version;
+
+		/** The segments, oldest first */
+		private final List<Segment> segments;
+
+		/** The words found in some location of this snapshot, in sorted order */
+		private final String[] terms;
+
+		/** The word counts of every segment, built when first needed */
+		private volatile Map<String, Integer> counts;
+
+		/**
+		 * Initializes a snapshot
+		 *
+		 * @param version the number of batches published before this snapshot
+		 * @param segments the segments, oldest first
+		 * @param terms the words found in some location of the segments, in
+		 *   sorted order
+		 */
+		private Snapshot(long version, List<Segment> segments, String[] terms) {
+			this.version = version;
+			this.segments = segments;
+			this.terms = terms;
+		}
+
+		/**
+		 * Returns the number of batches published before this snapshot
+		 *
+		 * @return the version of this snapshot
+		 */
+		public long version() {
+			return version;
+		}
+
+		/**
+		 * Returns the number of segments searched by this snapshot
+		 *
+		 * @return the number of segments
+		 */
+		public int segments() {
+			return segments.size();
+		}
+
+		/**
+		 * Determines whether the postings of a segment for a location are
+		 * searched, which they are unless a newer segment replaces the location
+		 *
+		 * @param segments the segments, oldest first
+		 * @param segment the position of the segment
+		 * @param location the location to check
+		 * @return {@code true} if the postings are not hidden
+		 */
+		private static boolean visible(List<Segment> segments, int segment, String location) {
+			for (int i = segment + 1; i < segments.size(); i++) {
+				if (segments.get(i).replaced.contains(location)) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		/**
+		 * Determines whether a word is found in a location that is not hidden
+		 *
+		 * @param segments the segments, oldest first
+		 * @param word the word to look for
+		 * @return {@code true} if the word is found
+		 */
+		private static boolean found(List<Segment> segments, String word) {
+			for (int i = segments.size() - 1; i >= 0; i--) {
+				for (String location : segments.get(i).index.view(word)) {
+					if (visible(segments, i, location)) {
+						return true;
+					}
+				}
+			}
+			return false;
+		}
+
+		@Override
+		public int size() {
+			return terms.length;
+		}
+
+		@Override
+		public boolean has(String word) {
+			return Arrays.binarySearch(terms, word) >= 0;
+		}
+
+		@Override
+		public Collection<String> view() {
+			return Collections.unmodifiableList(Arrays.asList(terms));
+		}
+
+		@Override
+		public Collection<String> viewPrefix(String prefix) {
+			int start = lowerBound(terms, prefix);
+			int end = start;
+			while (end < terms.length && terms[end].startsWith(prefix)) {
+				end++;
+			}
+			return Collections.unmodifiableList(Arrays.asList(terms).subList(start, end));
+		}
+
+		@Override
+		public Collection<String> view(String word) {
+			if (segments.size() == 1) {
+				return segments.get(0).index.view(word);
+			}
+
+			TreeSet<String> locations = new TreeSet<>();
+			for (int i = 0; i < segments.size(); i++) {
+				for (String location : segments.get(i).index.view(word)) {
+					if (visible(segments, i, location)) {
+						locations.add(location);
+					}
+				}
+			}
+			return Collections.unmodifiableSet(locations);
+		}
+
+		@Override
+		public int size(String word, String location) {
+			int size = 0;
+			for (int i = segments.size() - 1; i >= 0; i--) {
+				Segment segment = segments.get(i);
+				size += segment.index.size(word, location);
+				if (segment.replaced.contains(location)) {
+					break;
+				}
+			}
+			return size;
+		}
+
+		@Override
+		public int getWordCount(String location) {
+			for (int i = segments.size() - 1; i >= 0; i--) {
+				Segment segment = segments.get(i);
+				Integer count = segment.index.getWordCounts().get(location);
+				if (count != null) {
+					return count;
+				}
+				if (segment.replaced.contains(location)) {
+					break;
+				}
+			}
+			throw new IllegalArgumentException("No word count for " + location);
+		}
+
+		@Override
+		public Map<String, Integer> getWordCounts() {
+			Map<String, Integer> merged = counts;
+			if (merged == null) {
+				TreeMap<String, Integer> all = new TreeMap<>();
+				for (Segment segment : segments) {
+					all.keySet().removeAll(segment.replaced);
+					all.putAll(segment.index.getWordCounts());
+				}
+				merged = Collections.unmodifiableMap(all);
+				counts = merged;
+			}
+			return merged;
+		}
+
+		@Override
+		public void visit(IndexVisitor<String> visitor, String start, String end) throws IOException {
+			if (segments.size() == 1) {
+				segments.get(0).index.visit(visitor, start, end);
+				return;
+			}
+
+			int first = start == null ? 0 : lowerBound(terms, start);
+			int last = end == null ? terms.length : lowerBound(terms, end);
+
+			TreeMap<String, List<Integer>> locations = new TreeMap<>();
+			for (int i = first; i < last; i++) {
+				String word = terms[i];
+				for (int j = 0; j < segments.size(); j++) {
+					Segment segment = segments.get(j);
+					for (String location : segment.index.view(word)) {
+						if (!visible(segments, j, location)) {
+							continue;
+						}
+						List<Integer> positions = segment.index.view(word, location);
+						locations.merge(location, positions, (older, newer) -> {
+							ArrayList<Integer> both = new ArrayList<>(older);
+							both.addAll(newer);
+							return both;
+						});
+					}
+				}
+
+				if (visitor.visitWord(word, locations.size())) {
+					for (var location : locations.entrySet()) {
+						visitor.visitLocation(location.getKey(), Collections.unmodifiableList(location.getValue()));
+					}
+				}
+				visitor.endWord(word);
+				locations.clear();
+			}
+		}
+
+		/**
+		 * Returns the position of the first word in sorted order that is not less
+		 * than the given word.
+		 *
+		 * @param sorted the words in sorted order
+		 * @param word the word to look for
+		 * @return the position the word is or would be at
+		 */
+		private static int lowerBound(String[] sorted, String word) {
+			int index = Arrays.binarySearch(sorted, word);
+			return index < 0 ? -index - 1 : index;
+		}
+	}
+}
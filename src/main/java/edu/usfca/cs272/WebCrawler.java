@@ -0,0 +1,304 @@
+package edu.usfca.cs272;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static opennlp.tools.stemmer.snowball.SnowballStemmer.ALGORITHM.ENGLISH;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.Reader;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.Charset;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import opennlp.tools.stemmer.Stemmer;
+import opennlp.tools.stemmer.snowball.SnowballStemmer;
+
+/**
+ * Crawls web pages starting from a seed URL and adds the stemmed text of each
+ * page to an index, keyed by its URL. Pages are downloaded, stripped of their
+ * markup, and stemmed by a pool of worker threads as a stream, without holding
+ * the whole page in memory.
+ *
+ * The frontier of URLs to crawl is breadth first and never holds the same URL
+ * twice. The links of a page are added to the frontier, and the page is added
+ * to the index, in the order the pages entered the frontier. Workers download
+ * the pages further along the frontier in the meantime. This gives the same
+ * pages and the same index as crawling one page at a time, however long each
+ * download takes.
+ *
+ * @author Matthew Kahane
+ */
+public class WebCrawler {
+
+	/** The default number of pages downloaded at once */
+	public static final int THREADS = 8;
+
+	/** The default time to wait for a page */
+	public static final Duration TIMEOUT = Duration.ofSeconds(30);
+
+	/** Measures the time spent crawling */
+	private static final Stats.Timer CRAWL = Stats.timer(Stats.CRAWL);
+
+	/** Measures the time spent downloading, parsing, and stemming each page */
+	private static final Stats.Timer FETCH = Stats.timer(Stats.FETCH);
+
+	/** Counts the pages indexed */
+	private static final Stats.Counter PAGES = Stats.counter(Stats.PAGES);
+
+	/** Counts the bytes downloaded */
+	private static final Stats.Counter DOWNLOADED = Stats.counter(Stats.DOWNLOADED);
+
+	/** Sends the requests, following redirects */
+	private final HttpClient client;
+
+	/** The number of pages downloaded at once */
+	private final int threads;
+
+	/** The time to wait for each page */
+	private final Duration timeout;
+
+	/**
+	 * Initializes a crawler with the default number of threads and timeout
+	 */
+	public WebCrawler() {
+		this(THREADS, TIMEOUT);
+	}
+
+	/**
+	 * Initializes a crawler
+	 *
+	 * @param threads the number of pages to download at once
+	 * @param timeout the time to wait for each page
+	 */
+	public WebCrawler(int threads, Duration timeout) {
+		if (threads < 1) {
+			throw new IllegalArgumentException("Number of threads must be at least 1");
+		}
+		this.threads = threads;
+		this.timeout = timeout;
+		this.client = HttpClient.newBuilder()
+				.followRedirects(HttpClient.Redirect.NORMAL)
+				.connectTimeout(timeout)
+				.build();
+	}
+
+	/**
+	 * Crawls from the seed until the given number of URLs have been visited,
+	 * adding the text of every HTML page found to the index. URLs that fail to
+	 * download or are not HTML still count toward the maximum.
+	 *
+	 * @param seed the URL to start from
+	 * @param max the largest number of URLs to visit, including the seed
+	 * @param index what to add the stems of each page to
+	 * @return the URLs visited, in the order they were found
+	 * @throws IOException if unable to add a page to the index
+	 */
+	public List<String> crawl(URI seed, int max, FileFinder.StemInput index) throws IOException {
+		ArrayList<String> frontier = new ArrayList<>();
+		HashSet<String> seen = new HashSet<>();
+		ArrayList<Future<Page>> pages = new ArrayList<>();
+		ExecutorService workers = Executors.newFixedThreadPool(threads);
+
+		long start = CRAWL.start();
+		try {
+			String first = normalize(seed);
+			if (first == null) {
+				throw new IllegalArgumentException("Unable to crawl " + seed);
+			}
+			seen.add(first);
+			frontier.add(first);
+			pages.add(workers.submit(() -> fetch(first)));
+
+			for (int i = 0; i < frontier.size(); i++) {
+				Page page = pages.get(i).get();
+				pages.set(i, null);
+				if (page == null) {
+					continue;
+				}
+
+				index.inputStems(frontier.get(i), page.stems);
+
+				for (String link : page.links) {
+					if (frontier.size() >= max) {
+						break;
+					}
+					if (seen.add(link)) {
+						frontier.add(link);
+						pages.add(workers.submit(() -> fetch(link)));
+					}
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while crawling " + seed);
+		} catch (ExecutionException e) {
+			throw new IOException("Unable to crawl " + seed, e.getCause());
+		} finally {
+			workers.shutdownNow();
+			CRAWL.stop(start);
+		}
+		return Collections.unmodifiableList(frontier);
+	}
+
+	/**
+	 * Downloads a page, then strips and stems its text and resolves its links as
+	 * it is read
+	 *
+	 * @param url the URL of the page
+	 * @return the stems and links of the page, or {@code null} if it could not be
+	 *   downloaded or is not HTML
+	 * @throws InterruptedException if interrupted while waiting for the page
+	 */
+	private Page fetch(String url) throws InterruptedException {
+		long start = FETCH.start();
+		try {
+			HttpRequest request = HttpRequest.newBuilder(URI.create(url))
+					.timeout(timeout)
+					.GET()
+					.build();
+			HttpResponse<InputStream> response = client.send(request, HttpResponse.BodyHandlers.ofInputStream());
+
+			try (InputStream body = new CountingInputStream(response.body())) {
+				String type = response.headers().firstValue("Content-Type").orElse("");
+				if (response.statusCode() != 200 || !type.toLowerCase(Locale.ROOT).startsWith("text/html")) {
+					return null;
+				}
+
+				URI base = response.uri();
+				Stemmer stemmer = new SnowballStemmer(ENGLISH);
+				Page page = new Page();
+				Reader reader = new InputStreamReader(body, charset(type));
+				HtmlStripper.strip(reader, text -> WordCleaner.addStems(text, stemmer, page.stems), href -> {
+					String link = resolve(base, href);
+					if (link != null) {
+						page.links.add(link);
+					}
+				});
+				PAGES.add(1);
+				return page;
+			}
+		} catch (IOException | IllegalArgumentException e) {
+			return null;
+		} finally {
+			FETCH.stop(start);
+		}
+	}
+
+	/**
+	 * Returns the character set named in a content type, or UTF-8 if it names
+	 * none or one that is not supported
+	 *
+	 * @param type the content type
+	 * @return the character set of the content
+	 */
+	private static Charset charset(String type) {
+		int index = type.toLowerCase(Locale.ROOT).indexOf("charset=");
+		if (index >= 0) {
+			String name = type.substring(index + 8).split(";", 2)[0].strip().replace("\"", "");
+			try {
+				return Charset.forName(name);
+			} catch (IllegalArgumentException e) {
+				return UTF_8;
+			}
+		}
+		return UTF_8;
+	}
+
+	/**
+	 * Resolves a link against the URL of the page it was found on
+	 *
+	 * @param base the URL of the page
+	 * @param href the link as written in the page
+	 * @return the normalized absolute URL, or {@code null} if the link is not
+	 *   valid or not to a web page
+	 *
+	 * @see #normalize(URI)
+	 */
+	static String resolve(URI base, String href) {
+		try {
+			return normalize(base.resolve(href.strip()));
+		} catch (IllegalArgumentException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Normalizes a URL so the same page always has the same URL. The fragment
+	 * is removed, as it refers to part of the same page, and an empty path
+	 * becomes {@code /}.
+	 *
+	 * @param url the URL to normalize
+	 * @return the normalized URL, or {@code null} if it is not an absolute
+	 *   HTTP or HTTPS URL
+	 */
+	static String normalize(URI url) {
+		String scheme = url.getScheme();
+		if (scheme == null || url.getRawAuthority() == null
+				|| !scheme.equalsIgnoreCase("http") && !scheme.equalsIgnoreCase("https")) {
+			return null;
+		}
+
+		URI normal = url.normalize();
+		String path = normal.getRawPath() == null || normal.getRawPath().isEmpty() ? "/" : normal.getRawPath();
+		String query = normal.getRawQuery() == null ? "" : "?" + normal.getRawQuery();
+		return scheme.toLowerCase(Locale.ROOT) + "://" + normal.getRawAuthority().toLowerCase(Locale.ROOT) + path + query;
+	}
+
+	/**
+	 * The stems and links of a downloaded page
+	 */
+	private static class Page {
+		/** The stems of the page in the order they are found */
+		private final ArrayList<String> stems = new ArrayList<>();
+
+		/** The links of the page in the order they are found */
+		private final ArrayList<String> links = new ArrayList<>();
+	}
+
+	/**
+	 * Counts the bytes read from a download
+	 */
+	private static class CountingInputStream extends FilterInputStream {
+		/**
+		 * Initializes a counting stream
+		 *
+		 * @param in the stream to count
+		 */
+		public CountingInputStream(InputStream in) {
+			super(in);
+		}
+
+		@Override
+		public int read() throws IOException {
+			int b = super.read();
+			if (b >= 0) {
+				DOWNLOADED.add(1);
+			}
+			return b;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			int read = super.read(b, off, len);
+			if (read > 0) {
+				DOWNLOADED.add(read);
+			}
+			return read;
+		}
+	}
+}
@@ -34,6 +34,15 @@ public class WordCleaner {
 	public static final Pattern CLEAN_REGEX = Pattern
 			.compile("(?U)[^\\p{Alpha}\\p{Space}]+");
 
+	/** Measures the time spent reading files */
+	private static final Stats.Timer READ = Stats.timer(Stats.READ);
+
+	/** Measures the time spent cleaning and splitting text */
+	private static final Stats.Timer TOKENIZE = Stats.timer(Stats.TOKENIZE);
+
+	/** Measures the time spent stemming words */
+	private static final Stats.Timer STEM = Stats.timer(Stats.STEM);
+
 	/**
 	 * Cleans the text by removing any non-alphabetic characters (e.g. non-letters
 	 * like digits, punctuation, symbols, and diacritical marks like the umlaut)
@@ -42,7 +51,7 @@ public class WordCleaner {
 	 * @param text the text to clean
 	 * @return cleaned text
 	 */
-	public static String clean(String text) {
+	public static String clean(CharSequence text) {
 		String cleaned = Normalizer.normalize(text, Normalizer.Form.NFD);
 		cleaned = CLEAN_REGEX.matcher(cleaned).replaceAll("");
 		return cleaned.toLowerCase();
@@ -73,7 +82,8 @@ public class WordCleaner {
 
 	/**
 	 * Parses the line into cleaned and stemmed words and adds them to the
-	 * provided collection.
+	 * provided collection. The line may contain line breaks, which separate
+	 * words like any other whitespace.
 	 *
 	 * @param line the line of words to clean, split, and stem
 	 * @param stemmer the stemmer to use
@@ -83,7 +93,7 @@ public class WordCleaner {
 	 * @see Stemmer#stem(CharSequence)
 	 * @see Collection#add(Object)
 	 */
-	public static void addStems(String line, Stemmer stemmer, Collection<String> stems) {
+	public static void addStems(CharSequence line, Stemmer stemmer, Collection<String> stems) {
 		stems.addAll(listStems(line, stemmer));
 	}
 
@@ -96,11 +106,14 @@ public class WordCleaner {
 	 *
 	 * @see #parse(String)
 	 * @see Stemmer#stem(CharSequence)
-	 * @see #addStems(String, Stemmer, Collection)
+	 * @see #addStems(CharSequence, Stemmer, Collection)
 	 */
-	public static ArrayList<String> listStems(String line, Stemmer stemmer) {
-		line = clean(line);
-		String[] words = split(line);
+	public static ArrayList<String> listStems(CharSequence line, Stemmer stemmer) {
+		long start = TOKENIZE.start();
+		String[] words = split(clean(line));
+		TOKENIZE.stop(start);
+
+		start = STEM.start();
 		ArrayList<String> stems = new ArrayList<String>();
 
 		for (String word : words) {
@@ -108,6 +121,7 @@ public class WordCleaner {
 			stems.add(stemmed);
 		}
 
+		STEM.stop(start);
 		return stems;
 	}
 
@@ -120,7 +134,7 @@ public class WordCleaner {
 	 *
 	 * @see SnowballStemmer#SnowballStemmer(ALGORITHM)
 	 * @see ALGORITHM#ENGLISH
-	 * @see #listStems(String, Stemmer)
+	 * @see #listStems(CharSequence, Stemmer)
 	 */
 	public static ArrayList<String> listStems(String line) {
 		Stemmer stemmer = new SnowballStemmer(ENGLISH);
@@ -128,8 +142,10 @@ public class WordCleaner {
 	}
 
 	/**
-	 * Reads a file line by line, parses each line into cleaned and stemmed words
-	 * using the default stemmer for English.
+	 * Reads a file a block of lines at a time through a memory mapping, and
+	 * parses each block into cleaned and stemmed words using the default stemmer
+	 * for English. Large files are split into chunks and stemmed in parallel,
+	 * with the same result.
 	 *
 	 * @param input the input file to parse and stem
 	 * @return a list of stems from file in parsed order
@@ -138,20 +154,99 @@ public class WordCleaner {
 	 * @see SnowballStemmer
 	 * @see ALGORITHM#ENGLISH
 	 * @see StandardCharsets#UTF_8
-	 * @see #listStems(String, Stemmer)
+	 * @see #listStems(CharSequence, Stemmer)
+	 * @see MappedTextReader
+	 * @see ParallelStemmer
 	 */
 	public static ArrayList<String> listStems(Path input) throws IOException {
-		List<String> inputLines = Files.readAllLines(input);
-		ArrayList<String> outputList = new ArrayList<String>(inputLines.size());
+		if (ParallelStemmer.shouldSplit(input)) {
+			return new ParallelStemmer().listStems(input);
+		}
 
+		ArrayList<String> outputList = new ArrayList<String>();
 		Stemmer stemmer = new SnowballStemmer(ENGLISH);
 
-		for (String line : inputLines) {
+		try (MappedTextReader reader = new MappedTextReader(input)) {
+			while (true) {
+				long start = READ.start();
+				CharSequence lines = reader.nextLines();
+				READ.stop(start);
+
+				if (lines == null) {
+					break;
+				}
+				addStems(lines, stemmer, outputList);
+			}
+		}
+		return outputList;
+	}
+
+	/**
+	 * Reads text line by line, and parses each line into cleaned and stemmed
+	 * words using the default stemmer for English. Used for text that is not a
+	 * file on disk, such as an entry of an archive.
+	 *
+	 * @param reader the text to parse and stem, which is not closed
+	 * @return a list of stems from the text in parsed order
+	 * @throws IOException if unable to read or parse the text
+	 *
+	 * @see #listStems(Path)
+	 */
+	public static ArrayList<String> listStems(BufferedReader reader) throws IOException {
+		ArrayList<String> outputList = new ArrayList<String>();
+		Stemmer stemmer = new SnowballStemmer(ENGLISH);
+
+		while (true) {
+			long start = READ.start();
+			String line = reader.readLine();
+			READ.stop(start);
+
+			if (line == null) {
+				break;
+			}
 			addStems(line, stemmer, outputList);
 		}
 		return outputList;
 	}
 
+	/**
+	 * Reads a file line by line and counts the cleaned words in it, without
+	 * stemming them. Stemming never removes a word, so this is the same as the
+	 * size of {@link #listStems(Path)}.
+	 *
+	 * @param input the input file to count
+	 * @return the number of cleaned words in the file
+	 * @throws IOException if unable to read or parse file
+	 *
+	 * @see #parse(String)
+	 */
+	public static int countWords(Path input) throws IOException {
+		try (BufferedReader reader = Files.newBufferedReader(input, UTF_8)) {
+			return countWords(reader);
+		}
+	}
+
+	/**
+	 * Reads text line by line and counts the cleaned words in it, without
+	 * stemming them.
+	 *
+	 * @param reader the text to count, which is not closed
+	 * @return the number of cleaned words in the text
+	 * @throws IOException if unable to read or parse the text
+	 *
+	 * @see #countWords(Path)
+	 */
+	public static int countWords(BufferedReader reader) throws IOException {
+		int count = 0;
+		String line = null;
+		while ((line = reader.readLine()) != null) {
+			long start = TOKENIZE.start();
+			count += parse(line).length;
+			TOKENIZE.stop(start);
+		}
+		return count;
+	}
+
 	/**
 	 * Parses the line into a set of unique, sorted, cleaned, and stemmed words.
 	 *
@@ -161,7 +256,7 @@ public class WordCleaner {
 	 *
 	 * @see #parse(String)
 	 * @see Stemmer#stem(CharSequence)
-	 * @see #addStems(String, Stemmer, Collection)
+	 * @see #addStems(CharSequence, Stemmer, Collection)
 	 */
 	public static TreeSet<String> uniqueStems(String line, Stemmer stemmer) {
 		line = clean(line);
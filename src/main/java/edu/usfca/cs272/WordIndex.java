@@ -1,6 +1,7 @@
 package edu.usfca.cs272;
 
 import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -8,17 +9,18 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
+import java.util.NavigableMap;
 import java.util.Set;
 import java.util.TreeMap;
 
 /**
- * A type of {@link InvertedIndex} that indexes the {@link Path} to the files, as well
+ * A type of {@link InvertedIndex} that indexes the location of the files, as well
  * as the positions within each file, that the word can be found.
  *
  * @author Matthew Kahane
  *
  */
-public class WordIndex implements InvertedIndex<Path> {
+public class WordIndex implements InvertedIndex<String>, OrderedIndex, FileFinder.OffsetInput {
 
 	/**
 	 * Index to store the given data in.
@@ -26,7 +28,7 @@ public class WordIndex implements InvertedIndex<Path> {
 	 * Outer HashMap maps the word to the inner HashMap. Inner HashMap maps
 	 * each path to the positions of that word found in the file at that path.
 	 */
-	private final TreeMap<String, TreeMap<Path, ArrayList<Integer>>> index;
+	private final TreeMap<String, TreeMap<String, ArrayList<Integer>>> index;
 
 	/**
 	 * Map to store the word counts of the files in the index
@@ -36,26 +38,121 @@ public class WordIndex implements InvertedIndex<Path> {
 	 */
 	private final TreeMap<String, Integer> counts;
 
+	/**
+	 * The byte offset of each position in the files on disk, by location, or
+	 * {@code null} if offsets are not recorded
+	 */
+	private final TreeMap<String, int[]> offsets;
+
+	/** The suggestions for the words, or {@code null} until they are first asked for */
+	private SuggestionIndex suggestions;
+
+	/** The runs of three characters in the words, or {@code null} until they are first needed */
+	private TrigramIndex trigrams;
+
+	/** The sorted words for finding similar words, or {@code null} until they are needed */
+	private SpellingIndex spelling;
+
+	/** Measures the time spent indexing files */
+	private static final Stats.Timer INDEX = Stats.timer(Stats.INDEX);
+
+	/** Measures the time spent adding words to the index */
+	private static final Stats.Timer INSERT = Stats.timer(Stats.INSERT);
+
+	/** Counts the files indexed */
+	private static final Stats.Counter FILES = Stats.counter(Stats.FILES);
+
+	/** Counts the bytes in the files indexed */
+	private static final Stats.Counter BYTES = Stats.counter(Stats.BYTES);
+
+	/** Counts the stemmed words produced */
+	private static final Stats.Counter TOKENS = Stats.counter(Stats.TOKENS);
+
+	/** Counts the positions added to the index */
+	private static final Stats.Counter POSTINGS = Stats.counter(Stats.POSTINGS);
+
 	/**
 	 * Initializes this WordIndex map
 	 */
 	public WordIndex() {
+		this(false);
+	}
+
+	/**
+	 * Initializes this WordIndex map, optionally recording the byte offset of
+	 * every position in the files it indexes so snippets can be read from them
+	 * later. Offsets are recorded for uncompressed files on disk, but not for
+	 * archive entries or web pages.
+	 *
+	 * @param offsets whether to record the byte offsets of positions
+	 *
+	 * @see SnippetReader
+	 */
+	public WordIndex(boolean offsets) {
 		this.index = new TreeMap<>();
 		this.counts = new TreeMap<>(Comparator.naturalOrder());
+		this.offsets = offsets ? new TreeMap<>() : null;
+		this.suggestions = null;
+		this.trigrams = null;
+		this.spelling = null;
 	}
 
 	@Override
-	public void add(String word, Path location, ArrayList<Integer> positions) {
-		 index.putIfAbsent(word, new TreeMap<Path, ArrayList<Integer>>());
-		 index.get(word).putIfAbsent(location, positions);
-		 index.get(word).get(location).addAll(positions);
+	public void add(String word, String location, ArrayList<Integer> positions) {
+		positions(word, location).addAll(positions);
 	}
 
 	@Override
-	public void add(String word, Path location, Integer position) {
-		index.putIfAbsent(word, new TreeMap<Path, ArrayList<Integer>>());
-		index.get(word).putIfAbsent(location, new ArrayList<Integer>());
-		index.get(word).get(location).add(position);
+	public void add(String word, String location, Integer position) {
+		positions(word, location).add(position);
+	}
+
+	/**
+	 * Returns the positions of a word at a location, adding the word and
+	 * location if they are new. The suggestions are updated when the word is
+	 * found at a new location, and the trigrams when the word is new. The sorted
+	 * words for finding similar words are built again once a word is added.
+	 *
+	 * @param word the word to add
+	 * @param location the location the word is found at
+	 * @return the positions of the word at the location, which may be added to
+	 */
+	private ArrayList<Integer> positions(String word, String location) {
+		TreeMap<String, ArrayList<Integer>> locations = index.get(word);
+		if (locations == null) {
+			locations = new TreeMap<>();
+			index.put(word, locations);
+			if (trigrams != null) {
+				trigrams.add(word);
+			}
+			spelling = null;
+		}
+
+		ArrayList<Integer> positions = locations.get(location);
+		if (positions == null) {
+			positions = new ArrayList<>();
+			locations.put(location, positions);
+			if (suggestions != null) {
+				suggestions.update(word, locations.size());
+			}
+		}
+		return positions;
+	}
+
+	/**
+	 * Returns the suggested completions of prefixes of the words in the index,
+	 * ranked by the number of locations each word is found in. They are built
+	 * the first time they are asked for, and kept up to date as words are added
+	 * from then on, so an index that is never asked for suggestions pays nothing
+	 * for them.
+	 *
+	 * @return the suggestions for the words in the index
+	 */
+	public SuggestionIndex suggestions() {
+		if (suggestions == null) {
+			suggestions = SuggestionIndex.of(this, SuggestionIndex.TOP);
+		}
+		return suggestions;
 	}
 
 	@Override
@@ -73,7 +170,7 @@ public class WordIndex implements InvertedIndex<Path> {
 	}
 
 	@Override
-	public int size(String word, Path location) {
+	public int size(String word, String location) {
 		if (has(word, location)) {
 			return index.get(word).get(location).size();
 		} else {
@@ -87,12 +184,12 @@ public class WordIndex implements InvertedIndex<Path> {
 	}
 
 	@Override
-	public boolean has(String word, Path location) {
+	public boolean has(String word, String location) {
 		return has(word) ? index.get(word).containsKey(location) : false;
 	}
 
 	@Override
-	public boolean has(String word, Path location, Integer position) {
+	public boolean has(String word, String location, Integer position) {
 		return has(word, location) ? index.get(word).get(location).contains(position) : false;
 	}
 
@@ -102,16 +199,56 @@ public class WordIndex implements InvertedIndex<Path> {
 	}
 
 	@Override
-	public Collection<Path> view(String word) {
+	public Collection<String> viewPrefix(String prefix) {
+		ArrayList<String> words = new ArrayList<>();
+		for (String word : index.tailMap(prefix, true).keySet()) {
+			if (!word.startsWith(prefix)) {
+				break;
+			}
+			words.add(word);
+		}
+		return words;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * The words are looked up in a {@link TrigramIndex} built the first time
+	 * this is called and kept up to date as words are added from then on.
+	 */
+	@Override
+	public Collection<String> viewMatching(String pattern) {
+		if (trigrams == null) {
+			trigrams = TrigramIndex.of(index.keySet());
+		}
+		return trigrams.match(pattern);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * The words are copied into a sorted array the first time this is called
+	 * after a word is added.
+	 */
+	@Override
+	public Collection<String> viewSimilar(String word, int distance) {
+		if (spelling == null) {
+			spelling = new SpellingIndex(index.keySet().toArray(String[]::new));
+		}
+		return spelling.match(word, distance);
+	}
+
+	@Override
+	public Collection<String> view(String word) {
 		if (index.get(word) == null) {
-			ArrayList<Path> empty = new ArrayList<Path>();
+			ArrayList<String> empty = new ArrayList<String>();
 			return empty;
 		}
 		return List.copyOf(index.get(word).keySet());
 	}
 
 	@Override
-	public Collection<Integer> view(String word, Path location) {
+	public Collection<Integer> view(String word, String location) {
 		if (!has(word, location)) {
 			ArrayList<Integer> empty = new ArrayList<Integer>();
 			return empty;
@@ -120,16 +257,16 @@ public class WordIndex implements InvertedIndex<Path> {
 	}
 
 	@Override
-	public TreeMap<Path, ? extends Collection<? extends Number>> get(String word) {
+	public TreeMap<String, ? extends Collection<? extends Number>> get(String word) {
 		if (index.get(word) == null) {
 			return null;
 		}
-		TreeMap<Path, ArrayList<Integer>> out = new TreeMap<Path, ArrayList<Integer>>(index.get(word));
+		TreeMap<String, ArrayList<Integer>> out = new TreeMap<String, ArrayList<Integer>>(index.get(word));
 		return out;
 	}
 
 	@Override
-	public ArrayList<Integer> get(String word, Path location) {
+	public ArrayList<Integer> get(String word, String location) {
 		if (has(word, location)) {
 			return (ArrayList<Integer>) List.copyOf(index.get(word).get(location));
 		} else {
@@ -142,6 +279,26 @@ public class WordIndex implements InvertedIndex<Path> {
 		return Set.copyOf(index.keySet());
 	}
 
+	@Override
+	public void visit(IndexVisitor<String> visitor, String start, String end) throws IOException {
+		NavigableMap<String, TreeMap<String, ArrayList<Integer>>> range = index;
+		if (start != null) {
+			range = range.tailMap(start, true);
+		}
+		if (end != null) {
+			range = range.headMap(end, false);
+		}
+
+		for (var word : range.entrySet()) {
+			if (visitor.visitWord(word.getKey(), word.getValue().size())) {
+				for (var location : word.getValue().entrySet()) {
+					visitor.visitLocation(location.getKey(), Collections.unmodifiableList(location.getValue()));
+				}
+			}
+			visitor.endWord(word.getKey());
+		}
+	}
+
 	/**
 	 * Adds the location and the number of words it contains to the count Map
 	 *
@@ -172,21 +329,89 @@ public class WordIndex implements InvertedIndex<Path> {
 		return Collections.unmodifiableSortedMap(counts);
 	}
 
+	/**
+	 * Returns the byte offset in a file of the word at a position
+	 *
+	 * @param location the location of the file
+	 * @param position the position of the word, starting at 1
+	 * @return the offset of the first byte of the word, or -1 if the offsets of
+	 *   the location were not recorded or it has no such position
+	 */
+	public int offset(String location, int position) {
+		int[] found = offsets != null ? offsets.get(location) : null;
+		return found != null && position >= 1 && position <= found.length ? found[position - 1] : -1;
+	}
+
+	/**
+	 * Determines whether the byte offsets of the positions in a location were
+	 * recorded
+	 *
+	 * @param location the location to check
+	 * @return {@code true} if snippets can be read from the location
+	 */
+	public boolean hasOffsets(String location) {
+		return offsets != null && offsets.containsKey(location);
+	}
+
+	@Override
+	public boolean recordsOffsets() {
+		return offsets != null;
+	}
+
 	/**
 	 * Inputs the contents of a file to the index
 	 *
 	 * @param path the path where the file is found
 	 * @throws IOException if an IO error occurs
 	 */
+	@Override
 	public void inputFile(Path path) throws IOException {
-		ArrayList<String> cleanedWords = WordCleaner.listStems(path);
+		long start = INDEX.start();
+		if (offsets != null && !TextSource.isGzip(path)) {
+			SnippetReader.Words words = SnippetReader.words(path);
+			inputStems(path.toString(), words.stems(), words.offsets());
+		} else {
+			inputStems(path.toString(), WordCleaner.listStems(path));
+		}
+		INDEX.stop(start);
+
+		if (Stats.isEnabled()) {
+			BYTES.add(Files.size(path));
+		}
+	}
 
+	@Override
+	public void inputStems(String location, List<String> cleanedWords) throws IOException {
 		if (cleanedWords.size() > 0) {
-			this.addWordCount(path.toString(), cleanedWords.size());
+			this.addWordCount(location, cleanedWords.size());
 		}
 
+		long insert = INSERT.start();
 		for (int i = 0; i < cleanedWords.size(); i++) {
-			this.add(cleanedWords.get(i), path, i+1);
+			this.add(cleanedWords.get(i), location, i+1);
+		}
+		INSERT.stop(insert);
+
+		if (Stats.isEnabled()) {
+			FILES.add(1);
+			TOKENS.add(cleanedWords.size());
+			POSTINGS.add(cleanedWords.size());
+		}
+	}
+
+	@Override
+	public void inputStems(String location, List<String> cleanedWords, int[] offsets) throws IOException {
+		if (this.offsets == null) {
+			throw new IllegalStateException("This index does not record offsets");
+		}
+		if (offsets.length != cleanedWords.size()) {
+			throw new IllegalArgumentException("Found " + offsets.length + " offsets for "
+					+ cleanedWords.size() + " words in: " + location);
+		}
+
+		inputStems(location, cleanedWords);
+		if (offsets.length > 0) {
+			this.offsets.put(location, offsets);
 		}
 	}
 }
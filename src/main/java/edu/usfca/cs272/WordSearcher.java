@@ -9,7 +9,7 @@ import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.LinkedHashMap;
-import java.util.Set;
+import java.util.List;
 import java.util.TreeMap;
 import java.util.TreeSet;
 
@@ -20,23 +20,37 @@ import java.util.TreeSet;
  */
 public class WordSearcher {
 
+	/** Measures the time spent searching the index */
+	private static final Stats.Timer SEARCH = Stats.timer(Stats.SEARCH);
+
+	/** Counts the non-empty queries searched */
+	private static final Stats.Counter QUERIES = Stats.counter(Stats.QUERIES);
+
+	/** Counts the search results found */
+	private static final Stats.Counter RESULTS = Stats.counter(Stats.RESULTS);
+
+	/** The counts reused by every search of a {@link FrequencyIndex} on each thread */
+	private static final ThreadLocal<Accumulator> ACCUMULATORS = ThreadLocal.withInitial(Accumulator::new);
+
 	/**
 	 * Finds all of the paths in the index that the words in the query appear in.
 	 *
 	 * @param query the set of words to search for in the index
 	 * @param index the index to search through
 	 * @param exact marks whether the search should be exact or partial
+	 * @param event the event to count the matched index words in
 	 * @return an ArrayList of the paths that have at least one occurrence of
 	 * one of the query words.
 	 */
-	private static LinkedHashMap<Path, Integer> findResults(TreeSet<String> query, WordIndex index, boolean exact) {
-		LinkedHashMap<Path, Integer> results = new LinkedHashMap<>();
+	private static LinkedHashMap<String, Integer> findResults(TreeSet<String> query, SearchableIndex index, boolean exact, SearchEvent event) {
+		LinkedHashMap<String, Integer> results = new LinkedHashMap<>();
 		if (exact) {
 			for (String word : query) {
 				if (index.has(word)) {
-					var temp = index.get(word);
+					var temp = index.view(word);
+					event.matchedTerms++;
 
-					for (Path location : temp.keySet()) {
+					for (String location : temp) {
 						if (results.containsKey(location)) {
 							int newCount = results.get(location) + index.size(word, location);
 							results.put(location, newCount);
@@ -47,19 +61,17 @@ public class WordSearcher {
 				}
 			}
 		} else {
-			Set<String> indexKeys = index.getKeys();
 			for (String word : query) {
-				for (String key : indexKeys) {
-					if (key.startsWith(word)) {
-						var temp = index.get(key);
-
-						for (Path location : temp.keySet()) {
-							if (results.containsKey(location)) {
-								int newCount = results.get(location) + index.size(key, location);
-								results.put(location, newCount);
-							} else if(!results.containsKey(location)) {
-								results.put(location, index.size(key, location));
-							}
+				for (String key : index.viewPrefix(word)) {
+					var temp = index.view(key);
+					event.matchedTerms++;
+
+					for (String location : temp) {
+						if (results.containsKey(location)) {
+							int newCount = results.get(location) + index.size(key, location);
+							results.put(location, newCount);
+						} else if(!results.containsKey(location)) {
+							results.put(location, index.size(key, location));
 						}
 					}
 				}
@@ -69,6 +81,156 @@ public class WordSearcher {
 		return results;
 	}
 
+	/**
+	 * Finds, scores, and sorts the locations in a {@link FrequencyIndex} that the
+	 * words in the query appear in. The counts and scores are kept by location
+	 * number in arrays reused between searches on the same thread, with the
+	 * locations counted so far listed in a third array, and the locations are
+	 * sorted in that array. Prefixes are looked up in the sorted vocabulary of
+	 * the index. Besides the results it returns, a search does no hashing and
+	 * allocates nothing once the arrays are large enough.
+	 *
+	 * @param query the set of words to search for in the index
+	 * @param index the index to search through
+	 * @param exact marks whether the search should be exact or partial
+	 * @param accumulator the arrays to count in, which also counts the matched
+	 *   index words
+	 * @return the sorted results for every location with at least one
+	 *   occurrence of one of the query words
+	 */
+	private static ArrayList<SearchResult> findResults(TreeSet<String> query, FrequencyIndex index, boolean exact, Accumulator accumulator) {
+		accumulator.reserve(index.locations());
+		accumulator.matchedTerms = 0;
+		int[] counts = accumulator.counts;
+		int[] touched = accumulator.touched;
+		double[] scores = accumulator.scores;
+
+		int found = 0;
+		try {
+			FrequencyIndex.Vocabulary vocabulary = index.vocabulary();
+			for (String word : query) {
+				int i = vocabulary.start(word);
+				while (i < vocabulary.size() && (exact ? vocabulary.word(i).equals(word) : vocabulary.word(i).startsWith(word))) {
+					accumulator.matchedTerms++;
+					found = vocabulary.postings(i++).accumulate(counts, touched, found);
+				}
+			}
+
+			for (int i = 0; i < found; i++) {
+				int location = touched[i];
+				scores[location] = (double) counts[location] / index.getWordCount(location);
+			}
+			sort(touched, 0, found, counts, scores, index);
+
+			ArrayList<SearchResult> results = new ArrayList<>(found);
+			for (int i = 0; i < found; i++) {
+				int location = touched[i];
+				results.add(new SearchResult(counts[location], scores[location], index.location(location)));
+			}
+			return results;
+		} finally {
+			for (int i = 0; i < found; i++) {
+				counts[touched[i]] = 0;
+			}
+		}
+	}
+
+	/**
+	 * Sorts locations by number in place, in the same order as
+	 * {@link SearchResult#compareTo(SearchResult)} sorts their results. Uses a
+	 * quicksort that recurses into the smaller side, with an insertion sort for
+	 * short ranges.
+	 *
+	 * @param locations the location numbers to sort
+	 * @param from the first position to sort
+	 * @param to the position after the last to sort
+	 * @param counts the count of each location
+	 * @param scores the score of each location
+	 * @param index the index the locations are numbered in
+	 */
+	private static void sort(int[] locations, int from, int to, int[] counts, double[] scores, FrequencyIndex index) {
+		while (to - from > 16) {
+			int middle = (from + to) >>> 1;
+			if (compare(locations[middle], locations[from], counts, scores, index) < 0) {
+				swap(locations, middle, from);
+			}
+			if (compare(locations[to - 1], locations[middle], counts, scores, index) < 0) {
+				swap(locations, to - 1, middle);
+				if (compare(locations[middle], locations[from], counts, scores, index) < 0) {
+					swap(locations, middle, from);
+				}
+			}
+			int pivot = locations[middle];
+
+			int i = from;
+			int j = to - 1;
+			while (i <= j) {
+				while (compare(locations[i], pivot, counts, scores, index) < 0) {
+					i++;
+				}
+				while (compare(pivot, locations[j], counts, scores, index) < 0) {
+					j--;
+				}
+				if (i <= j) {
+					swap(locations, i++, j--);
+				}
+			}
+
+			if (j + 1 - from < to - i) {
+				sort(locations, from, j + 1, counts, scores, index);
+				from = i;
+			} else {
+				sort(locations, i, to, counts, scores, index);
+				to = j + 1;
+			}
+		}
+
+		for (int i = from + 1; i < to; i++) {
+			int location = locations[i];
+			int j = i - 1;
+			while (j >= from && compare(location, locations[j], counts, scores, index) < 0) {
+				locations[j + 1] = locations[j];
+				j--;
+			}
+			locations[j + 1] = location;
+		}
+	}
+
+	/**
+	 * Compares two locations by score, then count, then location, as
+	 * {@link SearchResult#compareTo(SearchResult)} does
+	 *
+	 * @param first the number of the first location
+	 * @param second the number of the second location
+	 * @param counts the count of each location
+	 * @param scores the score of each location
+	 * @param index the index the locations are numbered in
+	 * @return a negative number if the first location comes first, a positive
+	 *   number if it comes second, or 0 if they are equal
+	 */
+	private static int compare(int first, int second, int[] counts, double[] scores, FrequencyIndex index) {
+		if (scores[first] != scores[second]) {
+			return scores[first] > scores[second] ? -1 : 1;
+		}
+		if (counts[first] != counts[second]) {
+			return counts[first] > counts[second] ? -1 : 1;
+		}
+		return index.location(first).compareToIgnoreCase(index.location(second));
+	}
+
+	/**
+	 * Swaps two locations
+	 *
+	 * @param locations the location numbers
+	 * @param i the position of one location
+	 * @param j the position of the other location
+	 */
+	private static void swap(int[] locations, int i, int j) {
+		int location = locations[i];
+		locations[i] = locations[j];
+		locations[j] = location;
+	}
+
 	/**
 	 * Calculates the number of appearances of each query word and the score of the
 	 * result. sorts them, and stores them in a data structure to be returned.
@@ -80,46 +242,249 @@ public class WordSearcher {
 	 * @param index the index for reference words, locations, and positions
 	 * @param searchResults the map to add the search results to
 	 * @param exact flag to mark if an exact search should be performed or not
+	 *
+	 * @see #search(Path, SearchableIndex, boolean)
 	 */
 	public static void search
-	(Path queryPath, WordIndex index, TreeMap<String, ArrayList<LinkedHashMap<String, String>>> searchResults, boolean exact) {
-		LinkedHashMap<Path, Integer> results = null;
+	(Path queryPath, SearchableIndex index, TreeMap<String, ArrayList<LinkedHashMap<String, String>>> searchResults, boolean exact) {
+		TreeMap<String, ArrayList<SearchResult>> results = search(queryPath, index, exact);
+		for (String query : results.keySet()) {
+			ArrayList<LinkedHashMap<String, String>> scoredResults = new ArrayList<>();
+			for (SearchResult result : results.get(query)) {
+				scoredResults.add(result.format());
+			}
+			searchResults.put(query, scoredResults);
+		}
+	}
+
+	/**
+	 * Calculates the number of appearances of each query word and the score of
+	 * each result, and sorts them. Unlike
+	 * {@link #search(Path, SearchableIndex, TreeMap, boolean)} the results are kept as
+	 * {@link SearchResult} objects so they can be written without formatting.
+	 *
+	 * @param queryPath the path at which the file containing the queries can be found
+	 * @param index the index for reference words, locations, and positions
+	 * @param exact flag to mark if an exact search should be performed or not
+	 * @return a map from each joined query to its sorted search results
+	 *
+	 * @see PrettyJsonWriter#writeSearchResults(java.util.Map, Path, int)
+	 */
+	public static TreeMap<String, ArrayList<SearchResult>> search(Path queryPath, SearchableIndex index, boolean exact) {
+		TreeMap<String, ArrayList<SearchResult>> searchResults = new TreeMap<>();
 		TreeSet<String> cleanedQuery = null;
 		try (BufferedReader reader = Files.newBufferedReader(queryPath, UTF_8)) {
 			String line;
 			while ((line = reader.readLine()) != null) {
 				cleanedQuery = WordCleaner.uniqueStems(line);
 				if (cleanedQuery.size() > 0) {
-					results = findResults(cleanedQuery, index, exact);
-
-					ArrayList<LinkedHashMap<String, String>> scoredResults = new ArrayList<>();
-					assert results != null;
-					ArrayList<SearchResult> temp = new ArrayList<>();
-					Path location;
-					for (Path path : results.keySet()) {
-						location = path;
-
-						int appearances = results.get(location);
-						SearchResult result = new SearchResult(appearances, ((double)appearances/index.getWordCount(location.toString())), location.toString());
-						temp.add(result);
+					String joinedQuery = String.join(" ", cleanedQuery);
+					searchResults.put(joinedQuery, search(cleanedQuery, index, exact));
+				}
+			}
+		} catch (IOException e) {
+			System.out.println("Something went wrong processing -query");
+		}
+		return searchResults;
+	}
+
+	/**
+	 * Searches for each query in a file, where the query words containing
+	 * {@value TrigramIndex#WILDCARD} are patterns such as {@code *tion} or
+	 * {@code *graph*}. Patterns are cleaned but not stemmed, and stand for every
+	 * word of the index that matches them, so each query is searched exactly for
+	 * its stems and the words its patterns match. The results are stored under
+	 * the sorted stems and patterns of each query.
+	 *
+	 * @param queryPath the path at which the file containing the queries can be found
+	 * @param index the index for reference words, locations, and positions
+	 * @return a map from each joined query to its sorted search results
+	 *
+	 * @see SearchableIndex#viewMatching(String)
+	 */
+	public static TreeMap<String, ArrayList<SearchResult>> searchWildcard(Path queryPath, SearchableIndex index) {
+		TreeMap<String, ArrayList<SearchResult>> searchResults = new TreeMap<>();
+		try (BufferedReader reader = Files.newBufferedReader(queryPath, UTF_8)) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				TreeSet<String> terms = new TreeSet<>();
+				TreeSet<String> words = new TreeSet<>();
+				for (String token : WordCleaner.split(line)) {
+					if (token.indexOf(TrigramIndex.WILDCARD) >= 0) {
+						String pattern = cleanPattern(token);
+						terms.add(pattern);
+						words.addAll(index.viewMatching(pattern));
+					} else {
+						TreeSet<String> stems = WordCleaner.uniqueStems(token);
+						terms.addAll(stems);
+						words.addAll(stems);
 					}
+				}
+				if (terms.size() > 0) {
+					searchResults.put(String.join(" ", terms), search(words, index, true));
+				}
+			}
+		} catch (IOException e) {
+			System.out.println("Something went wrong processing -query");
+		}
+		return searchResults;
+	}
 
-					Collections.sort(temp);
-					for (SearchResult result : temp) {
-						scoredResults.add(result.format());
+	/**
+	 * Searches for each query in a file, allowing for typos. Each stem of a
+	 * query stands for every word of the index within a number of edits of it,
+	 * so each query is searched exactly for the words close to its stems. The
+	 * results are stored under the sorted stems of each query, as for any other
+	 * search.
+	 *
+	 * @param queryPath the path at which the file containing the queries can be found
+	 * @param index the index for reference words, locations, and positions
+	 * @param distance the most edits a word of the index may be from a stem
+	 * @return a map from each joined query to its sorted search results
+	 *
+	 * @see SearchableIndex#viewSimilar(String, int)
+	 */
+	public static TreeMap<String, ArrayList<SearchResult>> searchTypos(Path queryPath, SearchableIndex index, int distance) {
+		TreeMap<String, ArrayList<SearchResult>> searchResults = new TreeMap<>();
+		try (BufferedReader reader = Files.newBufferedReader(queryPath, UTF_8)) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				TreeSet<String> cleanedQuery = WordCleaner.uniqueStems(line);
+				if (cleanedQuery.size() > 0) {
+					TreeSet<String> words = new TreeSet<>();
+					for (String stem : cleanedQuery) {
+						words.addAll(index.viewSimilar(stem, distance));
 					}
+					searchResults.put(String.join(" ", cleanedQuery), search(words, index, true));
+				}
+			}
+		} catch (IOException e) {
+			System.out.println("Something went wrong processing -query");
+		}
+		return searchResults;
+	}
 
-					assert cleanedQuery != null;
-					String joinedQuery = String.join(" ", cleanedQuery);
-					searchResults.put(joinedQuery, scoredResults);
+	/**
+	 * Suggests completions for each query in a file. The stems of a query are
+	 * completed as prefixes, like a partial search, and the words found in the
+	 * most locations are suggested first. The suggestions are stored under the
+	 * sorted stems of each query, as for a search.
+	 *
+	 * @param queryPath the path at which the file containing the queries can be found
+	 * @param suggestions the suggestions for the words of the index
+	 * @param n the most completions to suggest for each query
+	 * @return a map from each joined query to its best completions
+	 *
+	 * @see WordIndex#suggestions()
+	 */
+	public static TreeMap<String, List<String>> suggest(Path queryPath, SuggestionIndex suggestions, int n) {
+		TreeMap<String, List<String>> completions = new TreeMap<>();
+		try (BufferedReader reader = Files.newBufferedReader(queryPath, UTF_8)) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				TreeSet<String> cleanedQuery = WordCleaner.uniqueStems(line);
+				if (cleanedQuery.size() > 0) {
+					completions.put(String.join(" ", cleanedQuery), suggestions.suggest(cleanedQuery, n));
 				}
 			}
 		} catch (IOException e) {
 			System.out.println("Something went wrong processing -query");
 		}
+		return completions;
 	}
-}
 
+	/**
+	 * Cleans the text between the wildcards of a pattern
+	 *
+	 * @param token the pattern as written in the query
+	 * @return the pattern with the text between its wildcards cleaned
+	 *
+	 * @see WordCleaner#clean(CharSequence)
+	 */
+	private static String cleanPattern(String token) {
+		String[] pieces = token.split("\\" + TrigramIndex.WILDCARD, -1);
+		for (int i = 0; i < pieces.length; i++) {
+			pieces[i] = WordCleaner.clean(pieces[i]);
+		}
+		return String.join(String.valueOf(TrigramIndex.WILDCARD), pieces);
+	}
 
+	/**
+	 * Calculates the number of appearances of the query words in each location
+	 * and the score of each result, and sorts them.
+	 *
+	 * @param cleanedQuery the unique cleaned and stemmed words of a single query
+	 * @param index the index for reference words, locations, and positions
+	 * @param exact flag to mark if an exact search should be performed or not
+	 * @return the sorted search results for the query
+	 */
+	public static ArrayList<SearchResult> search(TreeSet<String> cleanedQuery, SearchableIndex index, boolean exact) {
+		SearchEvent event = new SearchEvent();
+		event.begin();
 
+		long start = SEARCH.start();
+		ArrayList<SearchResult> temp;
+		if (index instanceof FrequencyIndex frequencies) {
+			// the event is not passed on, so it need not be allocated if it is not recorded
+			Accumulator accumulator = ACCUMULATORS.get();
+			temp = findResults(cleanedQuery, frequencies, exact, accumulator);
+			event.matchedTerms = accumulator.matchedTerms;
+		} else {
+			LinkedHashMap<String, Integer> results = findResults(cleanedQuery, index, exact, event);
+
+			assert results != null;
+			temp = new ArrayList<>();
+			for (String location : results.keySet()) {
+				int appearances = results.get(location);
+				SearchResult result = new SearchResult(appearances, ((double)appearances/index.getWordCount(location)), location);
+				temp.add(result);
+			}
+			Collections.sort(temp);
+		}
+
+		SEARCH.stop(start);
+		QUERIES.add(1);
+		RESULTS.add(temp.size());
+
+		event.end();
+		if (event.shouldCommit()) {
+			event.stems = String.join(" ", cleanedQuery);
+			event.mode = exact ? "exact" : "partial";
+			event.documentsScored = temp.size();
+			event.commit();
+		}
+		return temp;
+	}
+
+	/**
+	 * The count and score of every location by number, and the locations
+	 * counted so far, reused by the searches on one thread. Every count is zero
+	 * between searches.
+	 */
+	private static class Accumulator {
+		/** The count of every location */
+		private int[] counts = new int[0];
+
+		/** The score of every location counted */
+		private double[] scores = new double[0];
+
+		/** The locations with counts that are not zero */
+		private int[] touched = new int[0];
+
+		/** The number of index words matched by the last search */
+		private int matchedTerms = 0;
 
+		/**
+		 * Makes room for the given number of locations
+		 *
+		 * @param locations the number of locations in the index searched
+		 */
+		private void reserve(int locations) {
+			if (counts.length < locations) {
+				counts = new int[locations];
+				scores = new double[locations];
+				touched = new int[locations];
+			}
+		}
+	}
+}